@@ -0,0 +1,95 @@
+package org.example.timecount.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.timecount.config.WorkHoursConfig;
+import org.example.timecount.model.AttendanceRequest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 基准测试夹具
+ * 不启动 Spring 容器，直接组装服务对象，数据目录使用临时目录
+ */
+class BenchmarkFixture {
+
+    /**
+     * 基准测试使用的月份
+     */
+    static final String YEAR_MONTH = "2025-03";
+
+    final Path dataDirectory;
+    final WorkHoursConfig config;
+    final AttendanceFileStore fileStore;
+    final AttendanceWriteBuffer writeBuffer;
+    final MonthRecordCache monthRecordCache;
+    final WorkHoursCalculationService calculationService;
+    final AttendanceService attendanceService;
+    final ExcelTemplateService templateService;
+
+    BenchmarkFixture() throws IOException {
+        dataDirectory = Files.createTempDirectory("timecount-jmh");
+        config = new WorkHoursConfig();
+        config.setDataDirectory(dataDirectory.toString());
+
+        WorkHoursMetrics metrics = new WorkHoursMetrics(new SimpleMeterRegistry());
+        fileStore = new AttendanceFileStore(config, metrics);
+        writeBuffer = new AttendanceWriteBuffer();
+        monthRecordCache = new MonthRecordCache(config);
+        AttendanceChangeLog changeLog = new AttendanceChangeLog();
+        attendanceService = new AttendanceService(config, fileStore, writeBuffer, new AttendanceRowIndex(),
+                new AttendanceJournal(new ObjectMapper()), changeLog, metrics);
+        calculationService = new WorkHoursCalculationService(config,
+                new HolidayService(config, fileStore, new ObjectMapper()), monthRecordCache,
+                new AttendanceSheetReader(config, fileStore, metrics), fileStore, writeBuffer, metrics,
+                new WorkHoursEngine(config), changeLog, attendanceService);
+        calculationService.registerWriteListener();
+        templateService = new ExcelTemplateService(config, fileStore);
+    }
+
+    /**
+     * 生成指定月份的模板并填满打卡数据（工作日正常打卡，周末留空，穿插请假与跨天记录）
+     */
+    File generateFilledMonth(String yearMonth) throws IOException {
+        templateService.generateTemplate(yearMonth);
+
+        YearMonth ym = YearMonth.parse(yearMonth);
+        List<AttendanceRequest> requests = new ArrayList<>();
+        for (int day = 1; day <= ym.lengthOfMonth(); day++) {
+            LocalDate date = ym.atDay(day);
+            if (date.getDayOfWeek().getValue() >= 6) {
+                continue;
+            }
+
+            AttendanceRequest request = new AttendanceRequest();
+            request.setDate(date.toString());
+            request.setStartTime(day % 5 == 0 ? "13:30" : "09:" + String.format("%02d", day % 45));
+            request.setEndTime(day % 7 == 0 ? "01:15+1" : "20:" + String.format("%02d", (day * 7) % 60));
+            if (day % 5 == 0) {
+                request.setLeaveType("上午请假");
+            }
+            request.setRemark(day % 3 == 0 ? "加班" : null);
+            requests.add(request);
+        }
+        attendanceService.submitAttendanceBatch(requests);
+        return fileStore.resolveFile(yearMonth);
+    }
+
+    /**
+     * 删除临时数据目录
+     */
+    void close() throws IOException {
+        try (Stream<Path> paths = Files.walk(dataDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
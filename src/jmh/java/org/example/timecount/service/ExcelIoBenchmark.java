@@ -0,0 +1,90 @@
+package org.example.timecount.service;
+
+import org.example.timecount.model.AttendanceRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Excel 读写路径基准测试
+ * 覆盖考勤提交（读取-修改-原子写入）与模板生成（新建 / 补全已有文件）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExcelIoBenchmark {
+
+    /**
+     * 模板新建测试使用的月份（每次调用前删除该文件）
+     */
+    private static final String NEW_TEMPLATE_MONTH = "2025-04";
+
+    private BenchmarkFixture fixture;
+    private File newTemplateFile;
+    private AttendanceRequest request;
+    private int counter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = new BenchmarkFixture();
+        fixture.generateFilledMonth(BenchmarkFixture.YEAR_MONTH);
+        newTemplateFile = fixture.fileStore.resolveFile(NEW_TEMPLATE_MONTH);
+
+        request = new AttendanceRequest();
+        request.setDate(BenchmarkFixture.YEAR_MONTH + "-14");
+        request.setStartTime("09:00");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void deleteNewTemplate() throws IOException {
+        Files.deleteIfExists(newTemplateFile.toPath());
+    }
+
+    /**
+     * 单条考勤提交（直接写入模式）
+     */
+    @Benchmark
+    public void submitAttendance() throws IOException {
+        // 每次写入不同的下班时间，保证文件内容确实发生变化
+        request.setEndTime("20:" + String.format("%02d", counter++ % 60));
+        fixture.attendanceService.submitAttendance(request);
+    }
+
+    /**
+     * 新建模板文件
+     */
+    @Benchmark
+    public String generateNewTemplate() throws IOException {
+        return fixture.templateService.generateTemplate(NEW_TEMPLATE_MONTH);
+    }
+
+    /**
+     * 补全已存在且已填写数据的模板文件
+     */
+    @Benchmark
+    public String regenerateExistingTemplate() throws IOException {
+        return fixture.templateService.generateTemplate(BenchmarkFixture.YEAR_MONTH);
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.timecount.service;
+
+import org.example.timecount.model.DailyRecord;
+import org.example.timecount.model.PackedMonth;
+import org.example.timecount.model.WorkHoursStatistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 工时计算热点路径基准测试
+ * 覆盖时间解析、每日工时计算、月度统计，以及完整的 calculateWorkHours（命中/未命中缓存）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorkHoursCalculationBenchmark {
+
+    private BenchmarkFixture fixture;
+    private WorkHoursCalculationService service;
+    private File file;
+    private PackedMonth month;
+    private LocalDate today;
+
+    private WorkHoursEngine engine;
+
+    private final int startMinute = 9 * 60 + 5;
+    private final int endMinute = 20 * 60 + 42;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = new BenchmarkFixture();
+        service = fixture.calculationService;
+        engine = new WorkHoursEngine(fixture.config);
+        file = fixture.generateFilledMonth(BenchmarkFixture.YEAR_MONTH);
+        month = service.readMonth(file, YearMonth.parse(BenchmarkFixture.YEAR_MONTH));
+        today = LocalDate.parse(BenchmarkFixture.YEAR_MONTH + "-15");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    /**
+     * 时间解析输入：普通时间 / 带次日标记的时间
+     */
+    @State(Scope.Benchmark)
+    public static class TimeText {
+
+        @Param({"09:05", "01:15+1"})
+        private String value;
+    }
+
+    @Benchmark
+    public int parseTime(TimeText timeText) {
+        return WorkHoursEngine.parseMinute(timeText.value);
+    }
+
+    @Benchmark
+    public double calculateDailyWorkHours() {
+        return engine.calculateDailyWorkHours(startMinute, endMinute, false, DailyRecord.LeaveType.NONE);
+    }
+
+    @Benchmark
+    public double calculateDailyWorkHoursNextDay() {
+        return engine.calculateDailyWorkHours(startMinute, 75, true, DailyRecord.LeaveType.AFTERNOON);
+    }
+
+    @Benchmark
+    public WorkHoursStatistics calculateStatistics() {
+        return service.calculateStatistics(BenchmarkFixture.YEAR_MONTH, month, today);
+    }
+
+    /**
+     * 每次调用前清空缓存：读取并解析整个工作簿
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public WorkHoursStatistics calculateWorkHoursCold() throws IOException {
+        fixture.monthRecordCache.clear();
+        return service.calculateWorkHours(BenchmarkFixture.YEAR_MONTH);
+    }
+
+    /**
+     * 文件未变化：命中解析缓存
+     */
+    @Benchmark
+    public WorkHoursStatistics calculateWorkHoursWarm() throws IOException {
+        return service.calculateWorkHours(BenchmarkFixture.YEAR_MONTH);
+    }
+}
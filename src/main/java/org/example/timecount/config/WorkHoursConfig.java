@@ -1,9 +1,14 @@
 package org.example.timecount.config;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 @Configuration
 @ConfigurationProperties(prefix = "workhours")
 @Data
@@ -48,4 +53,149 @@ public class WorkHoursConfig {
      * 晚餐时间临界点（19:00）
      */
     private int dinnerBreakThresholdHour = 19;
+    
+    /**
+     * 解析结果缓存最多保留的月份数（超出后按最近最少使用淘汰）
+     */
+    private int cacheMaxEntries = 64;
+    
+    /**
+     * 考勤文件读取方式：SAX（流式解析，默认）或 DOM（完整加载工作簿，兼容模式）
+     */
+    private ReadMode readMode = ReadMode.SAX;
+    
+    /**
+     * 考勤文件锁的分段数量（不同月份的文件尽量落在不同分段上并行处理）
+     */
+    private int lockStripes = 32;
+    
+    /**
+     * 考勤提交写入方式：DIRECT（每次提交立即写入文件，默认）、WRITE_BEHIND（先缓存，后台批量写入）
+     * 或 JOURNAL（追加写入提交日志后返回，后台根据日志批量生成 Excel，启动时回放日志）。
+     * WRITE_BEHIND 的缓冲区只在内存中，没有日志可回放：进程异常退出时尚未写入文件的提交会丢失
+     */
+    private WriteMode writeMode = WriteMode.DIRECT;
+    
+    /**
+     * 考勤提交更新文件的方式：PATCH（只流式改写工作表 XML，其余条目原样复制，默认）
+     * 或 POI（完整加载工作簿后重新写出）
+     */
+    private UpdateMode updateMode = UpdateMode.PATCH;
+    
+    /**
+     * 延迟写入/日志模式下的定时写入间隔（毫秒）
+     */
+    private long flushIntervalMillis = 5000;
+    
+    /**
+     * 延迟写入/日志模式下待写入提交数达到该值时立即触发写入
+     */
+    private int flushThreshold = 50;
+    
+    /**
+     * 团队统计的并行度（默认为 CPU 核数）
+     */
+    private int teamParallelism = Runtime.getRuntime().availableProcessors();
+    
+    /**
+     * 团队统计时解析结果缓存最多扩容到的月份数：团队人数不超过该值时，缓存按团队人数扩容（之后不再缩小），
+     * 重复的团队统计可以命中缓存；超过时团队统计不写入缓存，避免逐个淘汰其他月份
+     */
+    private int teamCacheMaxEntries = 4096;
+    
+    /**
+     * 多月份查询的并行度（默认为 CPU 核数）
+     */
+    private int viewParallelism = Runtime.getRuntime().availableProcessors();
+    
+    /**
+     * 耗时接口（计算统计、报告、模板生成等）的执行线程数（默认为 CPU 核数）
+     */
+    private int requestParallelism = Runtime.getRuntime().availableProcessors();
+    
+    /**
+     * 耗时接口的等待队列长度，线程与队列都已满时返回 503
+     */
+    private int requestQueueCapacity = 64;
+    
+    /**
+     * 耗时接口返回 503 时建议客户端的重试间隔（秒，Retry-After 响应头）
+     */
+    private int requestRetryAfterSeconds = 2;
+    
+    /**
+     * 新模板生成方式：SKELETON（预编译的 xlsx 骨架 + 直接生成工作表 XML，默认）或 POI（通过 POI 构建工作簿）
+     */
+    private TemplateMode templateMode = TemplateMode.SKELETON;
+    
+    /**
+     * 批量生成模板的并行线程数（默认为 CPU 核数）
+     */
+    private int templateParallelism = Runtime.getRuntime().availableProcessors();
+    
+    /**
+     * 节假日日历目录（相对路径时位于数据目录下），目录中的 JSON/CSV 文件会覆盖或补充内置日历
+     */
+    private String holidayDirectory = "holidays";
+    
+    /**
+     * 计算工时使用的节假日地区（对应日历文件名前缀，如 CN-2026.json）
+     */
+    private String holidayRegion = "CN";
+    
+    /**
+     * 检查节假日日历文件变化的间隔（毫秒），小于等于 0 时不自动重新加载
+     */
+    private long holidayReloadIntervalMillis = 10000;
+    
+    /**
+     * 配置版本号（每次通过接口更新配置后递增，用于使缓存失效）
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final AtomicLong version = new AtomicLong();
+    
+    public long getVersion() {
+        return version.get();
+    }
+    
+    /**
+     * 标记配置已变更
+     */
+    public void incrementVersion() {
+        version.incrementAndGet();
+    }
+    
+    /**
+     * 考勤文件读取方式
+     */
+    public enum ReadMode {
+        SAX,
+        DOM
+    }
+    
+    /**
+     * 新模板生成方式
+     */
+    public enum TemplateMode {
+        SKELETON,
+        POI
+    }
+    
+    /**
+     * 考勤提交更新文件的方式
+     */
+    public enum UpdateMode {
+        PATCH,
+        POI
+    }
+    
+    /**
+     * 考勤提交写入方式（WRITE_BEHIND 在进程异常退出时会丢失尚未写入文件的提交，需要持久化时使用 JOURNAL）
+     */
+    public enum WriteMode {
+        DIRECT,
+        WRITE_BEHIND,
+        JOURNAL
+    }
 }
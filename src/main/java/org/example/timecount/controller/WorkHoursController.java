@@ -3,21 +3,52 @@ package org.example.timecount.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.timecount.config.WorkHoursConfig;
+import org.example.timecount.model.AttendanceChanges;
 import org.example.timecount.model.AttendanceRequest;
+import org.example.timecount.model.AttendanceSubmitResult;
+import org.example.timecount.model.BulkTemplateRequest;
 import org.example.timecount.model.DailyRecord;
+import org.example.timecount.model.MonthWorkHours;
+import org.example.timecount.model.TeamWorkHoursStatistics;
+import org.example.timecount.model.TemplateGenerationJob;
 import org.example.timecount.model.WorkHoursConfigRequest;
 import org.example.timecount.model.WorkHoursStatistics;
 import org.example.timecount.service.AttendanceService;
+import org.example.timecount.service.BulkTemplateService;
+import org.example.timecount.service.DailyRecordEncoder;
 import org.example.timecount.service.ExcelTemplateService;
+import org.example.timecount.service.HolidayService;
+import org.example.timecount.service.StatisticsStreamService;
+import org.example.timecount.service.TeamWorkHoursService;
 import org.example.timecount.service.WorkHoursCalculationService;
+import org.example.timecount.service.WorkHoursRequestExecutor;
+import org.example.timecount.service.WorkHoursViewService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/workhours")
@@ -25,249 +56,617 @@ import java.util.Map;
 @Slf4j
 public class WorkHoursController {
 
+    /**
+     * 工作日统计接口允许的最大日期范围（年）
+     */
+    private static final int MAX_WORKDAY_RANGE_YEARS = 10;
+
     private final ExcelTemplateService templateService;
+    private final BulkTemplateService bulkTemplateService;
     private final WorkHoursCalculationService calculationService;
     private final AttendanceService attendanceService;
+    private final TeamWorkHoursService teamWorkHoursService;
+    private final WorkHoursViewService workHoursViewService;
+    private final HolidayService holidayService;
+    private final StatisticsStreamService statisticsStreamService;
+    private final WorkHoursRequestExecutor requestExecutor;
     private final WorkHoursConfig workHoursConfig;
 
     /**
      * 生成指定月份的考勤表格模板
      *
-     * @param yearMonth 年月，格式：YYYY-MM，如果不传则使用当前月份
+     * @param yearMonth  年月，格式：YYYY-MM，如果不传则使用当前月份
+     * @param employeeId 员工编号，如果不传则使用个人考勤文件
      * @return 生成结果
      */
     @PostMapping("/template/generate")
-    public ResponseEntity<Map<String, Object>> generateTemplate(
-            @RequestParam(required = false) String yearMonth) {
-        
-        try {
-            // 如果没有传入年月，使用当前月份
-            if (yearMonth == null || yearMonth.trim().isEmpty()) {
-                yearMonth = YearMonth.now().format(DateTimeFormatter.ofPattern("yyyy-MM"));
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> generateTemplate(
+            @RequestParam(name = "yearMonth", required = false) String requestedYearMonth,
+            @RequestParam(required = false) String employeeId) {
+        // 如果没有传入年月，使用当前月份
+        String yearMonth = requestedYearMonth == null || requestedYearMonth.trim().isEmpty()
+                ? YearMonth.now().format(DateTimeFormatter.ofPattern("yyyy-MM")) : requestedYearMonth;
+
+        return requestExecutor.submit(() -> {
+            try {
+                String filePath = templateService.generateTemplate(employeeId, yearMonth);
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("message", "模板生成成功");
+                response.put("yearMonth", yearMonth);
+                response.put("filePath", filePath);
+
+                log.info("模板生成成功: {} {}", employeeId != null ? employeeId : "", yearMonth);
+                return ResponseEntity.ok(response);
+
+            } catch (Exception e) {
+                log.error("生成模板失败", e);
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", false);
+                response.put("message", "生成模板失败: " + e.getMessage());
+                return ResponseEntity.status(500).body(response);
             }
+        });
+    }
 
-            String filePath = templateService.generateTemplate(yearMonth);
+    /**
+     * 批量生成考勤模板（年份 × 员工），后台并行生成，返回任务编号用于查询进度
+     *
+     * @param request 年份、月份（为空时全年）与员工编号（为空时全部员工）
+     * @return 任务初始进度
+     */
+    @PostMapping("/template/generate/bulk")
+    public ResponseEntity<Map<String, Object>> generateTemplatesInBulk(@RequestBody BulkTemplateRequest request) {
+        try {
+            TemplateGenerationJob job = bulkTemplateService.submit(request);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("message", "模板生成成功");
-            response.put("yearMonth", yearMonth);
-            response.put("filePath", filePath);
-
-            log.info("模板生成成功: {}", yearMonth);
+            response.put("message", String.format("批量生成任务已提交：共 %d 个文件", job.getTotalFiles()));
+            response.put("job", job);
             return ResponseEntity.ok(response);
 
+        } catch (RejectedExecutionException e) {
+            // 同时执行的任务数已达上限：返回 503，客户端稍后重试
+            log.warn("批量生成模板任务被拒绝: {}", e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(503)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(requestExecutor.getRetryAfterSeconds()))
+                    .body(response);
         } catch (Exception e) {
-            log.error("生成模板失败", e);
+            log.error("提交批量生成模板任务失败", e);
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
-            response.put("message", "生成模板失败: " + e.getMessage());
+            response.put("message", "提交批量生成模板任务失败: " + e.getMessage());
             return ResponseEntity.status(500).body(response);
         }
     }
 
+    /**
+     * 查询批量生成模板任务的进度
+     */
+    @GetMapping("/template/generate/bulk/{jobId}")
+    public ResponseEntity<Map<String, Object>> getBulkTemplateJob(@PathVariable String jobId) {
+        TemplateGenerationJob job = bulkTemplateService.getJob(jobId);
+
+        Map<String, Object> response = new HashMap<>();
+        if (job == null) {
+            response.put("success", false);
+            response.put("message", "任务不存在: " + jobId);
+            return ResponseEntity.status(404).body(response);
+        }
+        response.put("success", true);
+        response.put("job", job);
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * 计算指定月份的工时统计
      *
-     * @param yearMonth 年月，格式：YYYY-MM，如果不传则使用当前月份
-     * @return 工时统计结果
+     * @param yearMonth  年月，格式：YYYY-MM，如果不传则使用当前月份
+     * @param employeeId 员工编号，如果不传则使用个人考勤文件
+     * @param fields     每日记录只返回的字段（逗号分隔，如 date,workHours），如果不传则返回全部字段
+     * @param format     每日记录的格式：rows（每天一个对象，默认）或 columnar（每个字段一个数组）
+     * @return 工时统计结果（columnar 格式下请假、迟到记录为每日记录中的下标 leaveIndexes、lateIndexes）
      */
     @GetMapping("/calculate")
-    public ResponseEntity<Map<String, Object>> calculateWorkHours(
-            @RequestParam(required = false) String yearMonth) {
-        
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> calculateWorkHours(
+            @RequestParam(name = "yearMonth", required = false) String requestedYearMonth,
+            @RequestParam(required = false) String employeeId,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) String format,
+            WebRequest webRequest) {
+        // 如果没有传入年月，使用当前月份
+        String yearMonth = requestedYearMonth == null || requestedYearMonth.trim().isEmpty()
+                ? YearMonth.now().format(DateTimeFormatter.ofPattern("yyyy-MM")) : requestedYearMonth;
+
+        // 条件请求在容器线程上判断：未修改时直接返回 304，不占用耗时接口的线程池
+        if (isNotModified(() -> checkNotModified(webRequest,
+                calculationService.getStatisticsVersion(employeeId, yearMonth),
+                "calculate", employeeId, yearMonth, DailyRecordEncoder.resolveFields(fields),
+                DailyRecordEncoder.isColumnar(format)))) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return requestExecutor.submit(() -> {
+            try {
+                boolean columnar = DailyRecordEncoder.isColumnar(format);
+                Set<String> recordFields = DailyRecordEncoder.resolveFields(fields);
+
+                WorkHoursStatistics statistics = calculationService.calculateWorkHours(employeeId, yearMonth);
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("message", "工时计算成功");
+                response.put("statistics", columnar || recordFields != null
+                        ? DailyRecordEncoder.encodeStatistics(statistics, recordFields, columnar) : statistics);
+
+                log.info("工时计算成功: {}", yearMonth);
+                return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+
+            } catch (Exception e) {
+                log.error("计算工时失败", e);
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", false);
+                response.put("message", "计算工时失败: " + e.getMessage());
+                return ResponseEntity.status(500).body(response);
+            }
+        });
+    }
+
+    /**
+     * 订阅指定月份的工时统计实时推送（Server-Sent Events）
+     * 连接后先收到完整统计（statistics 事件），之后考勤提交、配置或节假日变化时只收到变化部分（delta 事件）
+     *
+     * @param yearMonth  年月，格式：YYYY-MM，如果不传则使用当前月份
+     * @param employeeId 员工编号，如果不传则使用个人考勤文件
+     */
+    @GetMapping("/statistics/stream")
+    public ResponseEntity<SseEmitter> streamStatistics(
+            @RequestParam(required = false) String yearMonth,
+            @RequestParam(required = false) String employeeId) {
         try {
-            // 如果没有传入年月，使用当前月份
             if (yearMonth == null || yearMonth.trim().isEmpty()) {
                 yearMonth = YearMonth.now().format(DateTimeFormatter.ofPattern("yyyy-MM"));
             }
-
-            WorkHoursStatistics statistics = calculationService.calculateWorkHours(yearMonth);
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "工时计算成功");
-            response.put("statistics", statistics);
-
-            log.info("工时计算成功: {}", yearMonth);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(statisticsStreamService.subscribe(employeeId, yearMonth));
 
         } catch (Exception e) {
-            log.error("计算工时失败", e);
+            log.error("订阅工时统计推送失败", e);
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
-            response.put("message", "计算工时失败: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            response.put("message", "订阅工时统计推送失败: " + e.getMessage());
+            // 错误信息作为唯一的 failure 事件返回后立即结束连接
+            SseEmitter failure = new SseEmitter();
+            try {
+                failure.send(SseEmitter.event().name("failure").data(response, MediaType.APPLICATION_JSON));
+            } catch (IOException ignored) {
+                // 连接已断开
+            }
+            failure.complete();
+            return ResponseEntity.status(500).body(failure);
         }
     }
 
+    /**
+     * 校验物化统计：与重新读取考勤文件、逐天完整计算的结果比较
+     *
+     * @param yearMonth  年月，格式：YYYY-MM，如果不传则使用当前月份
+     * @param employeeId 员工编号，如果不传则使用个人考勤文件
+     * @return 是否一致（consistent）及不一致的字段与日期（differences）
+     */
+    @GetMapping("/statistics/verify")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> verifyStatistics(
+            @RequestParam(name = "yearMonth", required = false) String requestedYearMonth,
+            @RequestParam(required = false) String employeeId) {
+        // 如果没有传入年月，使用当前月份
+        String yearMonth = requestedYearMonth == null || requestedYearMonth.trim().isEmpty()
+                ? YearMonth.now().format(DateTimeFormatter.ofPattern("yyyy-MM")) : requestedYearMonth;
+
+        return requestExecutor.submit(() -> {
+            try {
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("verification", calculationService.verifyStatistics(employeeId, yearMonth));
+                return ResponseEntity.ok(response);
+
+            } catch (Exception e) {
+                log.error("校验工时统计失败", e);
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", false);
+                response.put("message", "校验工时统计失败: " + e.getMessage());
+                return ResponseEntity.status(500).body(response);
+            }
+        });
+    }
+
     /**
      * 获取工时统计的详细报告（格式化输出）
      *
-     * @param yearMonth 年月，格式：YYYY-MM，如果不传则使用当前月份
+     * @param yearMonth  年月，格式：YYYY-MM，如果不传则使用当前月份
+     * @param employeeId 员工编号，如果不传则使用个人考勤文件
      * @return 格式化的统计报告
      */
     @GetMapping("/report")
-    public ResponseEntity<String> getWorkHoursReport(
-            @RequestParam(required = false) String yearMonth) {
-        
-        try {
-            // 如果没有传入年月，使用当前月份
-            if (yearMonth == null || yearMonth.trim().isEmpty()) {
-                yearMonth = YearMonth.now().format(DateTimeFormatter.ofPattern("yyyy-MM"));
-            }
+    public CompletableFuture<ResponseEntity<String>> getWorkHoursReport(
+            @RequestParam(name = "yearMonth", required = false) String requestedYearMonth,
+            @RequestParam(required = false) String employeeId,
+            WebRequest webRequest) {
+        // 如果没有传入年月，使用当前月份
+        String yearMonth = requestedYearMonth == null || requestedYearMonth.trim().isEmpty()
+                ? YearMonth.now().format(DateTimeFormatter.ofPattern("yyyy-MM")) : requestedYearMonth;
+
+        // 条件请求在容器线程上判断：未修改时直接返回 304，不占用耗时接口的线程池
+        if (isNotModified(() -> checkNotModified(webRequest,
+                calculationService.getStatisticsVersion(employeeId, yearMonth),
+                "report", employeeId, yearMonth))) {
+            return CompletableFuture.completedFuture(null);
+        }
 
-            WorkHoursStatistics statistics = calculationService.calculateWorkHours(yearMonth);
-
-            StringBuilder report = new StringBuilder();
-            String separator = repeatString("=", 60);
-            report.append(separator).append("\n");
-            report.append(String.format("           %s 工时统计报告\n", statistics.getYearMonth()));
-            report.append(separator).append("\n\n");
-
-            report.append("【出勤统计】\n");
-            report.append(String.format("  当月总工时：%.2f 小时\n", statistics.getTotalWorkHours()));
-            report.append(String.format("  出勤天数：%d 天\n", statistics.getAttendanceDays()));
-            report.append(String.format("  出勤日平均工时：%.2f 小时/天\n\n", statistics.getAverageWorkHoursPerDay()));
-
-            report.append("【期望目标】\n");
-            report.append(String.format("  期望总工时：%.2f 小时\n", statistics.getExpectedTotalHours()));
-            report.append(String.format("  距离目标还需：%.2f 小时\n\n", statistics.getRemainingHoursToTarget()));
-
-            report.append("【剩余规划】\n");
-            report.append(String.format("  剩余工作日：%d 天\n", statistics.getRemainingWorkdays()));
-            if (statistics.getRemainingWorkdays() > 0) {
-                report.append(String.format("  需要日均工时：%.2f 小时/天\n\n", 
-                        statistics.getRequiredAverageHoursForRemainingDays()));
-            } else {
-                report.append("  本月已结束\n\n");
-            }
+        return requestExecutor.submit(() -> {
+            try {
+                WorkHoursStatistics statistics = calculationService.calculateWorkHours(employeeId, yearMonth);
+
+                StringBuilder report = new StringBuilder();
+                String separator = repeatString("=", 60);
+                report.append(separator).append("\n");
+                report.append(String.format("           %s 工时统计报告\n", statistics.getYearMonth()));
+                report.append(separator).append("\n\n");
+
+                report.append("【出勤统计】\n");
+                report.append(String.format("  当月总工时：%.2f 小时\n", statistics.getTotalWorkHours()));
+                report.append(String.format("  出勤天数：%d 天\n", statistics.getAttendanceDays()));
+                report.append(String.format("  出勤日平均工时：%.2f 小时/天\n\n", statistics.getAverageWorkHoursPerDay()));
+
+                report.append("【期望目标】\n");
+                report.append(String.format("  期望总工时：%.2f 小时\n", statistics.getExpectedTotalHours()));
+                report.append(String.format("  距离目标还需：%.2f 小时\n\n", statistics.getRemainingHoursToTarget()));
+
+                report.append("【剩余规划】\n");
+                report.append(String.format("  剩余工作日：%d 天\n", statistics.getRemainingWorkdays()));
+                if (statistics.getRemainingWorkdays() > 0) {
+                    report.append(String.format("  需要日均工时：%.2f 小时/天\n\n", 
+                            statistics.getRequiredAverageHoursForRemainingDays()));
+                } else {
+                    report.append("  本月已结束\n\n");
+                }
 
-            if (statistics.getLeaveDays() > 0) {
-                report.append("【请假统计】\n");
-                report.append(String.format("  请假天数：%d 天\n", statistics.getLeaveDays()));
-                report.append(String.format("  请假总时长：%.2f 小时\n\n", statistics.getTotalLeaveHours()));
-                
-                // 显示请假详情
-                report.append("  请假明细：\n");
-                if (statistics.getLeaveRecords() != null && !statistics.getLeaveRecords().isEmpty()) {
-                    for (DailyRecord leaveRecord : statistics.getLeaveRecords()) {
-                        String leaveTimeStr = "";
-                        if (leaveRecord.getLeaveStartTime() != null && leaveRecord.getLeaveEndTime() != null) {
-                            leaveTimeStr = String.format(" [%s~%s]", 
-                                    leaveRecord.getLeaveStartTime(), 
-                                    leaveRecord.getLeaveEndTime());
-                        }
-                        
-                        String workTimeStr = "";
-                        if (leaveRecord.getStartTime() != null || leaveRecord.getEndTime() != null) {
-                            String start = leaveRecord.getStartTime() != null ? 
-                                    leaveRecord.getStartTime().toString() : "未打卡";
-                            String end = leaveRecord.getEndTime() != null ? 
-                                    leaveRecord.getEndTime().toString() : "未打卡";
-                            workTimeStr = String.format(" (打卡: %s~%s)", start, end);
+                if (statistics.getLeaveDays() > 0) {
+                    report.append("【请假统计】\n");
+                    report.append(String.format("  请假天数：%d 天\n", statistics.getLeaveDays()));
+                    report.append(String.format("  请假总时长：%.2f 小时\n\n", statistics.getTotalLeaveHours()));
+
+                    // 显示请假详情
+                    report.append("  请假明细：\n");
+                    if (statistics.getLeaveRecords() != null && !statistics.getLeaveRecords().isEmpty()) {
+                        for (DailyRecord leaveRecord : statistics.getLeaveRecords()) {
+                            String leaveTimeStr = "";
+                            if (leaveRecord.getLeaveStartTime() != null && leaveRecord.getLeaveEndTime() != null) {
+                                leaveTimeStr = String.format(" [%s~%s]", 
+                                        leaveRecord.getLeaveStartTime(), 
+                                        leaveRecord.getLeaveEndTime());
+                            }
+
+                            String workTimeStr = "";
+                            if (leaveRecord.getStartTime() != null || leaveRecord.getEndTime() != null) {
+                                String start = leaveRecord.getStartTime() != null ? 
+                                        leaveRecord.getStartTime().toString() : "未打卡";
+                                String end = leaveRecord.getEndTime() != null ? 
+                                        leaveRecord.getEndTime().toString() : "未打卡";
+                                workTimeStr = String.format(" (打卡: %s~%s)", start, end);
+                            }
+
+                            report.append(String.format("    - %s%s%s: %.2f 小时\n", 
+                                    leaveRecord.getDate(), 
+                                    leaveTimeStr,
+                                    workTimeStr,
+                                    leaveRecord.getLeaveHours()));
                         }
-                        
-                        report.append(String.format("    - %s%s%s: %.2f 小时\n", 
-                                leaveRecord.getDate(), 
-                                leaveTimeStr,
-                                workTimeStr,
-                                leaveRecord.getLeaveHours()));
                     }
+                    report.append("\n");
                 }
-                report.append("\n");
-            }
 
-            if (statistics.getLateDays() > 0) {
-                report.append("【迟到统计】\n");
-                report.append(String.format("  迟到天数：%d 天\n", statistics.getLateDays()));
-                report.append(String.format("  迟到率：%.1f%%\n", 
-                        statistics.getActualAttendanceDays() > 0 ? 
-                        (statistics.getLateDays() * 100.0 / statistics.getActualAttendanceDays()) : 0.0));
-                report.append(String.format("  标准上班时间：%02d:00\n\n", 
-                        workHoursConfig.getStandardStartHour()));
-                
-                // 显示迟到详情
-                report.append("  迟到明细：\n");
-                if (statistics.getLateRecords() != null && !statistics.getLateRecords().isEmpty()) {
-                    for (DailyRecord lateRecord : statistics.getLateRecords()) {
-                        // 计算迟到分钟数
-                        LocalTime standardStart = LocalTime.of(workHoursConfig.getStandardStartHour(), 0);
-                        long lateMinutes = java.time.Duration.between(standardStart, lateRecord.getStartTime()).toMinutes();
-                        
-                        String endTimeStr = lateRecord.getEndTime() != null ? 
-                                lateRecord.getEndTime().toString() : "未打卡";
-                        
-                        report.append(String.format("    - %s %s：上班 %s (迟到 %d 分钟), 下班 %s, 工时 %.2fh\n", 
-                                lateRecord.getDate(),
-                                lateRecord.getDayOfWeek(),
-                                lateRecord.getStartTime(),
-                                lateMinutes,
-                                endTimeStr,
-                                lateRecord.getWorkHours()));
+                if (statistics.getLateDays() > 0) {
+                    report.append("【迟到统计】\n");
+                    report.append(String.format("  迟到天数：%d 天\n", statistics.getLateDays()));
+                    report.append(String.format("  迟到率：%.1f%%\n", 
+                            statistics.getActualAttendanceDays() > 0 ? 
+                            (statistics.getLateDays() * 100.0 / statistics.getActualAttendanceDays()) : 0.0));
+                    report.append(String.format("  标准上班时间：%02d:00\n\n", 
+                            workHoursConfig.getStandardStartHour()));
+
+                    // 显示迟到详情
+                    report.append("  迟到明细：\n");
+                    if (statistics.getLateRecords() != null && !statistics.getLateRecords().isEmpty()) {
+                        for (DailyRecord lateRecord : statistics.getLateRecords()) {
+                            // 计算迟到分钟数
+                            LocalTime standardStart = LocalTime.of(workHoursConfig.getStandardStartHour(), 0);
+                            long lateMinutes = java.time.Duration.between(standardStart, lateRecord.getStartTime()).toMinutes();
+
+                            String endTimeStr = lateRecord.getEndTime() != null ? 
+                                    lateRecord.getEndTime().toString() : "未打卡";
+
+                            report.append(String.format("    - %s %s：上班 %s (迟到 %d 分钟), 下班 %s, 工时 %.2fh\n", 
+                                    lateRecord.getDate(),
+                                    lateRecord.getDayOfWeek(),
+                                    lateRecord.getStartTime(),
+                                    lateMinutes,
+                                    endTimeStr,
+                                    lateRecord.getWorkHours()));
+                        }
                     }
+                    report.append("\n");
                 }
-                report.append("\n");
+
+                report.append(separator).append("\n");
+
+                log.info("生成工时报告: {}", yearMonth);
+                return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(report.toString());
+
+            } catch (Exception e) {
+                log.error("生成报告失败", e);
+                return ResponseEntity.status(500).body("生成报告失败: " + e.getMessage());
             }
+        });
+    }
 
-            report.append(separator).append("\n");
+    /**
+     * 计算团队指定月份的工时统计（各员工并行计算后汇总）
+     *
+     * @param yearMonth   年月，格式：YYYY-MM，如果不传则使用当前月份
+     * @param employeeIds 员工编号（逗号分隔），如果不传则统计全部员工
+     * @return 团队工时统计结果
+     */
+    @GetMapping("/team/calculate")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> calculateTeamWorkHours(
+            @RequestParam(name = "yearMonth", required = false) String requestedYearMonth,
+            @RequestParam(required = false) List<String> employeeIds,
+            WebRequest webRequest) {
+        // 如果没有传入年月，使用当前月份
+        String yearMonth = requestedYearMonth == null || requestedYearMonth.trim().isEmpty()
+                ? YearMonth.now().format(DateTimeFormatter.ofPattern("yyyy-MM")) : requestedYearMonth;
+
+        // 团队的数据版本需要读取每位员工考勤文件的属性，在线程池上计算，不占用容器线程；
+        // 请求头在容器线程上读取，未修改时由线程池返回 304
+        String ifNoneMatch = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH);
+        return requestExecutor.submit(() -> {
+            try {
+                String version = teamWorkHoursService.getStatisticsVersion(yearMonth, employeeIds);
+                String etag = version != null ? etagOf(version, "team") : null;
+                if (etag != null && etagMatches(ifNoneMatch, etag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                            .cacheControl(CacheControl.noCache()).<Map<String, Object>>build();
+                }
 
-            log.info("生成工时报告: {}", yearMonth);
-            return ResponseEntity.ok(report.toString());
+                TeamWorkHoursStatistics statistics = teamWorkHoursService.calculateTeamWorkHours(yearMonth, employeeIds);
 
-        } catch (Exception e) {
-            log.error("生成报告失败", e);
-            return ResponseEntity.status(500).body("生成报告失败: " + e.getMessage());
-        }
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("message", String.format("团队工时计算完成：%d 人，失败 %d 人",
+                        statistics.getEmployeeCount(), statistics.getFailureCount()));
+                response.put("statistics", statistics);
+
+                log.info("团队工时计算成功: {}", yearMonth);
+                ResponseEntity.BodyBuilder ok = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+                if (etag != null) {
+                    ok.eTag(etag);
+                }
+                return ok.body(response);
+
+            } catch (Exception e) {
+                log.error("计算团队工时失败", e);
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", false);
+                response.put("message", "计算团队工时失败: " + e.getMessage());
+                return ResponseEntity.status(500).body(response);
+            }
+        });
     }
 
     /**
-     * 健康检查接口
+     * 获取全部员工编号（数据目录下的员工子目录）
      */
-    @GetMapping("/health")
-    public ResponseEntity<Map<String, Object>> health() {
+    @GetMapping("/team/employees")
+    public ResponseEntity<Map<String, Object>> getEmployees() {
         Map<String, Object> response = new HashMap<>();
-        response.put("status", "UP");
-        response.put("service", "WorkHours Service");
+        response.put("success", true);
+        response.put("employees", teamWorkHoursService.listEmployees());
         return ResponseEntity.ok(response);
     }
 
     /**
-     * 获取每日详细记录（用于调试）
+     * 获取节假日日历（默认地区指定年份的法定节假日与调休工作日）
+     *
+     * @param year 年份，如果不传则使用当前年份
      */
-    @GetMapping("/debug/daily-records")
-    public ResponseEntity<Map<String, Object>> getDailyRecords(
-            @RequestParam(required = false) String yearMonth) {
-        
+    @GetMapping("/holidays")
+    public ResponseEntity<Map<String, Object>> getHolidays(@RequestParam(required = false) Integer year,
+                                                           WebRequest webRequest) {
+        int targetYear = year != null ? year : LocalDate.now().getYear();
+
+        if (checkNotModified(webRequest, holidayService.getVersion(),
+                "holidays", targetYear, workHoursConfig.getHolidayRegion())) {
+            return null;
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("year", targetYear);
+        response.put("region", workHoursConfig.getHolidayRegion());
+        response.put("regions", holidayService.getRegions());
+        response.put("version", holidayService.getVersion());
+        response.put("holidays", holidayService.getAllHolidays().stream()
+                .filter(date -> date.getYear() == targetYear).collect(Collectors.toList()));
+        response.put("makeupWorkdays", holidayService.getAllMakeupWorkdays().stream()
+                .filter(date -> date.getYear() == targetYear).collect(Collectors.toList()));
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+    }
+
+    /**
+     * 统计日期范围内的工作日天数（包含两端），并按月份拆分，用于跨月、全年的工时规划
+     *
+     * @param from   开始日期，格式：yyyy-MM-dd
+     * @param to     结束日期，格式：yyyy-MM-dd
+     * @param region 地区，如果不传则使用配置的默认地区
+     */
+    @GetMapping("/workdays")
+    public ResponseEntity<Map<String, Object>> countWorkdays(
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(required = false) String region,
+            WebRequest webRequest) {
+
         try {
-            if (yearMonth == null || yearMonth.trim().isEmpty()) {
-                yearMonth = YearMonth.now().format(DateTimeFormatter.ofPattern("yyyy-MM"));
+            LocalDate fromDate = LocalDate.parse(from);
+            LocalDate toDate = LocalDate.parse(to);
+            if (fromDate.isAfter(toDate)) {
+                throw new IllegalArgumentException("开始日期不能晚于结束日期");
+            }
+            if (fromDate.plusYears(MAX_WORKDAY_RANGE_YEARS).isBefore(toDate)) {
+                throw new IllegalArgumentException("日期范围不能超过 " + MAX_WORKDAY_RANGE_YEARS + " 年");
             }
+            String targetRegion = region != null && !region.trim().isEmpty() ? region : workHoursConfig.getHolidayRegion();
 
-            WorkHoursStatistics statistics = calculationService.calculateWorkHours(yearMonth);
+            if (checkNotModified(webRequest, holidayService.getVersion(), "workdays", fromDate, toDate, targetRegion)) {
+                return null;
+            }
+
+            List<Map<String, Object>> months = new ArrayList<>();
+            for (YearMonth month = YearMonth.from(fromDate); !month.isAfter(YearMonth.from(toDate)); month = month.plusMonths(1)) {
+                LocalDate monthStart = month.atDay(1).isBefore(fromDate) ? fromDate : month.atDay(1);
+                LocalDate monthEnd = month.atEndOfMonth().isAfter(toDate) ? toDate : month.atEndOfMonth();
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("yearMonth", month.toString());
+                item.put("workdays", holidayService.countWorkdays(targetRegion, monthStart, monthEnd));
+                months.add(item);
+            }
 
-            Map<String, Object> summary = new HashMap<>();
-            summary.put("totalWorkHours", statistics.getTotalWorkHours());
-            summary.put("attendanceDays", statistics.getAttendanceDays());
-            summary.put("averageWorkHours", statistics.getAverageWorkHoursPerDay());
-            
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("yearMonth", yearMonth);
-            response.put("dailyRecords", statistics.getDailyRecords());
-            response.put("summary", summary);
+            response.put("from", fromDate.toString());
+            response.put("to", toDate.toString());
+            response.put("region", targetRegion);
+            response.put("calendarDays", toDate.toEpochDay() - fromDate.toEpochDay() + 1);
+            response.put("workdays", holidayService.countWorkdays(targetRegion, fromDate, toDate));
+            response.put("months", months);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+
+        } catch (Exception e) {
+            log.error("统计工作日失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "统计工作日失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
 
+    /**
+     * 立即重新加载节假日日历文件
+     */
+    @PostMapping("/holidays/reload")
+    public ResponseEntity<Map<String, Object>> reloadHolidays() {
+        try {
+            holidayService.reload();
+            statisticsStreamService.publishAll();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "节假日日历已重新加载");
+            response.put("regions", holidayService.getRegions());
+            response.put("version", holidayService.getVersion());
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            log.error("获取每日记录失败", e);
+            log.error("重新加载节假日日历失败", e);
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
-            response.put("message", "获取每日记录失败: " + e.getMessage());
+            response.put("message", "重新加载节假日日历失败: " + e.getMessage());
             return ResponseEntity.status(500).body(response);
         }
     }
 
+    /**
+     * 健康检查接口
+     */
+    @GetMapping("/health")
+    public ResponseEntity<Map<String, Object>> health() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "UP");
+        response.put("service", "WorkHours Service");
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 获取解析缓存统计信息（命中率等）
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("cache", calculationService.getCacheStats());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 获取每日详细记录（用于调试）
+     *
+     * @param fields     每日记录只返回的字段（逗号分隔，如 date,workHours），如果不传则返回全部字段
+     * @param format     每日记录的格式：rows（每天一个对象，默认）或 columnar（每个字段一个数组）
+     */
+    @GetMapping("/debug/daily-records")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getDailyRecords(
+            @RequestParam(name = "yearMonth", required = false) String requestedYearMonth,
+            @RequestParam(required = false) String employeeId,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) String format,
+            WebRequest webRequest) {
+        // 如果没有传入年月，使用当前月份
+        String yearMonth = requestedYearMonth == null || requestedYearMonth.trim().isEmpty()
+                ? YearMonth.now().format(DateTimeFormatter.ofPattern("yyyy-MM")) : requestedYearMonth;
+
+        // 条件请求在容器线程上判断：未修改时直接返回 304，不占用耗时接口的线程池
+        if (isNotModified(() -> checkNotModified(webRequest,
+                calculationService.getStatisticsVersion(employeeId, yearMonth),
+                "daily-records", employeeId, yearMonth, DailyRecordEncoder.resolveFields(fields),
+                DailyRecordEncoder.isColumnar(format)))) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return requestExecutor.submit(() -> {
+            try {
+                boolean columnar = DailyRecordEncoder.isColumnar(format);
+                Set<String> recordFields = DailyRecordEncoder.resolveFields(fields);
+
+                WorkHoursStatistics statistics = calculationService.calculateWorkHours(employeeId, yearMonth);
+
+                Map<String, Object> summary = new HashMap<>();
+                summary.put("totalWorkHours", statistics.getTotalWorkHours());
+                summary.put("attendanceDays", statistics.getAttendanceDays());
+                summary.put("averageWorkHours", statistics.getAverageWorkHoursPerDay());
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("yearMonth", yearMonth);
+                response.put("dailyRecords", columnar || recordFields != null
+                        ? DailyRecordEncoder.encode(statistics.getDailyRecords(), recordFields, columnar)
+                        : statistics.getDailyRecords());
+                response.put("summary", summary);
+
+                return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+
+            } catch (Exception e) {
+                log.error("获取每日记录失败", e);
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", false);
+                response.put("message", "获取每日记录失败: " + e.getMessage());
+                return ResponseEntity.status(500).body(response);
+            }
+        });
+    }
+
     /**
      * 提交考勤记录（打卡）
      */
@@ -294,12 +693,47 @@ public class WorkHoursController {
         }
     }
 
+    /**
+     * 批量提交考勤记录（可跨月份，每个月份只写入一次文件）
+     */
+    @PostMapping("/attendance/submit/batch")
+    public ResponseEntity<Map<String, Object>> submitAttendanceBatch(
+            @RequestBody List<AttendanceRequest> requests) {
+        
+        try {
+            List<AttendanceSubmitResult> results = attendanceService.submitAttendanceBatch(requests);
+            long successCount = results.stream().filter(AttendanceSubmitResult::isSuccess).count();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", successCount == results.size());
+            response.put("message", String.format("批量提交完成：成功 %d 条，失败 %d 条",
+                    successCount, results.size() - successCount));
+            response.put("successCount", successCount);
+            response.put("failureCount", results.size() - successCount);
+            response.put("results", results);
+
+            log.info("批量提交考勤记录完成: 成功 {} 条，共 {} 条", successCount, results.size());
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("批量提交考勤记录失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "批量提交考勤记录失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
     /**
      * 获取工时配置
      */
     @GetMapping("/config")
-    public ResponseEntity<Map<String, Object>> getConfig() {
+    public ResponseEntity<Map<String, Object>> getConfig(WebRequest webRequest) {
         try {
+            if (checkNotModified(webRequest, workHoursConfig.getVersion(), "config")) {
+                return null;
+            }
+
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             Map<String, Object> config = new HashMap<>();
@@ -313,7 +747,7 @@ public class WorkHoursController {
             config.put("fileNameFormat", workHoursConfig.getFileNameFormat());
             response.put("config", config);
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
 
         } catch (Exception e) {
             log.error("获取配置失败", e);
@@ -357,6 +791,8 @@ public class WorkHoursController {
             if (request.getFileNameFormat() != null && !request.getFileNameFormat().trim().isEmpty()) {
                 workHoursConfig.setFileNameFormat(request.getFileNameFormat());
             }
+            workHoursConfig.incrementVersion();
+            statisticsStreamService.publishAll();
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -376,27 +812,194 @@ public class WorkHoursController {
 
     /**
      * 获取指定月份的Excel数据
+     *
+     * @param fields     每日记录只返回的字段（逗号分隔，如 date,workHours），如果不传则返回全部字段
+     * @param format     每日记录的格式：rows（每天一个对象，默认）或 columnar（每个字段一个数组）
      */
     @GetMapping("/excel/data")
-    public ResponseEntity<Map<String, Object>> getExcelData(@RequestParam String yearMonth) {
-        try {
-            WorkHoursStatistics statistics = calculationService.calculateWorkHours(yearMonth);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("data", statistics.getDailyRecords());
-            response.put("yearMonth", yearMonth);
-            
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("获取Excel数据失败", e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "获取数据失败: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getExcelData(
+            @RequestParam String yearMonth,
+            @RequestParam(required = false) String employeeId,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) String format,
+            WebRequest webRequest) {
+        // 条件请求在容器线程上判断：未修改时直接返回 304，不占用耗时接口的线程池
+        if (isNotModified(() -> checkNotModified(webRequest,
+                calculationService.getStatisticsVersion(employeeId, yearMonth),
+                "excel-data", employeeId, yearMonth, DailyRecordEncoder.resolveFields(fields),
+                DailyRecordEncoder.isColumnar(format)))) {
+            return CompletableFuture.completedFuture(null);
         }
+
+        return requestExecutor.submit(() -> {
+            try {
+                boolean columnar = DailyRecordEncoder.isColumnar(format);
+                Set<String> recordFields = DailyRecordEncoder.resolveFields(fields);
+
+                // 先取版本再计算，之后的修改可通过 /changes?since=version 获取
+                long version = calculationService.getChangeVersion(employeeId, yearMonth);
+                WorkHoursStatistics statistics = calculationService.calculateWorkHours(employeeId, yearMonth);
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("data", columnar || recordFields != null
+                        ? DailyRecordEncoder.encode(statistics.getDailyRecords(), recordFields, columnar)
+                        : statistics.getDailyRecords());
+                response.put("yearMonth", yearMonth);
+                response.put("version", version);
+
+                return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+            } catch (Exception e) {
+                log.error("获取Excel数据失败", e);
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", false);
+                response.put("message", "获取数据失败: " + e.getMessage());
+                return ResponseEntity.status(500).body(response);
+            }
+        });
     }
     
+    /**
+     * 获取某个版本之后变化的每日记录与重新计算的月度汇总
+     *
+     * @param yearMonth  年月，格式：YYYY-MM
+     * @param employeeId 员工编号，如果不传则使用个人考勤文件
+     * @param since      客户端已有的版本（上次 /excel/data 或 /changes 返回的 version），不传时返回整月记录
+     */
+    @GetMapping("/changes")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getChanges(
+            @RequestParam String yearMonth,
+            @RequestParam(required = false) String employeeId,
+            @RequestParam(required = false) Long since) {
+        return requestExecutor.submit(() -> {
+            try {
+                AttendanceChanges changes = calculationService.getChanges(employeeId, yearMonth, since);
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("changes", changes);
+                return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+
+            } catch (Exception e) {
+                log.error("获取考勤变化失败", e);
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", false);
+                response.put("message", "获取考勤变化失败: " + e.getMessage());
+                return ResponseEntity.status(500).body(response);
+            }
+        });
+    }
+
+    /**
+     * 一次获取多个月份的工时统计与每日记录（各月份并行计算，每个月份只解析一次考勤文件）
+     *
+     * @param yearMonths 年月（逗号分隔），格式：YYYY-MM，最多 24 个月
+     * @param employeeId 员工编号，如果不传则使用个人考勤文件
+     * @param fields     需要返回的统计字段（逗号分隔，如 totalWorkHours,dailyRecords），如果不传则返回全部字段
+     * @return 各月份的统计结果（单个月份失败时 success 为 false 并给出原因）
+     */
+    @GetMapping("/view")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getMonthsView(
+            @RequestParam List<String> yearMonths,
+            @RequestParam(required = false) String employeeId,
+            @RequestParam(required = false) List<String> fields,
+            WebRequest webRequest) {
+        // 条件请求在容器线程上判断：未修改时直接返回 304，不占用耗时接口的线程池
+        if (isNotModified(() -> checkNotModified(webRequest,
+                workHoursViewService.getStatisticsVersion(employeeId, yearMonths),
+                "view", employeeId, fields))) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return requestExecutor.submit(() -> {
+            try {
+                long startTime = System.nanoTime();
+                List<MonthWorkHours> months = workHoursViewService.getMonths(employeeId, yearMonths, fields);
+                long failureCount = months.stream().filter(month -> !month.isSuccess()).count();
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("message", String.format("查询完成：%d 个月，失败 %d 个月", months.size(), failureCount));
+                response.put("months", months);
+                response.put("elapsedMillis", (System.nanoTime() - startTime) / 1_000_000);
+                return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+
+            } catch (Exception e) {
+                log.error("查询多月份工时失败", e);
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", false);
+                response.put("message", "查询多月份工时失败: " + e.getMessage());
+                return ResponseEntity.status(500).body(response);
+            }
+        });
+    }
+
+    /**
+     * 耗时接口的线程池与等待队列都已满：立即返回 503，并通过 Retry-After 告知客户端稍后重试
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, Object>> handleRejected(RejectedExecutionException e) {
+        log.warn("请求被拒绝: {}", e.getMessage());
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", "服务繁忙，请稍后重试");
+        return ResponseEntity.status(503)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(requestExecutor.getRetryAfterSeconds()))
+                .body(response);
+    }
+
+    /**
+     * 在容器线程上执行条件请求判断（见 {@link #checkNotModified}）
+     * 参数或数据版本有误时返回 false，由线程池中的处理返回与之前一致的错误信息
+     */
+    private boolean isNotModified(BooleanSupplier check) {
+        try {
+            return check.getAsBoolean();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 条件请求：由数据版本与请求的资源（接口名、参数）生成 ETag，与请求头 If-None-Match 一致时已设置 304 响应，
+     * 调用方直接返回 null，不再读取考勤文件和计算统计。数据版本为 null（如考勤文件不存在）时不做条件判断
+     */
+    private boolean checkNotModified(WebRequest webRequest, Object dataVersion, Object... resource) {
+        if (dataVersion == null) {
+            return false;
+        }
+        return webRequest.checkNotModified(etagOf(dataVersion, resource));
+    }
+
+    /**
+     * 由数据版本与请求的资源（接口名、参数）生成 ETag
+     */
+    private String etagOf(Object dataVersion, Object... resource) {
+        StringBuilder version = new StringBuilder(String.valueOf(dataVersion));
+        for (Object part : resource) {
+            version.append('|').append(part);
+        }
+        // 使用弱 ETag：同一结果压缩（gzip）与否 ETag 相同，Tomcat 也不会因强 ETag 而跳过响应压缩
+        return "W/\"" + DigestUtils.md5DigestAsHex(version.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * If-None-Match 是否包含指定 ETag（弱比较，与 {@link WebRequest#checkNotModified(String)} 一致）
+     */
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || (candidate.startsWith("W/") ? candidate.substring(2) : candidate).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * 重复字符串（兼容 Java 11 之前的版本）
      */
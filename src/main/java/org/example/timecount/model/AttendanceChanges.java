@@ -0,0 +1,54 @@
+package org.example.timecount.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 某个版本之后的考勤变化
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceChanges {
+
+    /**
+     * 年月（格式：YYYY-MM）
+     */
+    private String yearMonth;
+
+    /**
+     * 员工编号，个人考勤文件时为空
+     */
+    private String employeeId;
+
+    /**
+     * 客户端已有的版本
+     */
+    private Long since;
+
+    /**
+     * 月份的当前版本（下次请求时作为 since 传入）
+     */
+    private long version;
+
+    /**
+     * 是否为全部记录（客户端版本过旧、服务已重启或文件被外部修改时，需要用 records 替换本地数据）
+     */
+    private boolean full;
+
+    /**
+     * 变化的每日记录（full 为 true 时为整月记录）
+     */
+    private List<DailyRecord> records;
+
+    /**
+     * 重新计算的月度汇总（总工时、出勤天数、剩余工作日等，不含每日记录列表）
+     */
+    private Map<String, Object> summary;
+}
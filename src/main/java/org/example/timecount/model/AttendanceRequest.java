@@ -14,6 +14,11 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class AttendanceRequest {
     
+    /**
+     * 员工编号（可选，为空时写入个人考勤文件）
+     */
+    private String employeeId;
+    
     /**
      * 日期，格式：yyyy-MM-dd
      */
@@ -0,0 +1,36 @@
+package org.example.timecount.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量提交中单条考勤记录的处理结果
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceSubmitResult {
+    
+    /**
+     * 员工编号（个人考勤文件为空）
+     */
+    private String employeeId;
+    
+    /**
+     * 日期，格式：yyyy-MM-dd
+     */
+    private String date;
+    
+    /**
+     * 是否提交成功
+     */
+    private boolean success;
+    
+    /**
+     * 结果说明（失败时为失败原因）
+     */
+    private String message;
+}
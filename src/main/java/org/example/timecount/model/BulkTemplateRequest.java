@@ -0,0 +1,33 @@
+package org.example.timecount.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量生成考勤模板请求
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkTemplateRequest {
+    
+    /**
+     * 年份
+     */
+    private Integer year;
+    
+    /**
+     * 月份（1-12），为空时生成全年 12 个月
+     */
+    private List<Integer> months;
+    
+    /**
+     * 员工编号，为空时为数据目录下的全部员工生成（没有员工子目录时生成个人考勤文件）
+     */
+    private List<String> employeeIds;
+}
@@ -0,0 +1,66 @@
+package org.example.timecount.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 团队统计中单个员工的工时汇总（不含每日明细）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmployeeWorkHours {
+    
+    /**
+     * 员工编号
+     */
+    private String employeeId;
+    
+    /**
+     * 是否计算成功
+     */
+    private boolean success;
+    
+    /**
+     * 失败原因
+     */
+    private String message;
+    
+    /**
+     * 当月总工时
+     */
+    private double totalWorkHours;
+    
+    /**
+     * 出勤天数
+     */
+    private int attendanceDays;
+    
+    /**
+     * 出勤日平均工时
+     */
+    private double averageWorkHoursPerDay;
+    
+    /**
+     * 距离期望总工时还需要的工时
+     */
+    private double remainingHoursToTarget;
+    
+    /**
+     * 当月请假总时长（小时）
+     */
+    private double totalLeaveHours;
+    
+    /**
+     * 迟到天数
+     */
+    private int lateDays;
+    
+    /**
+     * 晚上九点后打卡次数
+     */
+    private int lateNightCheckInCount;
+}
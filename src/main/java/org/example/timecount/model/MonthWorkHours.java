@@ -0,0 +1,43 @@
+package org.example.timecount.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 多月份查询中单个月份的工时统计
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthWorkHours {
+
+    /**
+     * 年月（格式：YYYY-MM）
+     */
+    private String yearMonth;
+
+    /**
+     * 是否计算成功
+     */
+    private boolean success;
+
+    /**
+     * 失败原因（如考勤文件不存在）
+     */
+    private String message;
+
+    /**
+     * 月份的考勤变更版本（可作为 /changes 的 since 参数）
+     */
+    private long version;
+
+    /**
+     * 工时统计中请求的字段（字段名与 /calculate 返回的 statistics 相同）
+     */
+    private Map<String, Object> statistics;
+}
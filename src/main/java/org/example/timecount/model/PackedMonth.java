@@ -0,0 +1,252 @@
+package org.example.timecount.model;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+/**
+ * 紧凑的月度考勤数据
+ * 以“基准日期 + 并行基本类型数组”保存每行记录，时间统一为当天的分钟数（-1 表示未填写），
+ * 请假类型保存为枚举序号，工作日/节假日/跨天等标记保存为位标志。
+ * 只有在需要输出 JSON 时才转换为 {@link DailyRecord}
+ */
+public class PackedMonth {
+
+    /**
+     * 未填写的时间
+     */
+    public static final short NO_TIME = -1;
+
+    /**
+     * 工作日
+     */
+    public static final byte FLAG_WORKDAY = 1;
+
+    /**
+     * 法定节假日
+     */
+    public static final byte FLAG_HOLIDAY = 1 << 1;
+
+    /**
+     * 下班时间为次日（+1）
+     */
+    public static final byte FLAG_END_NEXT_DAY = 1 << 2;
+
+    private static final DailyRecord.LeaveType[] LEAVE_TYPES = DailyRecord.LeaveType.values();
+
+    /**
+     * 基准日期（纪元日）
+     */
+    private final long baseEpochDay;
+
+    private int size;
+
+    private short[] dayOffset;
+    private short[] startMinute;
+    private short[] endMinute;
+    private short[] leaveStartMinute;
+    private short[] leaveEndMinute;
+    private byte[] leaveType;
+    private byte[] flags;
+
+    /**
+     * 无法由分钟数还原的下班时间原始字符串（大多数行为 null，按需分配）
+     */
+    private String[] endTimeRaw;
+
+    /**
+     * 备注（按需分配）
+     */
+    private String[] remarks;
+
+    public PackedMonth(LocalDate baseDate, int initialCapacity) {
+        this.baseEpochDay = baseDate.toEpochDay();
+        int capacity = Math.max(1, initialCapacity);
+        dayOffset = new short[capacity];
+        startMinute = new short[capacity];
+        endMinute = new short[capacity];
+        leaveStartMinute = new short[capacity];
+        leaveEndMinute = new short[capacity];
+        leaveType = new byte[capacity];
+        flags = new byte[capacity];
+    }
+
+    private PackedMonth(PackedMonth source) {
+        this.baseEpochDay = source.baseEpochDay;
+        this.size = source.size;
+        this.dayOffset = source.dayOffset.clone();
+        this.startMinute = source.startMinute.clone();
+        this.endMinute = source.endMinute.clone();
+        this.leaveStartMinute = source.leaveStartMinute.clone();
+        this.leaveEndMinute = source.leaveEndMinute.clone();
+        this.leaveType = source.leaveType.clone();
+        this.flags = source.flags.clone();
+        this.endTimeRaw = source.endTimeRaw != null ? source.endTimeRaw.clone() : null;
+        this.remarks = source.remarks != null ? source.remarks.clone() : null;
+    }
+
+    /**
+     * 复制一份（修改副本不影响正在读取原数据的线程）
+     */
+    public PackedMonth copy() {
+        return new PackedMonth(this);
+    }
+
+    /**
+     * 追加一行记录（时间为当天的分钟数，未填写为 {@link #NO_TIME}）
+     *
+     * @return 新记录的下标
+     */
+    public int append(LocalDate date, int startMinute, int endMinute, String endTimeRaw,
+                      DailyRecord.LeaveType type, int leaveStartMinute, int leaveEndMinute,
+                      int flags, String remark) {
+        ensureCapacity(size + 1);
+        int index = size++;
+        set(index, date, startMinute, endMinute, endTimeRaw, type, leaveStartMinute, leaveEndMinute, flags, remark);
+        return index;
+    }
+
+    /**
+     * 覆盖指定下标的记录
+     */
+    public void set(int index, LocalDate date, int startMinute, int endMinute, String endTimeRaw,
+                    DailyRecord.LeaveType type, int leaveStartMinute, int leaveEndMinute,
+                    int flags, String remark) {
+        this.dayOffset[index] = (short) (date.toEpochDay() - baseEpochDay);
+        this.startMinute[index] = (short) startMinute;
+        this.endMinute[index] = (short) endMinute;
+        this.leaveStartMinute[index] = (short) leaveStartMinute;
+        this.leaveEndMinute[index] = (short) leaveEndMinute;
+        this.leaveType[index] = (byte) type.ordinal();
+        this.flags[index] = (byte) flags;
+
+        String canonical = formatEndTime(endMinute, (flags & FLAG_END_NEXT_DAY) != 0);
+        setText(index, endTimeRaw == null || endTimeRaw.equals(canonical) ? null : endTimeRaw, true);
+        setText(index, remark == null || remark.isEmpty() ? null : remark, false);
+    }
+
+    /**
+     * 查找指定日期的记录下标
+     *
+     * @return 不存在时返回 -1
+     */
+    public int indexOf(LocalDate date) {
+        long offset = date.toEpochDay() - baseEpochDay;
+        for (int i = 0; i < size; i++) {
+            if (dayOffset[i] == offset) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public LocalDate getDate(int index) {
+        return LocalDate.ofEpochDay(baseEpochDay + dayOffset[index]);
+    }
+
+    public int getStartMinute(int index) {
+        return startMinute[index];
+    }
+
+    public int getEndMinute(int index) {
+        return endMinute[index];
+    }
+
+    public int getLeaveStartMinute(int index) {
+        return leaveStartMinute[index];
+    }
+
+    public int getLeaveEndMinute(int index) {
+        return leaveEndMinute[index];
+    }
+
+    public DailyRecord.LeaveType getLeaveType(int index) {
+        return LEAVE_TYPES[leaveType[index]];
+    }
+
+    public boolean hasFlag(int index, int flag) {
+        return (flags[index] & flag) != 0;
+    }
+
+    /**
+     * 下班时间原始字符串（包含+1标记）
+     */
+    public String getEndTimeRaw(int index) {
+        if (endTimeRaw != null && endTimeRaw[index] != null) {
+            return endTimeRaw[index];
+        }
+        return formatEndTime(endMinute[index], hasFlag(index, FLAG_END_NEXT_DAY));
+    }
+
+    /**
+     * 备注，未填写时为空字符串
+     */
+    public String getRemark(int index) {
+        return remarks != null && remarks[index] != null ? remarks[index] : "";
+    }
+
+    /**
+     * 分钟数转换为时间，未填写时返回 null
+     */
+    public static LocalTime toLocalTime(int minute) {
+        return minute < 0 ? null : LocalTime.of(minute / 60, minute % 60);
+    }
+
+    /**
+     * 下班时间的规范字符串：HH:mm，次日追加 +1
+     */
+    private static String formatEndTime(int minute, boolean nextDay) {
+        if (minute < 0) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(7);
+        int hour = minute / 60;
+        int min = minute % 60;
+        if (hour < 10) sb.append('0');
+        sb.append(hour).append(':');
+        if (min < 10) sb.append('0');
+        sb.append(min);
+        if (nextDay) sb.append("+1");
+        return sb.toString();
+    }
+
+    private void setText(int index, String value, boolean endTime) {
+        String[] texts = endTime ? endTimeRaw : remarks;
+        if (texts == null) {
+            if (value == null) {
+                return;
+            }
+            texts = new String[dayOffset.length];
+            if (endTime) {
+                endTimeRaw = texts;
+            } else {
+                remarks = texts;
+            }
+        }
+        texts[index] = value;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= dayOffset.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, dayOffset.length * 2);
+        dayOffset = Arrays.copyOf(dayOffset, newCapacity);
+        startMinute = Arrays.copyOf(startMinute, newCapacity);
+        endMinute = Arrays.copyOf(endMinute, newCapacity);
+        leaveStartMinute = Arrays.copyOf(leaveStartMinute, newCapacity);
+        leaveEndMinute = Arrays.copyOf(leaveEndMinute, newCapacity);
+        leaveType = Arrays.copyOf(leaveType, newCapacity);
+        flags = Arrays.copyOf(flags, newCapacity);
+        if (endTimeRaw != null) {
+            endTimeRaw = Arrays.copyOf(endTimeRaw, newCapacity);
+        }
+        if (remarks != null) {
+            remarks = Arrays.copyOf(remarks, newCapacity);
+        }
+    }
+}
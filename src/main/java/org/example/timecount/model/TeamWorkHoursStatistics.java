@@ -0,0 +1,78 @@
+package org.example.timecount.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 团队工时统计
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TeamWorkHoursStatistics {
+    
+    /**
+     * 年月（格式：YYYY-MM）
+     */
+    private String yearMonth;
+    
+    /**
+     * 参与统计的员工数
+     */
+    private int employeeCount;
+    
+    /**
+     * 计算失败的员工数（如考勤文件不存在）
+     */
+    private int failureCount;
+    
+    /**
+     * 团队总工时
+     */
+    private double totalWorkHours;
+    
+    /**
+     * 人均工时（按计算成功的员工）
+     */
+    private double averageWorkHoursPerEmployee;
+    
+    /**
+     * 团队总出勤天数
+     */
+    private int totalAttendanceDays;
+    
+    /**
+     * 团队请假总时长（小时）
+     */
+    private double totalLeaveHours;
+    
+    /**
+     * 团队迟到总天数
+     */
+    private int totalLateDays;
+    
+    /**
+     * 团队晚上九点后打卡总次数
+     */
+    private int totalLateNightCheckInCount;
+    
+    /**
+     * 尚未达到期望总工时的员工数
+     */
+    private int belowTargetCount;
+    
+    /**
+     * 计算耗时（毫秒）
+     */
+    private long elapsedMillis;
+    
+    /**
+     * 每个员工的工时汇总
+     */
+    private List<EmployeeWorkHours> employees;
+}
@@ -0,0 +1,83 @@
+package org.example.timecount.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量生成模板任务进度
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TemplateGenerationJob {
+    
+    /**
+     * 任务编号
+     */
+    private String jobId;
+    
+    /**
+     * 任务状态：RUNNING（进行中）、COMPLETED（已完成，可能包含失败的文件）
+     */
+    private String status;
+    
+    /**
+     * 年份
+     */
+    private int year;
+    
+    /**
+     * 员工数
+     */
+    private int employeeCount;
+    
+    /**
+     * 需要生成的文件数（员工数 × 月份数）
+     */
+    private int totalFiles;
+    
+    /**
+     * 已处理的文件数（含失败）
+     */
+    private int processedFiles;
+    
+    /**
+     * 新建的文件数
+     */
+    private int createdFiles;
+    
+    /**
+     * 已存在、保留数据后补全的文件数
+     */
+    private int updatedFiles;
+    
+    /**
+     * 生成失败的文件数
+     */
+    private int failedFiles;
+    
+    /**
+     * 完成百分比
+     */
+    private double progressPercent;
+    
+    /**
+     * 已耗时（毫秒）
+     */
+    private long elapsedMillis;
+    
+    /**
+     * 吞吐量（文件/秒）
+     */
+    private double filesPerSecond;
+    
+    /**
+     * 失败原因（最多保留 100 条）
+     */
+    private List<String> failures;
+}
@@ -0,0 +1,195 @@
+package org.example.timecount.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 考勤变更版本
+ * 每个月份（考勤文件）有一个单调递增的版本号，每一行（日期）记录最后一次修改时的版本号，
+ * 由 {@link AttendanceService} 在提交生效时更新，客户端据此只获取某个版本之后变化的记录。
+ * 版本号全局递增，以服务启动时刻（毫秒）为起点，不做持久化：重启前的版本号小于重启后月份的起始版本，
+ * 客户端需要全部重新获取；大于当前版本的 since（如重启后系统时钟回拨）同样按全部变化处理。
+ * 限制：时钟回拨后重启，重启前的版本号可能恰好落在新的版本区间内而被当作本次运行的版本
+ */
+@Component
+public class AttendanceChangeLog {
+
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * 考勤文件 -> 变更记录
+     */
+    private final Map<File, MonthLog> months = new ConcurrentHashMap<>();
+
+    /**
+     * 记录提交生效的日期，月份版本递增
+     *
+     * @param file  考勤文件
+     * @param dates 修改的日期（yyyy-MM-dd）
+     * @return 修改后的月份版本
+     */
+    public long recordChanges(File file, Collection<String> dates) {
+        MonthLog month = month(file);
+        synchronized (month) {
+            long version = sequence.incrementAndGet();
+            for (String date : dates) {
+                month.rowVersions.put(date, version);
+            }
+            month.version = version;
+            month.writeCount++;
+            return version;
+        }
+    }
+
+    /**
+     * 记录本服务对文件的写入（如延迟写入模式下的批量写入），写入不改变数据，只用于区分外部修改
+     */
+    public void recordWrite(File file) {
+        MonthLog month = month(file);
+        synchronized (month) {
+            month.writeCount++;
+        }
+    }
+
+    /**
+     * 获取某个版本之后的变化
+     *
+     * @param file        考勤文件
+     * @param since       客户端已有的版本，为空时返回全部
+     * @param fileVersion 当前的文件版本（修改时间、大小、待写入提交），见 {@link #getVersion}
+     * @param ruleVersion 当前的计算规则版本（配置、节假日），见 {@link #getVersion}
+     * @return 变化的日期与当前版本
+     */
+    public Changes getChanges(File file, Long since, String fileVersion, String ruleVersion) {
+        MonthLog month = month(file);
+        synchronized (month) {
+            observe(month, fileVersion, ruleVersion);
+
+            if (since == null || since < month.baseVersion || since > month.version) {
+                return new Changes(month.version, null);
+            }
+            List<String> dates = new ArrayList<>();
+            month.rowVersions.forEach((date, version) -> {
+                if (version > since) {
+                    dates.add(date);
+                }
+            });
+            return new Changes(month.version, dates);
+        }
+    }
+
+    /**
+     * 获取月份的当前版本（返回给客户端的版本都经过这里或 {@link #getChanges}，同时记录当时的数据版本）
+     *
+     * @param file        考勤文件
+     * @param fileVersion 当前的文件版本（修改时间、大小、待写入提交），与上次记录时不同且期间本服务没有写入时，
+     *                    说明文件被外部修改，无法确定变化的行，之前的版本需要全部重新获取
+     * @param ruleVersion 当前的计算规则版本（配置、节假日），与上次记录时不同时每一行的计算结果都可能变化，
+     *                    无论期间是否有写入，之前的版本都需要全部重新获取
+     */
+    public long getVersion(File file, String fileVersion, String ruleVersion) {
+        MonthLog month = month(file);
+        synchronized (month) {
+            observe(month, fileVersion, ruleVersion);
+            return month.version;
+        }
+    }
+
+    /**
+     * 与上次记录的数据版本比较，无法按行确定变化时重置起始版本，并记录当前数据版本
+     */
+    private void observe(MonthLog month, String fileVersion, String ruleVersion) {
+        boolean rulesChanged = month.observedRuleVersion != null && !month.observedRuleVersion.equals(ruleVersion);
+        boolean modifiedExternally = month.observedFileVersion != null
+                && !month.observedFileVersion.equals(fileVersion)
+                && month.observedWriteCount == month.writeCount;
+        if (rulesChanged || modifiedExternally) {
+            long version = sequence.incrementAndGet();
+            month.baseVersion = version;
+            month.version = version;
+            month.rowVersions.clear();
+        }
+        month.observedFileVersion = fileVersion;
+        month.observedRuleVersion = ruleVersion;
+        month.observedWriteCount = month.writeCount;
+    }
+
+    private MonthLog month(File file) {
+        return months.computeIfAbsent(file.getAbsoluteFile(), f -> new MonthLog(sequence.incrementAndGet()));
+    }
+
+    /**
+     * 某个版本之后的变化
+     */
+    public static final class Changes {
+
+        private final long version;
+
+        private final List<String> dates;
+
+        Changes(long version, List<String> dates) {
+            this.version = version;
+            this.dates = dates;
+        }
+
+        /**
+         * 月份的当前版本
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * 是否需要全部重新获取（客户端版本过旧、来自重启前或数据被外部修改）
+         */
+        public boolean isFull() {
+            return dates == null;
+        }
+
+        /**
+         * 变化的日期，需要全部重新获取时为 null
+         */
+        public List<String> getDates() {
+            return dates;
+        }
+    }
+
+    private static final class MonthLog {
+
+        /**
+         * 可以按行计算变化的最早版本，更早的版本需要全部重新获取
+         */
+        long baseVersion;
+
+        long version;
+
+        final Map<String, Long> rowVersions = new HashMap<>();
+
+        /**
+         * 本服务对文件的修改次数
+         */
+        long writeCount;
+
+        /**
+         * 上次返回版本时的文件版本、计算规则版本与修改次数
+         */
+        String observedFileVersion;
+
+        String observedRuleVersion;
+
+        long observedWriteCount;
+
+        MonthLog(long version) {
+            this.baseVersion = version;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package org.example.timecount.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.example.timecount.config.WorkHoursConfig;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * 考勤文件存储
+ * 负责考勤文件路径解析（多员工时每位员工使用数据目录下的独立子目录）、按文件分段加锁，以及“写临时文件 + fsync + 原子重命名”的安全写入。
+ * 不同月份的文件落在不同的锁分段上可以并行读写，同一月份的写操作串行执行
+ */
+@Component
+@Slf4j
+public class AttendanceFileStore {
+
+    /**
+     * 员工编号格式（同时作为子目录名，禁止路径分隔符）
+     */
+    private static final Pattern EMPLOYEE_ID_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final WorkHoursConfig config;
+    private final WorkHoursMetrics metrics;
+
+    /**
+     * 分段读写锁
+     */
+    private final ReadWriteLock[] stripes;
+
+    public AttendanceFileStore(WorkHoursConfig config, WorkHoursMetrics metrics) {
+        this.config = config;
+        this.metrics = metrics;
+        int stripeCount = Math.max(1, config.getLockStripes());
+        this.stripes = new ReadWriteLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * 解析指定月份的考勤文件
+     *
+     * @param yearMonth 年月，格式：YYYY-MM
+     * @return 考勤文件（可能尚不存在）
+     */
+    public File resolveFile(String yearMonth) {
+        return resolveFile(null, yearMonth);
+    }
+
+    /**
+     * 解析指定员工、指定月份的考勤文件
+     *
+     * @param employeeId 员工编号，为空时使用数据目录下的个人考勤文件
+     * @param yearMonth  年月，格式：YYYY-MM
+     * @return 考勤文件（可能尚不存在）
+     */
+    public File resolveFile(String employeeId, String yearMonth) {
+        String fileName = config.getFileNameFormat().replace("{yearMonth}", yearMonth);
+        return new File(employeeDirectory(employeeId), fileName);
+    }
+
+    /**
+     * 获取员工的考勤文件目录（数据目录下以员工编号命名的子目录）
+     *
+     * @param employeeId 员工编号，为空时返回数据目录本身
+     */
+    public File employeeDirectory(String employeeId) {
+        File dataDir = new File(config.getDataDirectory());
+        if (employeeId == null || employeeId.trim().isEmpty()) {
+            return dataDir;
+        }
+        String id = employeeId.trim();
+        if (!EMPLOYEE_ID_PATTERN.matcher(id).matches()) {
+            throw new IllegalArgumentException("员工编号格式错误（仅支持字母、数字、下划线和短横线）: " + employeeId);
+        }
+        File dir = new File(dataDir, id);
+        if (isHolidayDirectory(dir)) {
+            throw new IllegalArgumentException("员工编号与节假日日历目录重名: " + employeeId);
+        }
+        return dir;
+    }
+
+    /**
+     * 获取节假日日历目录（相对路径时位于数据目录下）
+     */
+    public File holidayDirectory() {
+        File dir = new File(config.getHolidayDirectory());
+        return dir.isAbsolute() ? dir : new File(config.getDataDirectory(), config.getHolidayDirectory());
+    }
+
+    /**
+     * 列出数据目录下的全部员工编号
+     */
+    public List<String> listEmployees() {
+        File[] dirs = new File(config.getDataDirectory()).listFiles(File::isDirectory);
+        List<String> employees = new ArrayList<>();
+        if (dirs != null) {
+            for (File dir : dirs) {
+                if (EMPLOYEE_ID_PATTERN.matcher(dir.getName()).matches() && !isHolidayDirectory(dir)) {
+                    employees.add(dir.getName());
+                }
+            }
+        }
+        Collections.sort(employees);
+        return employees;
+    }
+
+    private boolean isHolidayDirectory(File dir) {
+        return dir.toPath().toAbsolutePath().normalize()
+                .equals(holidayDirectory().toPath().toAbsolutePath().normalize());
+    }
+
+    /**
+     * 获取文件对应的读写锁（同一文件始终返回同一把锁）
+     */
+    public ReadWriteLock getLock(File file) {
+        int hash = file.getAbsoluteFile().toPath().normalize().hashCode();
+        // 扰动高位，避免路径哈希低位分布不均
+        hash ^= (hash >>> 16);
+        return stripes[(hash & Integer.MAX_VALUE) % stripes.length];
+    }
+
+    /**
+     * 完整加载考勤工作簿（记录打开文件与构建工作簿的耗时）
+     */
+    public Workbook openWorkbook(File file) throws IOException {
+        long openStart = System.nanoTime();
+        try (FileInputStream fis = new FileInputStream(file)) {
+            metrics.recordFileOpen(openStart);
+            metrics.recordBytesRead(file.length());
+
+            long loadStart = System.nanoTime();
+            Workbook workbook = new XSSFWorkbook(fis);
+            metrics.recordWorkbookLoad(loadStart);
+            return workbook;
+        }
+    }
+
+    /**
+     * 原子写入文件
+     * 先写入同目录下的临时文件并强制刷盘，再通过原子重命名替换目标文件，
+     * 写入过程中崩溃不会截断原文件
+     *
+     * @param target 目标文件
+     * @param writer 内容写入逻辑
+     */
+    public void writeAtomically(File target, OutputWriter writer) throws IOException {
+        Path targetPath = target.getAbsoluteFile().toPath();
+        Path directory = targetPath.getParent();
+        Path tempPath = Files.createTempFile(directory, "." + target.getName() + ".", ".tmp");
+
+        long writeStart = System.nanoTime();
+        try {
+            try (FileOutputStream fos = new FileOutputStream(tempPath.toFile())) {
+                writer.write(fos);
+                fos.flush();
+                fos.getFD().sync();
+            }
+            long bytes = Files.size(tempPath);
+
+            try {
+                Files.move(tempPath, targetPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                log.warn("文件系统不支持原子重命名，改为普通替换: {}", targetPath);
+                Files.move(tempPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            syncDirectory(directory);
+            metrics.recordWorkbookWrite(writeStart);
+            metrics.recordBytesWritten(bytes);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    /**
+     * 刷新目录元数据，保证新建或重命名的文件在崩溃后依然可见（部分平台不支持，忽略即可）
+     * 考勤日志的新建与重写也使用该方法
+     */
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("目录刷盘不受支持: {}", directory);
+        }
+    }
+
+    /**
+     * 文件内容写入逻辑
+     */
+    @FunctionalInterface
+    public interface OutputWriter {
+        void write(OutputStream out) throws IOException;
+    }
+}
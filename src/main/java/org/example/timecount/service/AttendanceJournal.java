@@ -0,0 +1,180 @@
+package org.example.timecount.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.timecount.model.AttendanceRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 考勤提交日志（只追加）
+ * 每个考勤文件对应一个日志文件（attendance_yyyy-MM.xlsx.journal），每行一条提交：
+ * 8位十六进制 CRC32 校验值 + 制表符 + 提交内容的 JSON。
+ * 提交时只需追加一行并刷盘；Excel 文件由后台写入任务根据日志内容生成，
+ * 写入完成后日志只保留尚未写入的提交
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AttendanceJournal {
+
+    /**
+     * 日志文件后缀
+     */
+    public static final String SUFFIX = ".journal";
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 获取考勤文件对应的日志文件
+     */
+    public File journalFile(File file) {
+        return new File(file.getAbsoluteFile().getParentFile(), file.getName() + SUFFIX);
+    }
+
+    /**
+     * 获取日志文件对应的考勤文件
+     */
+    public File attendanceFile(File journalFile) {
+        String name = journalFile.getName();
+        return new File(journalFile.getAbsoluteFile().getParentFile(), name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * 追加提交记录并刷盘（多条记录合并为一次写入）
+     * 调用方需要保证同一日志文件的追加与重写不会并发执行
+     */
+    public void append(File file, List<AttendanceRequest> requests) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (AttendanceRequest request : requests) {
+            buffer.write(encode(request));
+        }
+
+        File journal = journalFile(file);
+        boolean created = !journal.exists();
+        try (FileChannel channel = FileChannel.open(journal.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+        // 新建的日志文件还需刷新目录，否则崩溃后目录项可能丢失，已确认的提交随之丢失
+        if (created) {
+            AttendanceFileStore.syncDirectory(journal.getParentFile().toPath());
+        }
+    }
+
+    /**
+     * 用仍未写入 Excel 的提交重写日志；没有剩余提交时删除日志文件
+     */
+    public void rewrite(File file, List<AttendanceRequest> remaining) throws IOException {
+        File journal = journalFile(file);
+        if (remaining.isEmpty()) {
+            Files.deleteIfExists(journal.toPath());
+            return;
+        }
+
+        File temp = new File(journal.getParentFile(), journal.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (AttendanceRequest request : remaining) {
+                ByteBuffer bytes = ByteBuffer.wrap(encode(request));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+            channel.force(false);
+        }
+        Files.move(temp.toPath(), journal.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        AttendanceFileStore.syncDirectory(journal.getParentFile().toPath());
+    }
+
+    /**
+     * 读取日志中的提交记录
+     * 校验失败的记录（通常是崩溃时写了一半的最后一行）及其后的内容会被忽略
+     */
+    public List<AttendanceRequest> read(File journalFile) throws IOException {
+        if (!journalFile.exists()) {
+            return Collections.emptyList();
+        }
+
+        List<AttendanceRequest> requests = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                AttendanceRequest request = decode(line);
+                if (request == null) {
+                    log.warn("考勤日志第 {} 行校验失败，忽略其后的内容: {}", lineNumber, journalFile.getName());
+                    break;
+                }
+                requests.add(request);
+            }
+        }
+        return requests;
+    }
+
+    /**
+     * 查找目录下的全部日志文件
+     */
+    public List<File> findJournals(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        List<File> journals = new ArrayList<>();
+        if (files != null) {
+            Collections.addAll(journals, files);
+        }
+        return journals;
+    }
+
+    private byte[] encode(AttendanceRequest request) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(request);
+        String checksum = String.format("%08x\t", checksum(json));
+
+        ByteArrayOutputStream line = new ByteArrayOutputStream(json.length + 10);
+        line.write(checksum.getBytes(StandardCharsets.US_ASCII));
+        line.write(json);
+        line.write('\n');
+        return line.toByteArray();
+    }
+
+    private AttendanceRequest decode(String line) {
+        int tab = line.indexOf('\t');
+        if (tab != 8) {
+            return null;
+        }
+        try {
+            long expected = Long.parseLong(line.substring(0, tab), 16);
+            byte[] json = line.substring(tab + 1).getBytes(StandardCharsets.UTF_8);
+            if (checksum(json) != expected) {
+                return null;
+            }
+            return objectMapper.readValue(json, AttendanceRequest.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,204 @@
+package org.example.timecount.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 考勤表日期行索引
+ * 模板中第 N 天位于第 N 行，优先按日期直接定位并校验；
+ * 布局不符时（手工插入/删除过行）按文件版本缓存一份“日期 -> 行号”映射，只扫描一次工作表。
+ * 默认的 PATCH 更新方式同样使用这份映射（见 {@link SheetXmlPatcher}）：没有映射时由补丁流式扫描建立，
+ * 补丁无法处理的工作表（如日期列为数值格式）在完整加载工作簿时建立，之后的提交按行号直接改写
+ */
+@Component
+@Slf4j
+public class AttendanceRowIndex {
+
+    /**
+     * 考勤文件 -> 行号映射
+     */
+    private final Map<File, IndexedFile> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * 查找指定日期所在的行
+     *
+     * @param file  考勤文件（用于缓存映射）
+     * @param sheet 已加载的工作表
+     * @param date  日期，格式：yyyy-MM-dd
+     * @return 对应的行，不存在时返回 null
+     */
+    public Row findRow(File file, Sheet sheet, String date) {
+        // 1. 按模板布局直接定位：第 N 天位于第 N 行
+        Row row = directRow(sheet, date);
+        if (row != null) {
+            return row;
+        }
+
+        // 2. 使用当前文件版本的缓存映射
+        String version = version(file);
+        IndexedFile indexed = indexes.get(file.getAbsoluteFile());
+        if (indexed != null && indexed.version.equals(version)) {
+            row = verifiedRow(sheet, indexed.rows.get(date), date);
+            if (row != null) {
+                return row;
+            }
+        }
+
+        // 3. 扫描工作表重建映射
+        indexed = buildIndex(sheet, version);
+        indexes.put(file.getAbsoluteFile(), indexed);
+        log.debug("考勤表布局与模板不一致，已重建日期行索引: {}（{} 行）", file.getName(), indexed.rows.size());
+        return verifiedRow(sheet, indexed.rows.get(date), date);
+    }
+
+    /**
+     * 获取考勤表中的全部日期（已缓存当前文件版本的映射时）
+     *
+     * @param file 考勤文件
+     * @return 日期集合（格式：yyyy-MM-dd），未缓存或文件已被修改时返回 null
+     */
+    public Set<String> dates(File file) {
+        Map<String, Integer> rows = rows(file);
+        return rows != null ? rows.keySet() : null;
+    }
+
+    /**
+     * 获取“日期 -> 行号”映射（已缓存当前文件版本的映射时）
+     *
+     * @param file 考勤文件
+     * @return 日期（格式：yyyy-MM-dd）-> 行号（从 0 开始），未缓存或文件已被修改时返回 null
+     */
+    public Map<String, Integer> rows(File file) {
+        IndexedFile indexed = indexes.get(file.getAbsoluteFile());
+        return indexed != null && indexed.version.equals(version(file))
+                ? Collections.unmodifiableMap(indexed.rows) : null;
+    }
+
+    /**
+     * 缓存在其他地方（如流式改写工作表 XML 时）扫描得到的完整映射
+     *
+     * @param file    考勤文件
+     * @param version 扫描时的文件版本
+     * @param rows    日期（格式：yyyy-MM-dd）-> 行号（从 0 开始，重复日期取第一行）
+     */
+    public void putRows(File file, String version, Map<String, Integer> rows) {
+        indexes.put(file.getAbsoluteFile(), new IndexedFile(version, rows));
+    }
+
+    /**
+     * 扫描工作表建立映射并缓存，返回全部日期
+     *
+     * @param file  考勤文件（用于缓存映射）
+     * @param sheet 已加载的工作表
+     * @return 日期集合（格式：yyyy-MM-dd）
+     */
+    public Set<String> indexDates(File file, Sheet sheet) {
+        IndexedFile indexed = buildIndex(sheet, version(file));
+        indexes.put(file.getAbsoluteFile(), indexed);
+        return indexed.rows.keySet();
+    }
+
+    /**
+     * 文件被本服务重写后调用：行布局未变，把映射迁移到新的文件版本
+     *
+     * @param file            考勤文件
+     * @param previousVersion 写入前的文件版本
+     */
+    public void onFileWritten(File file, String previousVersion) {
+        IndexedFile indexed = indexes.get(file.getAbsoluteFile());
+        if (indexed != null && indexed.version.equals(previousVersion)) {
+            indexes.put(file.getAbsoluteFile(), new IndexedFile(version(file), indexed.rows));
+        }
+    }
+
+    /**
+     * 文件版本：修改时间 + 文件大小
+     */
+    public String version(File file) {
+        return file.lastModified() + "-" + file.length();
+    }
+
+    private Row directRow(Sheet sheet, String date) {
+        try {
+            int day = LocalDate.parse(date, DateTimeFormatter.ofPattern("yyyy-MM-dd")).getDayOfMonth();
+            return verifiedRow(sheet, day, date);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private Row verifiedRow(Sheet sheet, Integer rowIndex, String date) {
+        if (rowIndex == null) {
+            return null;
+        }
+        Row row = sheet.getRow(rowIndex);
+        return row != null && date.equals(readDate(row)) ? row : null;
+    }
+
+    private IndexedFile buildIndex(Sheet sheet, String version) {
+        Map<String, Integer> rows = new HashMap<>();
+        for (int i = 1; i <= sheet.getLastRowNum(); i++) {
+            Row row = sheet.getRow(i);
+            if (row == null) continue;
+
+            String date = readDate(row);
+            if (!date.isEmpty()) {
+                // 与逐行查找保持一致：重复日期取第一行
+                rows.putIfAbsent(date, i);
+            }
+        }
+        return new IndexedFile(version, rows);
+    }
+
+    /**
+     * 读取行的日期列
+     */
+    private String readDate(Row row) {
+        Cell cell = row.getCell(0);
+        if (cell == null) {
+            return "";
+        }
+
+        switch (cell.getCellType()) {
+            case STRING:
+                return cell.getStringCellValue().trim();
+            case NUMERIC:
+                if (DateUtil.isCellDateFormatted(cell)) {
+                    try {
+                        return cell.getLocalDateTimeCellValue().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+                    } catch (Exception e) {
+                        return "";
+                    }
+                } else {
+                    return String.valueOf((int) cell.getNumericCellValue());
+                }
+            default:
+                return "";
+        }
+    }
+
+    private static class IndexedFile {
+
+        private final String version;
+
+        private final Map<String, Integer> rows;
+
+        IndexedFile(String version, Map<String, Integer> rows) {
+            this.version = version;
+            this.rows = rows;
+        }
+    }
+}
@@ -3,18 +3,33 @@ package org.example.timecount.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.example.timecount.config.WorkHoursConfig;
 import org.example.timecount.model.AttendanceRequest;
+import org.example.timecount.model.AttendanceSubmitResult;
 import org.example.timecount.model.DailyRecord;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiConsumer;
 
 @Service
 @RequiredArgsConstructor
@@ -22,6 +37,41 @@ import java.time.format.DateTimeFormatter;
 public class AttendanceService {
 
     private final WorkHoursConfig config;
+    private final AttendanceFileStore fileStore;
+    private final AttendanceWriteBuffer writeBuffer;
+    private final AttendanceRowIndex rowIndex;
+    private final AttendanceJournal journal;
+    private final AttendanceChangeLog changeLog;
+    private final WorkHoursMetrics metrics;
+
+    /**
+     * 考勤文件 -> 日志追加/重写互斥对象
+     */
+    private final Map<File, Object> journalMonitors = new ConcurrentHashMap<>();
+
+    /**
+     * 提交已写入 Excel、但日志尚未重写成功的考勤文件（下次定时写入时重试重写日志）
+     */
+    private final Set<File> staleJournals = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 考勤提交生效后的通知对象（参数：员工编号、年月）
+     */
+    private final List<BiConsumer<String, String>> changeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 直接写入模式下考勤文件被改写后的通知对象
+     */
+    private final List<WriteListener> writeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 延迟写入的后台执行器
+     */
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "attendance-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * 提交考勤记录（打卡或请假）
@@ -32,140 +82,564 @@ public class AttendanceService {
         LocalDate date = LocalDate.parse(request.getDate(), DateTimeFormatter.ofPattern("yyyy-MM-dd"));
         String yearMonth = date.format(DateTimeFormatter.ofPattern("yyyy-MM"));
         
-        String fileName = String.format("attendance_%s.xlsx", yearMonth);
-        File file = new File(config.getDataDirectory(), fileName);
+        File file = fileStore.resolveFile(request.getEmployeeId(), yearMonth);
 
         if (!file.exists()) {
             throw new IOException("考勤文件不存在，请先生成模板: " + file.getAbsolutePath());
         }
 
-        try (FileInputStream fis = new FileInputStream(file);
-             Workbook workbook = new XSSFWorkbook(fis)) {
-
-            Sheet sheet = workbook.getSheetAt(0);
-            
-            // 查找对应日期的行
-            Row targetRow = null;
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null) continue;
-
-                Cell dateCell = row.getCell(0);
-                if (dateCell != null) {
-                    String cellDate = getCellValueAsString(dateCell);
-                    if (request.getDate().equals(cellDate)) {
-                        targetRow = row;
-                        break;
-                    }
-                }
+        // 延迟写入/日志模式：暂存到写缓冲区后立即返回，由后台批量写入文件
+        if (isBuffered()) {
+            // 接收前校验日期，与直接写入模式返回相同的错误
+            if (!sheetDates(file).contains(request.getDate())) {
+                throw new IOException("提交考勤记录失败: 未找到日期为 " + request.getDate() + " 的记录");
             }
-
-            if (targetRow == null) {
-                throw new IOException("未找到日期为 " + request.getDate() + " 的记录");
+            int pending = enqueue(file, Collections.singletonList(request));
+            log.info("考勤记录已接收，等待写入文件: {}（待写入 {} 条）", request.getDate(), pending);
+            onChanged(file, Collections.singletonList(request));
+            if (pending >= config.getFlushThreshold()) {
+                flushExecutor.execute(this::flushAll);
             }
+            return;
+        }
+
+        String error = applyRequests(file, Collections.singletonList(request)).get(0);
+        if (error != null) {
+            throw new IOException("提交考勤记录失败: " + error);
+        }
+        onChanged(file, Collections.singletonList(request));
+        log.info("考勤记录提交成功: {}", request.getDate());
+    }
+
+    /**
+     * 注册考勤提交生效后的通知（直接写入模式下在文件写入后，延迟写入/日志模式下在提交被接收后通知）
+     *
+     * @param listener 参数为员工编号与年月
+     */
+    public void addChangeListener(BiConsumer<String, String> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * 注册考勤文件被改写后的通知（仅直接写入模式；在持有该文件写锁时调用，通知中不应执行耗时操作）
+     */
+    public void addWriteListener(WriteListener listener) {
+        writeListeners.add(listener);
+    }
 
-            // 更新上班时间（第3列）
-            Cell startTimeCell = targetRow.getCell(2);
-            if (startTimeCell == null) {
-                startTimeCell = targetRow.createCell(2);
+    /**
+     * 批量提交考勤记录
+     * 按考勤文件（员工 + 月份）分组，每个文件只打开、修改、写入一次
+     *
+     * @param requests 考勤请求（可跨多个月份、多位员工）
+     * @return 与请求一一对应的处理结果
+     */
+    public List<AttendanceSubmitResult> submitAttendanceBatch(List<AttendanceRequest> requests) {
+        AttendanceSubmitResult[] results = new AttendanceSubmitResult[requests.size()];
+
+        // 按考勤文件分组（保持提交顺序），记录每条请求在原列表中的位置
+        Map<File, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            AttendanceRequest request = requests.get(i);
+            try {
+                LocalDate date = LocalDate.parse(request.getDate(), DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+                String yearMonth = date.format(DateTimeFormatter.ofPattern("yyyy-MM"));
+                File file = fileStore.resolveFile(request.getEmployeeId(), yearMonth);
+                groups.computeIfAbsent(file, f -> new ArrayList<>()).add(i);
+            } catch (IllegalArgumentException e) {
+                results[i] = failure(request, e.getMessage());
+            } catch (Exception e) {
+                results[i] = failure(request, "日期格式错误: " + request.getDate());
             }
-            if (request.getStartTime() != null && !request.getStartTime().trim().isEmpty()) {
-                startTimeCell.setCellValue(request.getStartTime());
-            } else {
-                startTimeCell.setBlank(); // 清空单元格
+        }
+
+        for (Map.Entry<File, List<Integer>> group : groups.entrySet()) {
+            File file = group.getKey();
+            List<AttendanceRequest> monthRequests = new ArrayList<>();
+            for (int index : group.getValue()) {
+                monthRequests.add(requests.get(index));
             }
 
-            // 更新下班时间（第4列）
-            Cell endTimeCell = targetRow.getCell(3);
-            if (endTimeCell == null) {
-                endTimeCell = targetRow.createCell(3);
+            if (!file.exists()) {
+                for (int index : group.getValue()) {
+                    results[index] = failure(requests.get(index), "考勤文件不存在，请先生成模板: " + file.getAbsolutePath());
+                }
+                continue;
             }
-            if (request.getEndTime() != null && !request.getEndTime().trim().isEmpty()) {
-                endTimeCell.setCellValue(request.getEndTime());
-            } else {
-                endTimeCell.setBlank(); // 清空单元格
+
+            // 延迟写入/日志模式：日期存在的提交进入写缓冲区
+            if (isBuffered()) {
+                Set<String> dates;
+                try {
+                    dates = sheetDates(file);
+                } catch (IOException e) {
+                    for (int index : group.getValue()) {
+                        results[index] = failure(requests.get(index), e.getMessage());
+                    }
+                    continue;
+                }
+                List<Integer> accepted = new ArrayList<>();
+                List<AttendanceRequest> acceptedRequests = new ArrayList<>();
+                for (int index : group.getValue()) {
+                    if (dates.contains(requests.get(index).getDate())) {
+                        accepted.add(index);
+                        acceptedRequests.add(requests.get(index));
+                    } else {
+                        results[index] = failure(requests.get(index),
+                                "未找到日期为 " + requests.get(index).getDate() + " 的记录");
+                    }
+                }
+                if (accepted.isEmpty()) {
+                    continue;
+                }
+                int pending;
+                try {
+                    pending = enqueue(file, acceptedRequests);
+                } catch (IOException e) {
+                    log.error("写入考勤日志失败: {}", file.getName(), e);
+                    for (int index : accepted) {
+                        results[index] = failure(requests.get(index), "写入考勤日志失败: " + e.getMessage());
+                    }
+                    continue;
+                }
+                for (int index : accepted) {
+                    results[index] = success(requests.get(index));
+                }
+                onChanged(file, acceptedRequests);
+                if (pending >= config.getFlushThreshold()) {
+                    flushExecutor.execute(this::flushAll);
+                }
+                continue;
             }
 
-            // 更新请假类型（第5列）
-            Cell leaveTypeCell = targetRow.getCell(4);
-            if (leaveTypeCell == null) {
-                leaveTypeCell = targetRow.createCell(4);
+            try {
+                List<String> errors = applyRequests(file, monthRequests);
+                List<AttendanceRequest> applied = new ArrayList<>();
+                for (int i = 0; i < errors.size(); i++) {
+                    int index = group.getValue().get(i);
+                    results[index] = errors.get(i) == null
+                            ? success(requests.get(index))
+                            : failure(requests.get(index), errors.get(i));
+                    if (errors.get(i) == null) {
+                        applied.add(requests.get(index));
+                    }
+                }
+                if (!applied.isEmpty()) {
+                    onChanged(file, applied);
+                }
+            } catch (IOException e) {
+                for (int index : group.getValue()) {
+                    results[index] = failure(requests.get(index), e.getMessage());
+                }
             }
-            if (request.getLeaveType() != null && !request.getLeaveType().trim().isEmpty()) {
-                leaveTypeCell.setCellValue(request.getLeaveType());
-            } else {
-                leaveTypeCell.setCellValue("正常"); // 默认为正常
+        }
+
+        log.info("批量提交考勤记录: {} 条，涉及 {} 个考勤文件", requests.size(), groups.size());
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 提交生效后更新变更版本并通知（同一批提交属于同一员工、同一月份）
+     */
+    private void onChanged(File file, List<AttendanceRequest> applied) {
+        List<String> dates = new ArrayList<>(applied.size());
+        for (AttendanceRequest request : applied) {
+            dates.add(request.getDate());
+        }
+        changeLog.recordChanges(file, dates);
+
+        AttendanceRequest first = applied.get(0);
+        for (BiConsumer<String, String> listener : changeListeners) {
+            try {
+                listener.accept(first.getEmployeeId(), first.getDate().substring(0, 7));
+            } catch (Exception e) {
+                log.warn("考勤变更通知失败: {}", e.getMessage());
             }
+        }
+    }
+
+    private AttendanceSubmitResult success(AttendanceRequest request) {
+        return AttendanceSubmitResult.builder()
+                .employeeId(request.getEmployeeId())
+                .date(request.getDate())
+                .success(true)
+                .message("考勤记录提交成功")
+                .build();
+    }
 
-            // 更新请假开始时间（第6列）
-            Cell leaveStartCell = targetRow.getCell(5);
-            if (leaveStartCell == null) {
-                leaveStartCell = targetRow.createCell(5);
+    private AttendanceSubmitResult failure(AttendanceRequest request, String message) {
+        return AttendanceSubmitResult.builder()
+                .employeeId(request.getEmployeeId())
+                .date(request.getDate())
+                .success(false)
+                .message(message)
+                .build();
+    }
+
+    /**
+     * 将写缓冲区中的全部提交写入文件（同一文件的提交合并为一次写入）
+     */
+    public void flushAll() {
+        Set<File> files = new LinkedHashSet<>(writeBuffer.getDirtyFiles());
+        files.addAll(staleJournals);
+        for (File file : files) {
+            flush(file);
+        }
+    }
+
+    /**
+     * 将指定文件的待写入提交写入文件
+     */
+    private void flush(File file) {
+        List<AttendanceRequest> pending = writeBuffer.getPending(file);
+        if (!pending.isEmpty()) {
+            List<String> errors;
+            try {
+                errors = applyRequests(file, pending);
+            } catch (IOException e) {
+                // 保留在缓冲区中，下次定时写入时重试
+                log.error("批量写入考勤记录失败，将稍后重试: {}", file.getName(), e);
+                return;
             }
-            if (request.getLeaveStartTime() != null && !request.getLeaveStartTime().trim().isEmpty()) {
-                leaveStartCell.setCellValue(request.getLeaveStartTime());
-            } else {
-                leaveStartCell.setBlank(); // 清空单元格
+            for (int i = 0; i < errors.size(); i++) {
+                if (errors.get(i) != null) {
+                    log.error("考勤记录写入失败，已丢弃: {} - {}", pending.get(i).getDate(), errors.get(i));
+                }
             }
-
-            // 更新请假结束时间（第6列）
-            Cell leaveEndCell = targetRow.getCell(6);
-            if (leaveEndCell == null) {
-                leaveEndCell = targetRow.createCell(6);
+            writeBuffer.remove(file, pending);
+            changeLog.recordWrite(file);
+            log.info("已批量写入 {} 条考勤记录: {}", pending.size(), file.getName());
+            if (config.getWriteMode() == WorkHoursConfig.WriteMode.JOURNAL) {
+                staleJournals.add(file);
             }
-            if (request.getLeaveEndTime() != null && !request.getLeaveEndTime().trim().isEmpty()) {
-                leaveEndCell.setCellValue(request.getLeaveEndTime());
-            } else {
-                leaveEndCell.setBlank(); // 清空单元格
+        }
+        if (staleJournals.contains(file)) {
+            rewriteJournal(file);
+        }
+    }
+
+    /**
+     * 重写考勤日志，只保留尚未写入 Excel 的提交
+     * 失败时提交已在 Excel 中，日志仍保留这些提交：下次定时写入时重试，在此之前重启会重新回放并写入相同的值
+     */
+    private void rewriteJournal(File file) {
+        try {
+            synchronized (journalMonitor(file)) {
+                journal.rewrite(file, writeBuffer.getPending(file));
             }
+            staleJournals.remove(file);
+        } catch (IOException e) {
+            log.error("考勤记录已写入文件，但重写考勤日志失败，将在下次定时写入时重试: {}", file.getName(), e);
+        }
+    }
+
+    /**
+     * 考勤表中的全部日期（延迟写入/日志模式下接收提交前校验用，按文件版本缓存）
+     */
+    private Set<String> sheetDates(File file) throws IOException {
+        Set<String> dates = rowIndex.dates(file);
+        if (dates != null) {
+            return dates;
+        }
+        Lock readLock = fileStore.getLock(file).readLock();
+        readLock.lock();
+        try (Workbook workbook = fileStore.openWorkbook(file)) {
+            return rowIndex.indexDates(file, workbook.getSheetAt(0));
+        } catch (RuntimeException e) {
+            throw new IOException("读取考勤文件失败: " + e.getMessage(), e);
+        } finally {
+            readLock.unlock();
+        }
+    }
 
-            // 更新备注（第8列）
-            Cell remarkCell = targetRow.getCell(7);
-            if (remarkCell == null) {
-                remarkCell = targetRow.createCell(7);
+    /**
+     * 是否为先缓存、后台写入的模式
+     */
+    private boolean isBuffered() {
+        return config.getWriteMode() == WorkHoursConfig.WriteMode.WRITE_BEHIND
+                || config.getWriteMode() == WorkHoursConfig.WriteMode.JOURNAL;
+    }
+
+    /**
+     * 将提交加入写缓冲区（日志模式下先追加写入日志并刷盘）
+     *
+     * @return 加入后全部待写入的提交数
+     */
+    private int enqueue(File file, List<AttendanceRequest> requests) throws IOException {
+        // 日志追加与缓冲区更新作为整体执行，保证日志重写时与缓冲区内容一致
+        synchronized (journalMonitor(file)) {
+            if (config.getWriteMode() == WorkHoursConfig.WriteMode.JOURNAL) {
+                journal.append(file, requests);
             }
-            if (request.getRemark() != null && !request.getRemark().trim().isEmpty()) {
-                remarkCell.setCellValue(request.getRemark());
-            } else {
-                remarkCell.setBlank(); // 清空单元格
+            int pending = 0;
+            for (AttendanceRequest request : requests) {
+                pending = writeBuffer.add(file, request);
             }
+            return pending;
+        }
+    }
+
+    private Object journalMonitor(File file) {
+        return journalMonitors.computeIfAbsent(file.getAbsoluteFile(), f -> new Object());
+    }
 
-            // 保存文件
-            try (FileOutputStream fos = new FileOutputStream(file)) {
-                workbook.write(fos);
+    /**
+     * 启动时回放考勤日志：把上次未写入 Excel 的提交恢复到写缓冲区
+     */
+    private void replayJournals() {
+        List<File> journalFiles = journal.findJournals(fileStore.employeeDirectory(null));
+        for (String employeeId : fileStore.listEmployees()) {
+            journalFiles.addAll(journal.findJournals(fileStore.employeeDirectory(employeeId)));
+        }
+
+        for (File journalFile : journalFiles) {
+            File file = journal.attendanceFile(journalFile);
+            try {
+                List<AttendanceRequest> requests = journal.read(journalFile);
+                synchronized (journalMonitor(file)) {
+                    for (AttendanceRequest request : requests) {
+                        writeBuffer.add(file, request);
+                    }
+                    // 去掉校验失败的残缺记录
+                    journal.rewrite(file, writeBuffer.getPending(file));
+                }
+                log.info("已回放考勤日志 {} 条: {}", requests.size(), journalFile.getName());
+            } catch (IOException e) {
+                log.error("回放考勤日志失败: {}", journalFile.getName(), e);
             }
+        }
+    }
+
+    @PostConstruct
+    public void startFlushScheduler() {
+        if (config.getWriteMode() == WorkHoursConfig.WriteMode.JOURNAL) {
+            replayJournals();
+            flushExecutor.execute(this::flushAll);
+        }
+        if (isBuffered()) {
+            long interval = Math.max(100, config.getFlushIntervalMillis());
+            flushExecutor.scheduleWithFixedDelay(this::flushAll, interval, interval, TimeUnit.MILLISECONDS);
+            log.info("考勤记录延迟写入已启用，写入间隔 {} 毫秒", interval);
+        }
+    }
 
-            log.info("考勤记录提交成功: {}", request.getDate());
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 关闭前写入剩余的提交
+        flushAll();
+    }
+
+    /**
+     * 在一次打开-修改-写入中应用多条考勤提交
+     *
+     * @param file     考勤文件
+     * @param requests 考勤提交
+     * @return 与提交一一对应的错误信息，成功的提交为 null
+     */
+    private List<String> applyRequests(File file, List<AttendanceRequest> requests) throws IOException {
+        // 同一月份的读-改-写串行执行
+        Lock writeLock = fileStore.getLock(file).writeLock();
+        writeLock.lock();
+        try {
+            String previousVersion = rowIndex.version(file);
+            List<String> errors = null;
+            boolean patchFailed = false;
+            if (config.getUpdateMode() == WorkHoursConfig.UpdateMode.PATCH) {
+                errors = patchSheet(file, requests);
+                // 无法直接改写工作表 XML（如有日期找不到），改为完整加载工作簿处理
+                if (errors == null) {
+                    patchFailed = true;
+                    metrics.recordPatchFallback();
+                    log.info("无法直接改写工作表 XML，改为完整加载工作簿: {}（{} 条提交）", file.getName(), requests.size());
+                }
+            }
+            if (errors == null) {
+                errors = rewriteWorkbook(file, requests, patchFailed);
+            }
+            if (!isBuffered()) {
+                notifyWritten(file, previousVersion, requests, errors);
+            }
+            return errors;
 
         } catch (Exception e) {
             log.error("提交考勤记录失败", e);
             throw new IOException("提交考勤记录失败: " + e.getMessage(), e);
+        } finally {
+            writeLock.unlock();
         }
     }
 
     /**
-     * 获取单元格值为字符串
+     * 通知已写入文件的提交（持有写锁，通知对象看到的文件与写入结果一致）
      */
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) {
-            return "";
+    private void notifyWritten(File file, String previousVersion, List<AttendanceRequest> requests,
+                               List<String> errors) {
+        List<AttendanceRequest> applied = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            if (errors.get(i) == null) {
+                applied.add(requests.get(i));
+            }
+        }
+        if (applied.isEmpty()) {
+            return;
         }
+        for (WriteListener listener : writeListeners) {
+            try {
+                listener.onWritten(file, previousVersion, applied);
+            } catch (Exception e) {
+                log.warn("考勤文件写入通知失败: {}", e.getMessage());
+            }
+        }
+    }
 
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue().trim();
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    try {
-                        return cell.getLocalDateTimeCellValue().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-                    } catch (Exception e) {
-                        return "";
-                    }
-                } else {
-                    return String.valueOf((int) cell.getNumericCellValue());
+    /**
+     * 只改写工作表 XML 中的目标行，其余条目原样复制
+     *
+     * @return 与提交一一对应的错误信息（全部成功）；无法按此方式处理时返回 null，文件保持不变
+     */
+    private List<String> patchSheet(File file, List<AttendanceRequest> requests) throws IOException {
+        String version = rowIndex.version(file);
+        try (SheetXmlPatcher patcher = SheetXmlPatcher.open(file)) {
+            boolean patched = patcher.patch(requests, rowIndex.rows(file));
+            if (patcher.getScannedRows() != null) {
+                // 没有映射时由本次扫描建立，之后的提交只处理目标行
+                rowIndex.putRows(file, version, patcher.getScannedRows());
+            }
+            if (!patched) {
+                return null;
+            }
+            // 保存文件（写临时文件后原子替换）
+            fileStore.writeAtomically(file, patcher::write);
+        }
+        rowIndex.onFileWritten(file, version);
+        return new ArrayList<>(Collections.nCopies(requests.size(), (String) null));
+    }
+
+    /**
+     * 完整加载工作簿，修改后重新写出
+     *
+     * @param indexRows 是否建立“日期 -> 行号”映射（补丁无法定位时建立，之后的提交可以直接改写工作表 XML）
+     */
+    private List<String> rewriteWorkbook(File file, List<AttendanceRequest> requests, boolean indexRows)
+            throws IOException {
+        try (Workbook workbook = fileStore.openWorkbook(file)) {
+
+            String version = rowIndex.version(file);
+            Sheet sheet = workbook.getSheetAt(0);
+            if (indexRows && rowIndex.rows(file) == null) {
+                rowIndex.indexDates(file, sheet);
+            }
+            List<String> errors = new ArrayList<>(requests.size());
+            boolean modified = false;
+
+            for (AttendanceRequest request : requests) {
+                // 查找对应日期的行
+                Row targetRow = rowIndex.findRow(file, sheet, request.getDate());
+                if (targetRow == null) {
+                    errors.add("未找到日期为 " + request.getDate() + " 的记录");
+                    continue;
                 }
-            default:
-                return "";
+                updateRow(targetRow, request);
+                errors.add(null);
+                modified = true;
+            }
+
+            if (modified) {
+                // 保存文件（写临时文件后原子替换）
+                fileStore.writeAtomically(file, workbook::write);
+                rowIndex.onFileWritten(file, version);
+            }
+            return errors;
+        }
+    }
+
+    /**
+     * 将考勤提交写入目标行
+     */
+    private void updateRow(Row targetRow, AttendanceRequest request) {
+        // 更新上班时间（第3列）
+        Cell startTimeCell = targetRow.getCell(2);
+        if (startTimeCell == null) {
+            startTimeCell = targetRow.createCell(2);
         }
+        if (request.getStartTime() != null && !request.getStartTime().trim().isEmpty()) {
+            startTimeCell.setCellValue(request.getStartTime());
+        } else {
+            startTimeCell.setBlank(); // 清空单元格
+        }
+
+        // 更新下班时间（第4列）
+        Cell endTimeCell = targetRow.getCell(3);
+        if (endTimeCell == null) {
+            endTimeCell = targetRow.createCell(3);
+        }
+        if (request.getEndTime() != null && !request.getEndTime().trim().isEmpty()) {
+            endTimeCell.setCellValue(request.getEndTime());
+        } else {
+            endTimeCell.setBlank(); // 清空单元格
+        }
+
+        // 更新请假类型（第5列）
+        Cell leaveTypeCell = targetRow.getCell(4);
+        if (leaveTypeCell == null) {
+            leaveTypeCell = targetRow.createCell(4);
+        }
+        if (request.getLeaveType() != null && !request.getLeaveType().trim().isEmpty()) {
+            leaveTypeCell.setCellValue(request.getLeaveType());
+        } else {
+            leaveTypeCell.setCellValue("正常"); // 默认为正常
+        }
+
+        // 更新请假开始时间（第6列）
+        Cell leaveStartCell = targetRow.getCell(5);
+        if (leaveStartCell == null) {
+            leaveStartCell = targetRow.createCell(5);
+        }
+        if (request.getLeaveStartTime() != null && !request.getLeaveStartTime().trim().isEmpty()) {
+            leaveStartCell.setCellValue(request.getLeaveStartTime());
+        } else {
+            leaveStartCell.setBlank(); // 清空单元格
+        }
+
+        // 更新请假结束时间（第6列）
+        Cell leaveEndCell = targetRow.getCell(6);
+        if (leaveEndCell == null) {
+            leaveEndCell = targetRow.createCell(6);
+        }
+        if (request.getLeaveEndTime() != null && !request.getLeaveEndTime().trim().isEmpty()) {
+            leaveEndCell.setCellValue(request.getLeaveEndTime());
+        } else {
+            leaveEndCell.setBlank(); // 清空单元格
+        }
+
+        // 更新备注（第8列）
+        Cell remarkCell = targetRow.getCell(7);
+        if (remarkCell == null) {
+            remarkCell = targetRow.createCell(7);
+        }
+        if (request.getRemark() != null && !request.getRemark().trim().isEmpty()) {
+            remarkCell.setCellValue(request.getRemark());
+        } else {
+            remarkCell.setBlank(); // 清空单元格
+        }
+    }
+
+    /**
+     * 考勤文件被改写后的通知
+     */
+    public interface WriteListener {
+
+        /**
+         * @param file            考勤文件
+         * @param previousVersion 写入前的文件版本（修改时间 + 文件大小）
+         * @param applied         已写入的提交（按提交顺序）
+         */
+        void onWritten(File file, String previousVersion, List<AttendanceRequest> applied);
     }
 }
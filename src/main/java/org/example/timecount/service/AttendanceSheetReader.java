@@ -0,0 +1,343 @@
+package org.example.timecount.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.example.timecount.config.WorkHoursConfig;
+import org.example.timecount.model.AttendanceRequest;
+import org.springframework.stereotype.Component;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * 考勤表读取器
+ * 逐行读取第一个工作表（跳过表头），把前 {@link #COLUMN_COUNT} 列的单元格值转换为字符串交给回调处理。
+ * 默认使用 XSSF 事件模型（SAX）流式解析，不构建单元格对象；
+ * 可通过 {@link WorkHoursConfig#getReadMode()} 切换回完整加载工作簿的 DOM 方式
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AttendanceSheetReader {
+
+    /**
+     * 考勤表列数：日期、星期、上班时间、下班时间、请假类型、请假开始时间、请假结束时间、备注
+     */
+    public static final int COLUMN_COUNT = 8;
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("H:mm");
+
+    private final WorkHoursConfig config;
+    private final AttendanceFileStore fileStore;
+    private final WorkHoursMetrics metrics;
+
+    /**
+     * 行数据回调
+     */
+    public interface RowHandler {
+
+        /**
+         * 处理一行数据
+         *
+         * @param rowIndex 行号（从0开始，表头为第0行）
+         * @param cells    单元格字符串值，长度为 {@link #COLUMN_COUNT}，空单元格为空字符串；
+         *                 数组会在下一行复用，回调中不要持有它
+         */
+        void handleRow(int rowIndex, String[] cells);
+    }
+
+    /**
+     * 读取考勤文件的数据行
+     *
+     * @param file    考勤文件
+     * @param handler 行数据回调
+     */
+    public void readRows(File file, RowHandler handler) throws IOException {
+        if (config.getReadMode() == WorkHoursConfig.ReadMode.DOM) {
+            readWithDom(file, handler);
+        } else {
+            readWithSax(file, handler);
+        }
+    }
+
+    /**
+     * 构造考勤提交写入文件后对应行的单元格值（与 {@link AttendanceService} 的写入规则一致）
+     *
+     * @param request 考勤提交
+     * @return 单元格字符串值，星期列留空
+     */
+    public static String[] toCells(AttendanceRequest request) {
+        String[] cells = new String[COLUMN_COUNT];
+        cells[0] = trimToEmpty(request.getDate());
+        cells[1] = "";
+        cells[2] = trimToEmpty(request.getStartTime());
+        cells[3] = trimToEmpty(request.getEndTime());
+        cells[4] = request.getLeaveType() != null && !request.getLeaveType().trim().isEmpty()
+                ? request.getLeaveType().trim() : "正常";
+        cells[5] = trimToEmpty(request.getLeaveStartTime());
+        cells[6] = trimToEmpty(request.getLeaveEndTime());
+        cells[7] = trimToEmpty(request.getRemark());
+        return cells;
+    }
+
+    private static String trimToEmpty(String value) {
+        return value == null ? "" : value.trim();
+    }
+
+    /**
+     * 使用 XSSF 事件模型流式读取
+     */
+    private void readWithSax(File file, RowHandler handler) throws IOException {
+        long openStart = System.nanoTime();
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            metrics.recordFileOpen(openStart);
+            metrics.recordBytesRead(file.length());
+
+            long loadStart = System.nanoTime();
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+            metrics.recordWorkbookLoad(loadStart);
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader xmlReader = XMLHelper.newXMLReader();
+                xmlReader.setContentHandler(new SheetHandler(reader, sharedStrings, handler));
+                xmlReader.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("读取考勤文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 使用 POI DOM 模型完整加载工作簿读取
+     */
+    private void readWithDom(File file, RowHandler handler) throws IOException {
+        try (Workbook workbook = fileStore.openWorkbook(file)) {
+
+            Sheet sheet = workbook.getSheetAt(0);
+            String[] cells = new String[COLUMN_COUNT];
+
+            // 跳过表头，从第二行开始读取
+            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
+                Row row = sheet.getRow(i);
+                if (row == null) continue;
+
+                for (int col = 0; col < COLUMN_COUNT; col++) {
+                    cells[col] = getCellValueAsString(row.getCell(col));
+                }
+                handler.handleRow(i, cells);
+            }
+        }
+    }
+
+    /**
+     * 获取单元格值为字符串
+     */
+    private String getCellValueAsString(Cell cell) {
+        if (cell == null) {
+            return "";
+        }
+
+        switch (cell.getCellType()) {
+            case STRING:
+                return cell.getStringCellValue().trim();
+            case NUMERIC:
+                if (DateUtil.isCellDateFormatted(cell)) {
+                    // 检查是否为时间格式
+                    try {
+                        LocalTime time = cell.getLocalDateTimeCellValue().toLocalTime();
+                        return time.format(TIME_FORMATTER);
+                    } catch (Exception e1) {
+                        // 如果不是时间，尝试解析为日期
+                        try {
+                            return cell.getLocalDateTimeCellValue().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+                        } catch (Exception e2) {
+                            log.warn("日期格式解析失败: {}", e2.getMessage());
+                            return "";
+                        }
+                    }
+                } else {
+                    return String.valueOf((int) cell.getNumericCellValue());
+                }
+            case BOOLEAN:
+                return String.valueOf(cell.getBooleanCellValue());
+            case FORMULA:
+                return cell.getCellFormula();
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * 工作表 SAX 处理器
+     * 只关注 row / c / v / f / t 元素，单元格值转换规则与 DOM 方式保持一致
+     */
+    private static class SheetHandler extends DefaultHandler {
+
+        private final XSSFReader reader;
+        private final ReadOnlySharedStringsTable sharedStrings;
+        private final RowHandler handler;
+
+        /**
+         * 样式表只在遇到带样式的数值单元格时才加载
+         */
+        private StylesTable styles;
+
+        private final String[] cells = new String[COLUMN_COUNT];
+        private final StringBuilder value = new StringBuilder();
+        private final StringBuilder formula = new StringBuilder();
+
+        private int rowIndex = -1;
+        private int nextColumn;
+        private int column;
+        private String cellType;
+        private String cellStyle;
+        private boolean inValue;
+        private boolean inFormula;
+        private boolean inInlineText;
+
+        SheetHandler(XSSFReader reader, ReadOnlySharedStringsTable sharedStrings, RowHandler handler) {
+            this.reader = reader;
+            this.sharedStrings = sharedStrings;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    String r = attributes.getValue("r");
+                    rowIndex = r != null ? Integer.parseInt(r) - 1 : rowIndex + 1;
+                    nextColumn = 0;
+                    Arrays.fill(cells, "");
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    column = ref != null ? new CellReference(ref).getCol() : nextColumn;
+                    nextColumn = column + 1;
+                    cellType = attributes.getValue("t");
+                    cellStyle = attributes.getValue("s");
+                    value.setLength(0);
+                    formula.setLength(0);
+                    break;
+                case "v":
+                    inValue = true;
+                    break;
+                case "f":
+                    inFormula = true;
+                    break;
+                case "t":
+                    // 内联字符串 <is><t>...</t></is>
+                    inInlineText = "inlineStr".equals(cellType);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "v":
+                    inValue = false;
+                    break;
+                case "f":
+                    inFormula = false;
+                    break;
+                case "t":
+                    inInlineText = false;
+                    break;
+                case "c":
+                    if (rowIndex > 0 && column < COLUMN_COUNT) {
+                        cells[column] = formatCell();
+                    }
+                    break;
+                case "row":
+                    // 跳过表头
+                    if (rowIndex > 0) {
+                        handler.handleRow(rowIndex, cells);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue || inInlineText) {
+                value.append(ch, start, length);
+            } else if (inFormula) {
+                formula.append(ch, start, length);
+            }
+        }
+
+        private String formatCell() throws SAXException {
+            if (formula.length() > 0) {
+                return formula.toString();
+            }
+            if (value.length() == 0) {
+                return "";
+            }
+            if (cellType == null || "n".equals(cellType)) {
+                return formatNumber(Double.parseDouble(value.toString()));
+            }
+            switch (cellType) {
+                case "s":
+                    int index = Integer.parseInt(value.toString());
+                    return sharedStrings.getItemAt(index).getString().trim();
+                case "inlineStr":
+                case "str":
+                    return value.toString().trim();
+                case "b":
+                    return String.valueOf("1".equals(value.toString()));
+                default:
+                    return "";
+            }
+        }
+
+        private String formatNumber(double number) throws SAXException {
+            if (cellStyle != null && DateUtil.isValidExcelDate(number) && isDateStyle(Integer.parseInt(cellStyle))) {
+                return DateUtil.getLocalDateTime(number).toLocalTime().format(TIME_FORMATTER);
+            }
+            return String.valueOf((int) number);
+        }
+
+        private boolean isDateStyle(int styleIndex) throws SAXException {
+            if (styles == null) {
+                try {
+                    styles = reader.getStylesTable();
+                } catch (IOException | OpenXML4JException e) {
+                    throw new SAXException("读取样式表失败: " + e.getMessage(), e);
+                }
+            }
+            XSSFCellStyle style = styles.getStyleAt(styleIndex);
+            return style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+        }
+    }
+}
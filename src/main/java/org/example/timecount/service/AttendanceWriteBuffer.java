@@ -0,0 +1,132 @@
+package org.example.timecount.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.timecount.model.AttendanceRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 考勤提交写缓冲区（延迟写入模式）
+ * 按考勤文件暂存尚未写入 Excel 的提交，同一天的多次提交只保留最后一次；
+ * 读取统计时需要叠加这里的待写入记录
+ */
+@Component
+public class AttendanceWriteBuffer implements MeterBinder {
+
+    /**
+     * 考勤文件 -> (日期 -> 待写入的提交)
+     */
+    private final Map<File, PendingMonth> months = new ConcurrentHashMap<>();
+
+    /**
+     * 全部待写入的提交数
+     */
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    /**
+     * 添加一条待写入的提交
+     *
+     * @return 添加后全部待写入的提交数
+     */
+    public int add(File file, AttendanceRequest request) {
+        PendingMonth month = months.computeIfAbsent(file.getAbsoluteFile(), f -> new PendingMonth());
+        synchronized (month) {
+            if (month.requests.put(request.getDate(), request) == null) {
+                pendingCount.incrementAndGet();
+            }
+            month.version.incrementAndGet();
+        }
+        return pendingCount.get();
+    }
+
+    /**
+     * 获取指定文件待写入的提交快照（按提交顺序）
+     */
+    public List<AttendanceRequest> getPending(File file) {
+        PendingMonth month = months.get(file.getAbsoluteFile());
+        if (month == null) {
+            return Collections.emptyList();
+        }
+        synchronized (month) {
+            return new ArrayList<>(month.requests.values());
+        }
+    }
+
+    /**
+     * 获取指定文件待写入数据的版本号（每次变更后递增，用于缓存失效）
+     */
+    public long getVersion(File file) {
+        PendingMonth month = months.get(file.getAbsoluteFile());
+        return month == null ? 0 : month.version.get();
+    }
+
+    /**
+     * 获取存在待写入提交的文件
+     */
+    public Collection<File> getDirtyFiles() {
+        List<File> files = new ArrayList<>();
+        months.forEach((file, month) -> {
+            synchronized (month) {
+                if (!month.requests.isEmpty()) {
+                    files.add(file);
+                }
+            }
+        });
+        return files;
+    }
+
+    /**
+     * 移除已写入文件的提交
+     * 只移除仍是同一对象的记录，写入期间被再次提交覆盖的记录会保留到下一次写入
+     */
+    public void remove(File file, Collection<AttendanceRequest> written) {
+        PendingMonth month = months.get(file.getAbsoluteFile());
+        if (month == null) {
+            return;
+        }
+        synchronized (month) {
+            for (AttendanceRequest request : written) {
+                if (month.requests.remove(request.getDate(), request)) {
+                    pendingCount.decrementAndGet();
+                }
+            }
+            month.version.incrementAndGet();
+        }
+    }
+
+    /**
+     * 全部待写入的提交数
+     */
+    public int size() {
+        return pendingCount.get();
+    }
+
+    /**
+     * 注册待写入提交数指标
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("workhours.write.buffer.pending", pendingCount, AtomicInteger::get)
+                .description("尚未写入考勤文件的提交数")
+                .register(registry);
+    }
+
+    private static class PendingMonth {
+
+        private final LinkedHashMap<String, AttendanceRequest> requests = new LinkedHashMap<>();
+
+        private final AtomicLong version = new AtomicLong();
+    }
+}
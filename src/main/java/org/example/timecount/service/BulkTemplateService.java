@@ -0,0 +1,286 @@
+package org.example.timecount.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.timecount.config.WorkHoursConfig;
+import org.example.timecount.model.BulkTemplateRequest;
+import org.example.timecount.model.TemplateGenerationJob;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量生成考勤模板
+ * 按“员工 × 月份”拆分为独立的文件任务，在固定线程数的线程池上并行生成（线程数由
+ * {@link WorkHoursConfig#getTemplateParallelism()} 控制）。任务异步执行，通过任务编号查询进度与吞吐量。
+ * 同时执行的任务数有上限，超出时拒绝提交（{@link RejectedExecutionException}），等待队列因此有界
+ */
+@Service
+@Slf4j
+public class BulkTemplateService {
+
+    /**
+     * 单个任务最多生成的文件数
+     */
+    private static final int MAX_FILES_PER_JOB = 50_000;
+
+    /**
+     * 同时执行（未完成）的任务数上限
+     */
+    private static final int MAX_RUNNING_JOBS = 4;
+
+    /**
+     * 保留最近的任务数（更早的任务不再可查询）
+     */
+    private static final int MAX_RETAINED_JOBS = 20;
+
+    /**
+     * 每个任务最多保留的失败原因条数
+     */
+    private static final int MAX_FAILURES = 100;
+
+    private final ExcelTemplateService templateService;
+    private final AttendanceFileStore fileStore;
+
+    /**
+     * 模板生成线程池
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * 正在执行的任务数
+     */
+    private final AtomicInteger runningJobs = new AtomicInteger();
+
+    /**
+     * 任务编号 -> 任务（按提交顺序，超出保留数量时淘汰最早的任务）
+     */
+    private final Map<String, Job> jobs = Collections.synchronizedMap(new LinkedHashMap<String, Job>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+            return size() > MAX_RETAINED_JOBS;
+        }
+    });
+
+    public BulkTemplateService(WorkHoursConfig config, ExcelTemplateService templateService,
+                               AttendanceFileStore fileStore) {
+        this.templateService = templateService;
+        this.fileStore = fileStore;
+        int threads = Math.max(1, config.getTemplateParallelism());
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 同时执行的任务数有上限，队列最多容纳这些任务的全部文件
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(MAX_RUNNING_JOBS * MAX_FILES_PER_JOB),
+                r -> {
+                    Thread thread = new Thread(r, "template-bulk-" + threadIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * 提交批量生成任务（立即返回，后台生成）
+     *
+     * @param request 年份、月份与员工编号
+     * @return 任务初始进度
+     * @throws RejectedExecutionException 正在执行的任务数已达上限
+     */
+    public TemplateGenerationJob submit(BulkTemplateRequest request) {
+        if (request.getYear() == null || request.getYear() < 1970 || request.getYear() > 9999) {
+            throw new IllegalArgumentException("年份错误: " + request.getYear());
+        }
+        int year = request.getYear();
+        List<Integer> months = resolveMonths(request.getMonths());
+        List<String> employees = resolveEmployees(request.getEmployeeIds());
+        for (String employeeId : employees) {
+            // 提前校验员工编号，避免非法路径进入后台任务
+            fileStore.employeeDirectory(employeeId);
+        }
+        if ((long) employees.size() * months.size() > MAX_FILES_PER_JOB) {
+            throw new IllegalArgumentException("单次最多生成 " + MAX_FILES_PER_JOB + " 个文件");
+        }
+
+        if (runningJobs.incrementAndGet() > MAX_RUNNING_JOBS) {
+            runningJobs.decrementAndGet();
+            throw new RejectedExecutionException("正在执行的批量生成任务已达上限（" + MAX_RUNNING_JOBS + " 个），请稍后重试");
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), year, employees.size(), employees.size() * months.size());
+        jobs.put(job.id, job);
+        log.info("批量生成模板任务已提交: {}，{} 年 {} 个月，员工 {} 人，共 {} 个文件",
+                job.id, year, months.size(), employees.size(), job.total);
+
+        int queued = 0;
+        try {
+            for (String employeeId : employees) {
+                for (int month : months) {
+                    String yearMonth = YearMonth.of(year, month).toString();
+                    executor.execute(() -> generate(job, employeeId, yearMonth));
+                    queued++;
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            // 线程池已关闭：未能加入队列的文件记为失败，任务照常结束
+            int skipped = job.total - queued;
+            job.failed.addAndGet(skipped);
+            job.addFailure("服务正在关闭，" + skipped + " 个文件未生成");
+            log.warn("批量生成模板任务 {} 有 {} 个文件未能加入队列: {}", job.id, skipped, e.getMessage());
+            processed(job, skipped);
+        }
+        return job.snapshot();
+    }
+
+    /**
+     * 查询任务进度
+     *
+     * @return 任务进度，任务不存在（或已被淘汰）时返回 null
+     */
+    public TemplateGenerationJob getJob(String jobId) {
+        Job job = jobs.get(jobId);
+        return job != null ? job.snapshot() : null;
+    }
+
+    /**
+     * 生成单个文件并更新任务进度
+     */
+    private void generate(Job job, String employeeId, String yearMonth) {
+        try {
+            File file = fileStore.resolveFile(employeeId, yearMonth);
+            boolean existed = file.exists();
+            templateService.generateTemplate(employeeId, yearMonth);
+            (existed ? job.updated : job.created).incrementAndGet();
+        } catch (Exception e) {
+            job.failed.incrementAndGet();
+            job.addFailure((employeeId != null ? employeeId + " " : "") + yearMonth + ": " + e.getMessage());
+            log.warn("批量生成模板失败: {} {} - {}", employeeId != null ? employeeId : "", yearMonth, e.getMessage());
+        } finally {
+            processed(job, 1);
+        }
+    }
+
+    /**
+     * 记录已处理的文件数，全部处理完时结束任务
+     */
+    private void processed(Job job, int count) {
+        if (job.processed.addAndGet(count) == job.total) {
+            job.finish();
+            runningJobs.decrementAndGet();
+            TemplateGenerationJob result = job.snapshot();
+            log.info("批量生成模板任务完成: {}，新建 {} 个，补全 {} 个，失败 {} 个，耗时 {} 毫秒（{} 个文件/秒）",
+                    job.id, result.getCreatedFiles(), result.getUpdatedFiles(), result.getFailedFiles(),
+                    result.getElapsedMillis(), result.getFilesPerSecond());
+        }
+    }
+
+    private List<Integer> resolveMonths(List<Integer> months) {
+        if (months == null || months.isEmpty()) {
+            List<Integer> all = new ArrayList<>();
+            for (int month = 1; month <= 12; month++) {
+                all.add(month);
+            }
+            return all;
+        }
+        Set<Integer> result = new LinkedHashSet<>();
+        for (Integer month : months) {
+            if (month == null || month < 1 || month > 12) {
+                throw new IllegalArgumentException("月份错误: " + month);
+            }
+            result.add(month);
+        }
+        return new ArrayList<>(result);
+    }
+
+    private List<String> resolveEmployees(List<String> employeeIds) {
+        Set<String> employees = new LinkedHashSet<>();
+        if (employeeIds == null || employeeIds.isEmpty()) {
+            employees.addAll(fileStore.listEmployees());
+        } else {
+            // 去除空白与重复的员工编号，保持请求顺序
+            for (String employeeId : employeeIds) {
+                if (employeeId != null && !employeeId.trim().isEmpty()) {
+                    employees.add(employeeId.trim());
+                }
+            }
+        }
+        if (employees.isEmpty()) {
+            // 没有员工子目录时生成个人考勤文件
+            return Collections.singletonList(null);
+        }
+        return new ArrayList<>(employees);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 任务执行状态（计数器由各文件任务并发更新）
+     */
+    private static final class Job {
+        final String id;
+        final int year;
+        final int employeeCount;
+        final int total;
+        final long startNanos = System.nanoTime();
+        final AtomicInteger processed = new AtomicInteger();
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger updated = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final List<String> failures = new ArrayList<>();
+        volatile long finishNanos;
+
+        Job(String id, int year, int employeeCount, int total) {
+            this.id = id;
+            this.year = year;
+            this.employeeCount = employeeCount;
+            this.total = total;
+        }
+
+        synchronized void addFailure(String failure) {
+            if (failures.size() < MAX_FAILURES) {
+                failures.add(failure);
+            }
+        }
+
+        void finish() {
+            finishNanos = System.nanoTime();
+        }
+
+        synchronized TemplateGenerationJob snapshot() {
+            boolean finished = finishNanos != 0;
+            long elapsedNanos = (finished ? finishNanos : System.nanoTime()) - startNanos;
+            int processedFiles = processed.get();
+            return TemplateGenerationJob.builder()
+                    .jobId(id)
+                    .status(finished ? "COMPLETED" : "RUNNING")
+                    .year(year)
+                    .employeeCount(employeeCount)
+                    .totalFiles(total)
+                    .processedFiles(processedFiles)
+                    .createdFiles(created.get())
+                    .updatedFiles(updated.get())
+                    .failedFiles(failed.get())
+                    .progressPercent(Math.round(processedFiles * 10000.0 / total) / 100.0)
+                    .elapsedMillis(elapsedNanos / 1_000_000)
+                    .filesPerSecond(elapsedNanos > 0
+                            ? Math.round(processedFiles * 1e9 / elapsedNanos * 100.0) / 100.0 : 0.0)
+                    .failures(new ArrayList<>(failures))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.example.timecount.service;
+
+import org.example.timecount.model.DailyRecord;
+import org.example.timecount.model.WorkHoursStatistics;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 每日记录的输出编码
+ * 行格式（rows）：每天一个对象，与直接序列化 {@link DailyRecord} 相同，可只保留请求的字段；
+ * 列格式（columnar）：每个字段一个数组，日期为当月的第几天，时间为当天的分钟数（跨天下班时加 1440），
+ * 请假与迟到记录为每日记录数组中的下标，不再重复输出整条记录
+ */
+public final class DailyRecordEncoder {
+
+    public static final String FORMAT_ROWS = "rows";
+
+    public static final String FORMAT_COLUMNAR = "columnar";
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    /**
+     * 行格式的字段（名称与 DailyRecord 的 JSON 序列化结果一致）
+     */
+    private static final Map<String, Function<DailyRecord, Object>> ROW_FIELDS = new LinkedHashMap<>();
+
+    /**
+     * 列格式的字段（日期、时间换算为整数）
+     */
+    private static final Map<String, Function<DailyRecord, Object>> COLUMN_FIELDS = new LinkedHashMap<>();
+
+    static {
+        ROW_FIELDS.put("date", DailyRecord::getDate);
+        ROW_FIELDS.put("dayOfWeek", DailyRecord::getDayOfWeek);
+        ROW_FIELDS.put("startTime", DailyRecord::getStartTime);
+        ROW_FIELDS.put("endTime", DailyRecord::getEndTime);
+        ROW_FIELDS.put("endTimeRaw", DailyRecord::getEndTimeRaw);
+        ROW_FIELDS.put("workHours", DailyRecord::getWorkHours);
+        ROW_FIELDS.put("leaveType", DailyRecord::getLeaveType);
+        ROW_FIELDS.put("leaveStartTime", DailyRecord::getLeaveStartTime);
+        ROW_FIELDS.put("leaveEndTime", DailyRecord::getLeaveEndTime);
+        ROW_FIELDS.put("leaveHours", DailyRecord::getLeaveHours);
+        ROW_FIELDS.put("remark", DailyRecord::getRemark);
+        ROW_FIELDS.put("workday", DailyRecord::isWorkday);
+        ROW_FIELDS.put("leave", DailyRecord::isLeave);
+        ROW_FIELDS.put("holiday", DailyRecord::isHoliday);
+
+        COLUMN_FIELDS.putAll(ROW_FIELDS);
+        COLUMN_FIELDS.put("date", record -> record.getDate() == null ? null : record.getDate().getDayOfMonth());
+        COLUMN_FIELDS.put("startTime", record -> toMinute(record.getStartTime(), false));
+        COLUMN_FIELDS.put("endTime", record -> toMinute(record.getEndTime(),
+                WorkHoursEngine.isNextDay(record.getEndTimeRaw())));
+        COLUMN_FIELDS.put("leaveStartTime", record -> toMinute(record.getLeaveStartTime(), false));
+        COLUMN_FIELDS.put("leaveEndTime", record -> toMinute(record.getLeaveEndTime(), false));
+    }
+
+    private DailyRecordEncoder() {
+    }
+
+    /**
+     * 校验输出格式
+     *
+     * @param format rows（默认）或 columnar
+     * @return 是否为列格式
+     */
+    public static boolean isColumnar(String format) {
+        if (format == null || format.trim().isEmpty() || FORMAT_ROWS.equalsIgnoreCase(format.trim())) {
+            return false;
+        }
+        if (FORMAT_COLUMNAR.equalsIgnoreCase(format.trim())) {
+            return true;
+        }
+        throw new IllegalArgumentException("不支持的输出格式: " + format + "（可选 rows、columnar）");
+    }
+
+    /**
+     * 校验并去重请求的字段
+     *
+     * @return 请求的字段，未指定时返回 null（表示全部字段）
+     */
+    public static Set<String> resolveFields(List<String> fields) {
+        Set<String> projection = new LinkedHashSet<>();
+        if (fields != null) {
+            for (String field : fields) {
+                if (field == null || field.trim().isEmpty()) continue;
+                if (!ROW_FIELDS.containsKey(field.trim())) {
+                    throw new IllegalArgumentException("不支持的每日记录字段: " + field.trim());
+                }
+                projection.add(field.trim());
+            }
+        }
+        return projection.isEmpty() ? null : projection;
+    }
+
+    /**
+     * 编码每日记录
+     *
+     * @param fields 输出的字段，为 null 时输出全部字段
+     * @return 行格式为对象列表，列格式为字段名到数组的映射（另含记录数 count）
+     */
+    public static Object encode(List<DailyRecord> records, Set<String> fields, boolean columnar) {
+        return columnar ? toColumns(records, fields) : toRows(records, fields);
+    }
+
+    /**
+     * 行格式：每天一个只含请求字段的对象
+     */
+    public static List<Map<String, Object>> toRows(List<DailyRecord> records, Set<String> fields) {
+        fields = fields == null ? ROW_FIELDS.keySet() : fields;
+        List<Map<String, Object>> rows = new ArrayList<>(records.size());
+        for (DailyRecord record : records) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                row.put(field, ROW_FIELDS.get(field).apply(record));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * 列格式：每个字段一个数组，下标对应同一天
+     */
+    public static Map<String, Object> toColumns(List<DailyRecord> records, Set<String> fields) {
+        fields = fields == null ? COLUMN_FIELDS.keySet() : fields;
+        Map<String, Object> columns = new LinkedHashMap<>();
+        columns.put("count", records.size());
+        for (String field : fields) {
+            Function<DailyRecord, Object> accessor = COLUMN_FIELDS.get(field);
+            List<Object> values = new ArrayList<>(records.size());
+            for (DailyRecord record : records) {
+                values.add(accessor.apply(record));
+            }
+            columns.put(field, values);
+        }
+        return columns;
+    }
+
+    /**
+     * 编码工时统计：汇总字段原样输出，每日记录按请求的字段与格式编码；
+     * 列格式下请假与迟到记录改为每日记录中的下标（leaveIndexes、lateIndexes）
+     */
+    public static Map<String, Object> encodeStatistics(WorkHoursStatistics statistics, Set<String> fields,
+                                                       boolean columnar) {
+        Map<String, Object> encoded = new LinkedHashMap<>();
+        encoded.put("yearMonth", statistics.getYearMonth());
+        encoded.putAll(WorkHoursCalculationService.summaryOf(statistics));
+
+        List<DailyRecord> dailyRecords = statistics.getDailyRecords();
+        encoded.put("dailyRecords", encode(dailyRecords, fields, columnar));
+        if (columnar) {
+            Map<Object, Integer> indexes = new HashMap<>();
+            for (int i = 0; i < dailyRecords.size(); i++) {
+                indexes.put(dailyRecords.get(i).getDate(), i);
+            }
+            encoded.put("leaveIndexes", indexesOf(statistics.getLeaveRecords(), indexes));
+            encoded.put("lateIndexes", indexesOf(statistics.getLateRecords(), indexes));
+        } else {
+            encoded.put("leaveRecords", toRows(statistics.getLeaveRecords(), fields));
+            encoded.put("lateRecords", toRows(statistics.getLateRecords(), fields));
+        }
+        return encoded;
+    }
+
+    private static List<Integer> indexesOf(List<DailyRecord> records, Map<Object, Integer> indexes) {
+        List<Integer> result = new ArrayList<>(records.size());
+        for (DailyRecord record : records) {
+            Integer index = indexes.get(record.getDate());
+            if (index != null) {
+                result.add(index);
+            }
+        }
+        return result;
+    }
+
+    private static Integer toMinute(LocalTime time, boolean nextDay) {
+        if (time == null) {
+            return null;
+        }
+        int minute = time.getHour() * 60 + time.getMinute();
+        return nextDay ? minute + MINUTES_PER_DAY : minute;
+    }
+}
@@ -3,24 +3,45 @@ package org.example.timecount.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.example.timecount.config.WorkHoursConfig;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.locks.Lock;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ExcelTemplateService {
 
+    /**
+     * 流式写出新模板时内存中保留的行数
+     */
+    private static final int STREAMING_ROW_WINDOW = 16;
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private static final String[] HEADERS = {"日期", "星期", "上班时间", "下班时间", "请假类型", "请假开始时间", "请假结束时间", "备注"};
+
+    /**
+     * 请假类型列的默认值
+     */
+    private static final String DEFAULT_LEAVE_TYPE = "正常";
+
     private final WorkHoursConfig config;
+    private final AttendanceFileStore fileStore;
+
+    /**
+     * 预编译的模板骨架（延迟构建）
+     */
+    private volatile TemplateSkeleton skeleton;
 
     /**
      * 生成指定月份的考勤表格模板
@@ -29,48 +50,104 @@ public class ExcelTemplateService {
      * @return 生成的文件路径
      */
     public String generateTemplate(String yearMonth) throws IOException {
+        return generateTemplate(null, yearMonth);
+    }
+
+    /**
+     * 生成指定员工、指定月份的考勤表格模板
+     *
+     * @param employeeId 员工编号，为空时生成个人考勤文件
+     * @param yearMonth  年月，格式：YYYY-MM
+     * @return 生成的文件路径
+     */
+    public String generateTemplate(String employeeId, String yearMonth) throws IOException {
         YearMonth ym = YearMonth.parse(yearMonth, DateTimeFormatter.ofPattern("yyyy-MM"));
         
-        // 创建data目录
-        File dataDir = new File(config.getDataDirectory());
+        // 创建data目录（多员工时为员工子目录）
+        File dataDir = fileStore.employeeDirectory(employeeId);
         if (!dataDir.exists()) {
             dataDir.mkdirs();
             log.info("创建数据目录: {}", dataDir.getAbsolutePath());
         }
 
         // 文件路径
-        String fileName = String.format("attendance_%s.xlsx", yearMonth);
-        File file = new File(dataDir, fileName);
-
-        Workbook workbook;
-        Sheet sheet;
-
-        // 如果文件已存在，读取现有数据
-        if (file.exists()) {
-            log.info("文件已存在，将保留已填写的数据: {}", file.getAbsolutePath());
-            try (FileInputStream fis = new FileInputStream(file)) {
-                workbook = new XSSFWorkbook(fis);
-                sheet = workbook.getSheetAt(0);
+        File file = fileStore.resolveFile(employeeId, yearMonth);
+
+        // 与考勤提交共用文件锁，避免补全模板时覆盖并发提交的数据
+        Lock writeLock = fileStore.getLock(file).writeLock();
+        writeLock.lock();
+        try {
+            // 如果文件已存在，读取现有数据
+            if (file.exists()) {
+                log.info("文件已存在，将保留已填写的数据: {}", file.getAbsolutePath());
+                try (Workbook workbook = fileStore.openWorkbook(file)) {
+                    // 检查是否需要添加新的日期行（如果模板不完整）
+                    updateExistingTemplate(workbook.getSheetAt(0), ym);
+                    // 写入文件（写临时文件后原子替换）
+                    fileStore.writeAtomically(file, workbook::write);
+                }
+            } else if (config.getTemplateMode() == WorkHoursConfig.TemplateMode.SKELETON) {
+                // 新文件复制预编译的骨架，只生成工作表与共享字符串表
+                TemplateSkeleton templateSkeleton = getSkeleton();
+                fileStore.writeAtomically(file, out -> templateSkeleton.write(ym, out));
+            } else {
+                // 新文件以流式方式写出（SXSSF，仅在内存中保留少量行），共享字符串表与完整加载方式生成的文件一致
+                SXSSFWorkbook workbook = new SXSSFWorkbook(null, STREAMING_ROW_WINDOW, false, true);
+                try {
+                    Sheet sheet = workbook.createSheet("考勤记录");
+                    createNewTemplate(workbook, sheet, ym);
+                    fileStore.writeAtomically(file, workbook::write);
+                } finally {
+                    workbook.dispose();
+                    workbook.close();
+                }
             }
-            // 检查是否需要添加新的日期行（如果模板不完整）
-            updateExistingTemplate(sheet, ym);
-        } else {
-            // 创建新的工作簿
-            workbook = new XSSFWorkbook();
-            sheet = workbook.createSheet("考勤记录");
-            createNewTemplate(workbook, sheet, ym);
-        }
-
-        // 写入文件
-        try (FileOutputStream fos = new FileOutputStream(file)) {
-            workbook.write(fos);
             log.info("模板文件已生成/更新: {}", file.getAbsolutePath());
+        } finally {
+            writeLock.unlock();
         }
 
-        workbook.close();
         return file.getAbsolutePath();
     }
 
+    /**
+     * 获取模板骨架（首次使用时由 POI 生成样板文件后构建）
+     */
+    private TemplateSkeleton getSkeleton() throws IOException {
+        TemplateSkeleton current = skeleton;
+        if (current == null) {
+            synchronized (this) {
+                if (skeleton == null) {
+                    skeleton = buildSkeleton();
+                }
+                current = skeleton;
+            }
+        }
+        return current;
+    }
+
+    private TemplateSkeleton buildSkeleton() throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet("考勤记录");
+            createNewTemplate(workbook, sheet, YearMonth.of(2000, 1));
+
+            Row headerRow = sheet.getRow(0);
+            Row firstDayRow = sheet.getRow(1);
+            ByteArrayOutputStream prototype = new ByteArrayOutputStream();
+            workbook.write(prototype);
+
+            String[] weekdayNames = new String[7];
+            for (int i = 0; i < weekdayNames.length; i++) {
+                weekdayNames[i] = getWeekdayName(i + 1);
+            }
+            log.info("模板骨架已生成（{} 字节）", prototype.size());
+            return TemplateSkeleton.build(prototype.toByteArray(), HEADERS, weekdayNames, DEFAULT_LEAVE_TYPE,
+                    headerRow.getCell(0).getCellStyle().getIndex(),
+                    firstDayRow.getCell(0).getCellStyle().getIndex(),
+                    firstDayRow.getCell(2).getCellStyle().getIndex());
+        }
+    }
+
     /**
      * 创建新模板
      */
@@ -82,10 +159,9 @@ public class ExcelTemplateService {
 
         // 创建表头
         Row headerRow = sheet.createRow(0);
-        String[] headers = {"日期", "星期", "上班时间", "下班时间", "请假类型", "请假开始时间", "请假结束时间", "备注"};
-        for (int i = 0; i < headers.length; i++) {
+        for (int i = 0; i < HEADERS.length; i++) {
             Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
+            cell.setCellValue(HEADERS[i]);
             cell.setCellStyle(headerStyle);
         }
 
@@ -109,7 +185,7 @@ public class ExcelTemplateService {
 
             // 日期列
             Cell dateCell = row.createCell(0);
-            dateCell.setCellValue(date.format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
+            dateCell.setCellValue(date.format(DATE_FORMATTER));
             dateCell.setCellStyle(dateStyle);
 
             // 星期列
@@ -127,7 +203,7 @@ public class ExcelTemplateService {
 
             // 请假类型列（默认为"正常"）
             Cell leaveTypeCell = row.createCell(4);
-            leaveTypeCell.setCellValue("正常");
+            leaveTypeCell.setCellValue(DEFAULT_LEAVE_TYPE);
             leaveTypeCell.setCellStyle(timeStyle);
 
             // 请假开始时间列（空白）
@@ -162,7 +238,7 @@ public class ExcelTemplateService {
 
                 // 日期列
                 Cell dateCell = row.createCell(0);
-                dateCell.setCellValue(date.format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
+                dateCell.setCellValue(date.format(DATE_FORMATTER));
 
                 // 星期列
                 Cell weekdayCell = row.createCell(1);
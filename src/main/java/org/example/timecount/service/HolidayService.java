@@ -1,162 +1,594 @@
 package org.example.timecount.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.example.timecount.config.WorkHoursConfig;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.LocalDate;
+import java.time.Year;
+import java.time.format.DateTimeParseException;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 法定节假日服务
  * 用于判断某个日期是否为法定节假日
+ * <p>
+ * 节假日日历按地区从文件加载：先加载内置日历（classpath:holidays/），再加载节假日目录下的 JSON/CSV 文件，
+ * 同名文件覆盖内置日历。每个地区的节假日与调休工作日分别保存为以最早日期为起点、按天编号的位图，
+ * 判断某天是否为节假日只需一次位测试。日历文件变化后由后台定时检查自动重新加载，并递增版本号使缓存失效
  */
 @Service
 @Slf4j
 public class HolidayService {
-    
-    /**
-     * 法定节假日集合（包括调休的法定节假日）
-     * 这里预定义了2025年的法定节假日
-     */
-    private final Set<LocalDate> holidays = new HashSet<>();
-    
-    /**
-     * 调休工作日集合（周末需要上班的日期）
-     */
-    private final Set<LocalDate> makeupWorkdays = new HashSet<>();
-    
-    public HolidayService() {
-        initHolidays();
-        initMakeupWorkdays();
-    }
-    
-    /**
-     * 初始化法定节假日
-     * 2025年法定节假日安排
-     */
-    private void initHolidays() {
-        // 元旦：2024年12月30日至2025年1月1日
-        holidays.add(LocalDate.of(2024, 12, 30));
-        holidays.add(LocalDate.of(2024, 12, 31));
-        holidays.add(LocalDate.of(2025, 1, 1));
-        
-        // 春节：2025年1月28日至2月4日
-        holidays.add(LocalDate.of(2025, 1, 28));
-        holidays.add(LocalDate.of(2025, 1, 29));
-        holidays.add(LocalDate.of(2025, 1, 30));
-        holidays.add(LocalDate.of(2025, 1, 31));
-        holidays.add(LocalDate.of(2025, 2, 1));
-        holidays.add(LocalDate.of(2025, 2, 2));
-        holidays.add(LocalDate.of(2025, 2, 3));
-        holidays.add(LocalDate.of(2025, 2, 4));
-        
-        // 清明节：2025年4月4日至6日
-        holidays.add(LocalDate.of(2025, 4, 4));
-        holidays.add(LocalDate.of(2025, 4, 5));
-        holidays.add(LocalDate.of(2025, 4, 6));
-        
-        // 劳动节：2025年5月1日至5日
-        holidays.add(LocalDate.of(2025, 5, 1));
-        holidays.add(LocalDate.of(2025, 5, 2));
-        holidays.add(LocalDate.of(2025, 5, 3));
-        holidays.add(LocalDate.of(2025, 5, 4));
-        holidays.add(LocalDate.of(2025, 5, 5));
-        
-        // 端午节：2025年5月31日至6月2日
-        holidays.add(LocalDate.of(2025, 5, 31));
-        holidays.add(LocalDate.of(2025, 6, 1));
-        holidays.add(LocalDate.of(2025, 6, 2));
-        
-        // 国庆节+中秋节：2025年10月1日至8日（连休）
-        holidays.add(LocalDate.of(2025, 10, 1));
-        holidays.add(LocalDate.of(2025, 10, 2));
-        holidays.add(LocalDate.of(2025, 10, 3));
-        holidays.add(LocalDate.of(2025, 10, 4));
-        holidays.add(LocalDate.of(2025, 10, 5));
-        holidays.add(LocalDate.of(2025, 10, 6));
-        holidays.add(LocalDate.of(2025, 10, 7));
-        holidays.add(LocalDate.of(2025, 10, 8));
-        
-        log.info("已加载 {} 个法定节假日", holidays.size());
-    }
-    
-    /**
-     * 初始化调休工作日
-     * 2025年调休工作日安排（周末需要上班的日期）
-     */
-    private void initMakeupWorkdays() {
-        // 春节调休：2025年1月26日（周日）上班
-        makeupWorkdays.add(LocalDate.of(2025, 1, 26));
-        
-        // 清明节调休：暂无
-        
-        // 劳动节调休：2025年4月27日（周日）上班
-        makeupWorkdays.add(LocalDate.of(2025, 4, 27));
-        
-        // 端午节调休：暂无
-        
-        // 国庆节调休：2025年9月28日（周日）、10月11日（周六）上班
-        makeupWorkdays.add(LocalDate.of(2025, 9, 28));
-        makeupWorkdays.add(LocalDate.of(2025, 10, 11));
-        
-        log.info("已加载 {} 个调休工作日", makeupWorkdays.size());
-    }
-    
+
+    /**
+     * 内置日历文件（位于 classpath:holidays/ 下）
+     */
+    private static final String[] BUILTIN_CALENDARS = {"CN-2025.json"};
+
+    private final WorkHoursConfig config;
+    private final AttendanceFileStore fileStore;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 当前生效的日历快照（不可变，整体替换）
+     */
+    private volatile CalendarSnapshot snapshot;
+
+    /**
+     * 最近一次从文件加载的原始日历（地区 -> 日期集合），用于叠加自定义节假日后重建快照
+     */
+    private Map<String, RegionDays> loadedRegions = Collections.emptyMap();
+
+    /**
+     * 通过接口添加（true）或移除（false）的节假日，作用于默认地区，重新加载日历文件后仍然保留
+     */
+    private final Map<LocalDate, Boolean> holidayOverrides = new HashMap<>();
+
+    /**
+     * 最近一次加载时日历文件的指纹（目录、地区、文件名、修改时间与大小）
+     */
+    private volatile String loadedFingerprint;
+
+    /**
+     * 节假日数据版本号（每次增删节假日或重新加载日历后递增，用于使缓存失效）
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * 日历文件变化检查的后台执行器
+     */
+    private final ScheduledExecutorService reloadExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "holiday-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public HolidayService(WorkHoursConfig config, AttendanceFileStore fileStore, ObjectMapper objectMapper) {
+        this.config = config;
+        this.fileStore = fileStore;
+        this.objectMapper = objectMapper;
+        reload();
+    }
+
     /**
      * 判断指定日期是否为法定节假日
-     * 
+     *
      * @param date 日期
      * @return true表示是法定节假日，false表示不是
      */
     public boolean isHoliday(LocalDate date) {
-        boolean result = holidays.contains(date);
-        if (result) {
-            log.debug("日期 {} 是法定节假日", date);
-        }
-        return result;
+        return snapshot.defaultRegion.isHoliday(date.toEpochDay());
     }
-    
+
+    /**
+     * 判断指定日期（自 1970-01-01 起的天数）是否为法定节假日
+     */
+    public boolean isHoliday(long epochDay) {
+        return snapshot.defaultRegion.isHoliday(epochDay);
+    }
+
+    /**
+     * 判断指定地区的某个日期是否为法定节假日
+     *
+     * @param region 地区（日历文件名前缀），未加载该地区时返回 false
+     * @param date   日期
+     */
+    public boolean isHoliday(String region, LocalDate date) {
+        return snapshot.region(region).isHoliday(date.toEpochDay());
+    }
+
     /**
      * 判断指定日期是否为调休工作日（周末需要上班）
-     * 
+     *
      * @param date 日期
      * @return true表示是调休工作日，false表示不是
      */
     public boolean isMakeupWorkday(LocalDate date) {
-        boolean result = makeupWorkdays.contains(date);
-        if (result) {
-            log.debug("日期 {} 是调休工作日", date);
+        return snapshot.defaultRegion.isMakeupWorkday(date.toEpochDay());
+    }
+
+    /**
+     * 判断指定日期（自 1970-01-01 起的天数）是否为调休工作日
+     */
+    public boolean isMakeupWorkday(long epochDay) {
+        return snapshot.defaultRegion.isMakeupWorkday(epochDay);
+    }
+
+    /**
+     * 判断指定地区的某个日期是否为调休工作日
+     *
+     * @param region 地区（日历文件名前缀），未加载该地区时返回 false
+     * @param date   日期
+     */
+    public boolean isMakeupWorkday(String region, LocalDate date) {
+        return snapshot.region(region).isMakeupWorkday(date.toEpochDay());
+    }
+
+    /**
+     * 判断指定日期是否为工作日：(周一到周五且不是法定节假日) 或 (调休工作日)
+     */
+    public boolean isWorkday(LocalDate date) {
+        return snapshot.defaultRegion.isWorkday(date.toEpochDay());
+    }
+
+    /**
+     * 统计日期范围内的工作日天数（包含两端），开始日期晚于结束日期时返回 0
+     * 按年预先计算的累计工作日数组相减得到，与范围长度无关
+     *
+     * @param from 开始日期
+     * @param to   结束日期
+     * @return 工作日天数
+     */
+    public int countWorkdays(LocalDate from, LocalDate to) {
+        return countWorkdays(snapshot.defaultRegion, from, to);
+    }
+
+    /**
+     * 统计指定地区日期范围内的工作日天数（包含两端）
+     *
+     * @param region 地区，未加载该地区时只按周一到周五计算
+     */
+    public int countWorkdays(String region, LocalDate from, LocalDate to) {
+        return countWorkdays(snapshot.region(region), from, to);
+    }
+
+    private static int countWorkdays(RegionCalendar calendar, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return 0;
         }
-        return result;
+        int[] first = calendar.cumulativeWorkdays(from.getYear());
+        if (from.getYear() == to.getYear()) {
+            return first[to.getDayOfYear()] - first[from.getDayOfYear() - 1];
+        }
+        int count = first[first.length - 1] - first[from.getDayOfYear() - 1];
+        for (int year = from.getYear() + 1; year < to.getYear(); year++) {
+            int[] cumulative = calendar.cumulativeWorkdays(year);
+            count += cumulative[cumulative.length - 1];
+        }
+        return count + calendar.cumulativeWorkdays(to.getYear())[to.getDayOfYear()];
     }
-    
+
     /**
      * 添加自定义节假日
-     * 
+     *
      * @param date 日期
      */
-    public void addHoliday(LocalDate date) {
-        holidays.add(date);
+    public synchronized void addHoliday(LocalDate date) {
+        holidayOverrides.put(date, Boolean.TRUE);
+        rebuildSnapshot();
         log.info("添加自定义节假日: {}", date);
     }
-    
+
     /**
      * 移除节假日
-     * 
+     *
      * @param date 日期
      */
-    public void removeHoliday(LocalDate date) {
-        holidays.remove(date);
+    public synchronized void removeHoliday(LocalDate date) {
+        holidayOverrides.put(date, Boolean.FALSE);
+        rebuildSnapshot();
         log.info("移除节假日: {}", date);
     }
-    
+
     /**
-     * 获取所有节假日
-     * 
+     * 获取所有节假日（默认地区）
+     *
      * @return 节假日集合
      */
     public Set<LocalDate> getAllHolidays() {
-        return new HashSet<>(holidays);
+        return snapshot.defaultRegion.holidayDates();
+    }
+
+    /**
+     * 获取默认地区的调休工作日
+     */
+    public Set<LocalDate> getAllMakeupWorkdays() {
+        return snapshot.defaultRegion.makeupWorkdayDates();
+    }
+
+    /**
+     * 获取已加载的地区
+     */
+    public Set<String> getRegions() {
+        return new TreeSet<>(snapshot.regions.keySet());
+    }
+
+    /**
+     * 获取节假日数据版本号
+     *
+     * @return 版本号
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * 重新加载内置日历与节假日目录下的日历文件
+     */
+    public synchronized void reload() {
+        String fingerprint = fingerprint();
+        Map<String, RegionDays> regions = new TreeMap<>();
+        int fileCount = 0;
+
+        Map<String, File> files = listCalendarFiles();
+        for (String name : BUILTIN_CALENDARS) {
+            if (files.containsKey(name)) {
+                continue;
+            }
+            try (InputStream in = HolidayService.class.getResourceAsStream("/holidays/" + name)) {
+                if (in == null) {
+                    log.warn("内置节假日日历不存在: {}", name);
+                    continue;
+                }
+                merge(parseCalendar(name, new InputStreamReader(in, StandardCharsets.UTF_8)), regions);
+                fileCount++;
+            } catch (IOException | RuntimeException e) {
+                log.error("加载内置节假日日历失败: {}", name, e);
+            }
+        }
+        for (Map.Entry<String, File> entry : files.entrySet()) {
+            try (Reader reader = Files.newBufferedReader(entry.getValue().toPath(), StandardCharsets.UTF_8)) {
+                merge(parseCalendar(entry.getKey(), reader), regions);
+                fileCount++;
+            } catch (IOException | RuntimeException e) {
+                // 单个文件格式错误时跳过该文件，其余日历照常生效
+                log.error("加载节假日日历失败: {}", entry.getValue().getAbsolutePath(), e);
+            }
+        }
+
+        loadedRegions = regions;
+        loadedFingerprint = fingerprint;
+        rebuildSnapshot();
+
+        RegionCalendar defaultRegion = snapshot.defaultRegion;
+        log.info("已加载 {} 个节假日日历文件（地区: {}），默认地区 {}：{} 个法定节假日，{} 个调休工作日",
+                fileCount, regions.keySet(), config.getHolidayRegion(),
+                defaultRegion.holidays.cardinality(), defaultRegion.makeupWorkdays.cardinality());
+    }
+
+    /**
+     * 日历文件（或节假日目录、默认地区配置）发生变化时重新加载
+     *
+     * @return 是否重新加载
+     */
+    public boolean reloadIfChanged() {
+        if (fingerprint().equals(loadedFingerprint)) {
+            return false;
+        }
+        log.info("节假日日历文件已变化，重新加载");
+        reload();
+        return true;
+    }
+
+    @PostConstruct
+    public void startReloadScheduler() {
+        long interval = config.getHolidayReloadIntervalMillis();
+        if (interval > 0) {
+            reloadExecutor.scheduleWithFixedDelay(() -> {
+                try {
+                    reloadIfChanged();
+                } catch (RuntimeException e) {
+                    log.error("检查节假日日历文件失败", e);
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reloadExecutor.shutdownNow();
+    }
+
+    /**
+     * 根据已加载的日历与自定义节假日重建快照，并递增版本号
+     */
+    private void rebuildSnapshot() {
+        String defaultRegion = normalizeRegion(config.getHolidayRegion());
+        Map<String, RegionCalendar> calendars = new HashMap<>();
+        for (Map.Entry<String, RegionDays> entry : loadedRegions.entrySet()) {
+            RegionDays days = entry.getValue();
+            if (entry.getKey().equals(defaultRegion) && !holidayOverrides.isEmpty()) {
+                days = days.withOverrides(holidayOverrides);
+            }
+            calendars.put(entry.getKey(), RegionCalendar.of(days));
+        }
+        if (!calendars.containsKey(defaultRegion)) {
+            calendars.put(defaultRegion, RegionCalendar.of(new RegionDays().withOverrides(holidayOverrides)));
+        }
+        snapshot = new CalendarSnapshot(calendars, calendars.get(defaultRegion));
+        version.incrementAndGet();
+    }
+
+    /**
+     * 列出节假日目录下的日历文件（文件名 -> 文件，按文件名排序）
+     */
+    private Map<String, File> listCalendarFiles() {
+        File[] files = fileStore.holidayDirectory().listFiles(f -> f.isFile() && isCalendarFile(f.getName()));
+        Map<String, File> result = new TreeMap<>();
+        if (files != null) {
+            for (File file : files) {
+                result.put(file.getName(), file);
+            }
+        }
+        return result;
+    }
+
+    private String fingerprint() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(fileStore.holidayDirectory().getAbsolutePath()).append('|').append(config.getHolidayRegion());
+        for (File file : listCalendarFiles().values()) {
+            sb.append('|').append(file.getName()).append(':').append(file.lastModified()).append(':').append(file.length());
+        }
+        return sb.toString();
+    }
+
+    private static boolean isCalendarFile(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".json") || lower.endsWith(".csv");
+    }
+
+    /**
+     * 解析一个日历文件（整个文件解析成功后才合并，格式错误的文件不会部分生效）
+     * 地区取 JSON 中的 region 字段，未填写时取文件名中第一个“-”或“_”之前的部分
+     *
+     * @return 地区 -> 日期
+     */
+    private Map<String, RegionDays> parseCalendar(String fileName, Reader reader) throws IOException {
+        Map<String, RegionDays> regions = new HashMap<>();
+        String baseName = fileName.substring(0, fileName.lastIndexOf('.'));
+        String region = baseName.split("[-_]", 2)[0];
+
+        if (fileName.toLowerCase(Locale.ROOT).endsWith(".json")) {
+            JsonNode root = objectMapper.readTree(reader);
+            if (root.hasNonNull("region")) {
+                region = root.get("region").asText();
+            }
+            RegionDays days = regions.computeIfAbsent(normalizeRegion(region), r -> new RegionDays());
+            for (JsonNode node : root.path("holidays")) {
+                addDays(node.asText(), days.holidays);
+            }
+            for (JsonNode node : root.path("makeupWorkdays")) {
+                addDays(node.asText(), days.makeupWorkdays);
+            }
+            return regions;
+        }
+
+        // CSV：日期（或日期范围）,类型[,说明]，类型为 holiday/节假日/休 或 workday/调休/班；支持 # 注释与表头
+        RegionDays days = regions.computeIfAbsent(normalizeRegion(region), r -> new RegionDays());
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split(",");
+            String date = parts[0].trim();
+            if (!date.isEmpty() && !Character.isDigit(date.charAt(0))) {
+                continue; // 表头
+            }
+            String type = parts.length > 1 ? parts[1].trim().toLowerCase(Locale.ROOT) : "holiday";
+            switch (type) {
+                case "holiday":
+                case "节假日":
+                case "休":
+                    addDays(date, days.holidays);
+                    break;
+                case "workday":
+                case "makeup":
+                case "调休":
+                case "班":
+                    addDays(date, days.makeupWorkdays);
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format("第 %d 行类型无法识别: %s", lineNumber, parts[1]));
+            }
+        }
+        return regions;
+    }
+
+    private static void merge(Map<String, RegionDays> source, Map<String, RegionDays> target) {
+        for (Map.Entry<String, RegionDays> entry : source.entrySet()) {
+            RegionDays days = target.computeIfAbsent(entry.getKey(), r -> new RegionDays());
+            days.holidays.addAll(entry.getValue().holidays);
+            days.makeupWorkdays.addAll(entry.getValue().makeupWorkdays);
+        }
+    }
+
+    /**
+     * 添加单个日期（yyyy-MM-dd）或日期范围（yyyy-MM-dd~yyyy-MM-dd，含两端）
+     */
+    private static void addDays(String text, Set<Long> target) {
+        String[] range = text.trim().split("~");
+        try {
+            long from = LocalDate.parse(range[0].trim()).toEpochDay();
+            long to = range.length > 1 ? LocalDate.parse(range[1].trim()).toEpochDay() : from;
+            if (to < from || to - from > 366) {
+                throw new IllegalArgumentException("日期范围错误: " + text);
+            }
+            for (long day = from; day <= to; day++) {
+                target.add(day);
+            }
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("日期格式错误（应为 yyyy-MM-dd 或 yyyy-MM-dd~yyyy-MM-dd）: " + text, e);
+        }
+    }
+
+    private static String normalizeRegion(String region) {
+        return region == null ? "" : region.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * 一个地区从日历文件加载的日期（自 1970-01-01 起的天数）
+     */
+    private static final class RegionDays {
+        final Set<Long> holidays = new HashSet<>();
+        final Set<Long> makeupWorkdays = new HashSet<>();
+
+        RegionDays withOverrides(Map<LocalDate, Boolean> overrides) {
+            RegionDays copy = new RegionDays();
+            copy.holidays.addAll(holidays);
+            copy.makeupWorkdays.addAll(makeupWorkdays);
+            for (Map.Entry<LocalDate, Boolean> entry : overrides.entrySet()) {
+                if (entry.getValue()) {
+                    copy.holidays.add(entry.getKey().toEpochDay());
+                } else {
+                    copy.holidays.remove(entry.getKey().toEpochDay());
+                }
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * 一个地区的日历位图，第 i 位对应 baseEpochDay + i 这一天；创建后不再修改，可并发读取。
+     * 按年的累计工作日数组在首次使用时生成，随快照一起替换
+     */
+    private static final class RegionCalendar {
+
+        static final RegionCalendar EMPTY = new RegionCalendar(0, new BitSet(), new BitSet());
+
+        final long baseEpochDay;
+        final BitSet holidays;
+        final BitSet makeupWorkdays;
+
+        /**
+         * 年份 -> 累计工作日数组，下标为当年第几天，cumulative[d] 为 1 月 1 日至第 d 天的工作日数（cumulative[0] = 0）
+         */
+        private final Map<Integer, int[]> cumulativeByYear = new ConcurrentHashMap<>();
+
+        RegionCalendar(long baseEpochDay, BitSet holidays, BitSet makeupWorkdays) {
+            this.baseEpochDay = baseEpochDay;
+            this.holidays = holidays;
+            this.makeupWorkdays = makeupWorkdays;
+        }
+
+        static RegionCalendar of(RegionDays days) {
+            long base = Long.MAX_VALUE;
+            for (long day : days.holidays) base = Math.min(base, day);
+            for (long day : days.makeupWorkdays) base = Math.min(base, day);
+            if (base == Long.MAX_VALUE) {
+                return EMPTY;
+            }
+            return new RegionCalendar(base, toBits(days.holidays, base), toBits(days.makeupWorkdays, base));
+        }
+
+        private static BitSet toBits(Set<Long> days, long base) {
+            BitSet bits = new BitSet();
+            for (long day : days) {
+                bits.set((int) (day - base));
+            }
+            return bits;
+        }
+
+        boolean isHoliday(long epochDay) {
+            long offset = epochDay - baseEpochDay;
+            // 无符号右移为 0 说明 0 <= offset < 2^31；超出位图长度的位 BitSet 直接返回 false
+            return (offset >>> 31) == 0 && holidays.get((int) offset);
+        }
+
+        boolean isMakeupWorkday(long epochDay) {
+            long offset = epochDay - baseEpochDay;
+            return (offset >>> 31) == 0 && makeupWorkdays.get((int) offset);
+        }
+
+        boolean isWorkday(long epochDay) {
+            // 1970-01-01 为周四，(epochDay + 3) 对 7 取模后 0~4 为周一到周五
+            boolean weekday = Math.floorMod(epochDay + 3, 7) < 5;
+            return (weekday && !isHoliday(epochDay)) || isMakeupWorkday(epochDay);
+        }
+
+        int[] cumulativeWorkdays(int year) {
+            return cumulativeByYear.computeIfAbsent(year, y -> {
+                long firstDay = LocalDate.of(y, 1, 1).toEpochDay();
+                int length = Year.isLeap(y) ? 366 : 365;
+                int[] cumulative = new int[length + 1];
+                for (int i = 0; i < length; i++) {
+                    cumulative[i + 1] = cumulative[i] + (isWorkday(firstDay + i) ? 1 : 0);
+                }
+                return cumulative;
+            });
+        }
+
+        Set<LocalDate> holidayDates() {
+            return toDates(holidays);
+        }
+
+        Set<LocalDate> makeupWorkdayDates() {
+            return toDates(makeupWorkdays);
+        }
+
+        private Set<LocalDate> toDates(BitSet bits) {
+            Set<LocalDate> dates = new TreeSet<>();
+            for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                dates.add(LocalDate.ofEpochDay(baseEpochDay + i));
+            }
+            return dates;
+        }
+    }
+
+    /**
+     * 全部地区的日历快照
+     */
+    private static final class CalendarSnapshot {
+        final Map<String, RegionCalendar> regions;
+        final RegionCalendar defaultRegion;
+
+        CalendarSnapshot(Map<String, RegionCalendar> regions, RegionCalendar defaultRegion) {
+            this.regions = regions;
+            this.defaultRegion = defaultRegion;
+        }
+
+        RegionCalendar region(String region) {
+            return regions.getOrDefault(normalizeRegion(region), RegionCalendar.EMPTY);
+        }
     }
 }
@@ -0,0 +1,215 @@
+package org.example.timecount.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.timecount.config.WorkHoursConfig;
+import org.example.timecount.model.PackedMonth;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 月度考勤解析结果缓存
+ * 以考勤文件为单位缓存解析后的紧凑月度数据和物化统计，
+ * 版本号（文件修改时间+大小、配置版本、节假日版本）变化时视为未命中，
+ * 超出容量后按最近最少使用（LRU）淘汰。
+ * 版本号不包含文件内容：外部程序在同一修改时间精度内改写文件且大小不变时无法察觉，
+ * 缓存会继续返回旧数据，直到文件再次被修改或条目被淘汰（外部改写后可更新文件修改时间，如 touch）
+ */
+@Component
+@Slf4j
+public class MonthRecordCache implements MeterBinder {
+
+    private final WorkHoursConfig config;
+
+    /**
+     * 文件路径 -> 缓存条目（按访问顺序排列）
+     */
+    private final LinkedHashMap<String, CachedMonth> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * 为团队统计预留的条目数（在配置的容量之外，只增不减）
+     */
+    private int reservedEntries;
+
+    public MonthRecordCache(WorkHoursConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * 查询缓存
+     *
+     * @param monthKey 月份标识（考勤文件路径）
+     * @param version  当前数据版本
+     * @return 版本一致的缓存条目，不存在或版本已变化时返回 null
+     */
+    public synchronized CachedMonth get(String monthKey, String version) {
+        CachedMonth cached = entries.get(monthKey);
+        if (cached != null && cached.getVersion().equals(version)) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 写入缓存，同一月份的旧版本条目会被替换
+     */
+    public synchronized CachedMonth put(String monthKey, String version, PackedMonth month) {
+        CachedMonth cached = new CachedMonth(version, month, new MonthlyAggregate());
+        entries.put(monthKey, cached);
+        evictIfNecessary();
+        return cached;
+    }
+
+    /**
+     * 考勤文件被本服务改写后调用：由原条目生成写入后版本的条目并替换原条目
+     * 月度数据与物化统计都写时复制，正在读取原条目的线程不会看到修改了一半的数据
+     *
+     * @param monthKey        月份标识（考勤文件路径）
+     * @param previousVersion 写入前的数据版本
+     * @param update          由原条目生成写入后版本的条目（不修改原条目）
+     * @return 是否已更新；条目不存在或版本不一致（如文件曾被外部修改）时不更新，下次读取时重新解析
+     */
+    public synchronized boolean update(String monthKey, String previousVersion,
+                                       Function<CachedMonth, CachedMonth> update) {
+        CachedMonth cached = entries.get(monthKey);
+        if (cached == null || !cached.getVersion().equals(previousVersion)) {
+            return false;
+        }
+        try {
+            entries.put(monthKey, update.apply(cached));
+        } catch (RuntimeException e) {
+            entries.remove(monthKey);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * 为团队统计扩容：保证在配置的容量之外还能容纳指定数量的月份，团队统计不会淘汰其他月份或自身的条目
+     *
+     * @param entries 团队统计涉及的月份数
+     */
+    public synchronized void reserve(int entries) {
+        if (entries > reservedEntries) {
+            reservedEntries = entries;
+            log.info("解析结果缓存扩容: 最多 {} 个月份", maxEntries());
+        }
+    }
+
+    /**
+     * 使指定月份的缓存失效
+     */
+    public synchronized void invalidate(String monthKey) {
+        entries.remove(monthKey);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public synchronized Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxEntries", maxEntries());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.get());
+        stats.put("hitRatio", total > 0 ? Math.round(hitCount * 10000.0 / total) / 10000.0 : 0.0);
+        return stats;
+    }
+
+    /**
+     * 注册缓存指标：命中/未命中/淘汰次数、当前条目数与命中率
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("workhours.cache.hits", hits, AtomicLong::get)
+                .description("解析缓存命中次数")
+                .register(registry);
+        FunctionCounter.builder("workhours.cache.misses", misses, AtomicLong::get)
+                .description("解析缓存未命中次数")
+                .register(registry);
+        FunctionCounter.builder("workhours.cache.evictions", evictions, AtomicLong::get)
+                .description("解析缓存淘汰次数")
+                .register(registry);
+        Gauge.builder("workhours.cache.size", this, MonthRecordCache::size)
+                .description("解析缓存条目数")
+                .register(registry);
+        Gauge.builder("workhours.cache.hit.ratio", this, MonthRecordCache::hitRatio)
+                .description("解析缓存命中率")
+                .register(registry);
+    }
+
+    private synchronized double size() {
+        return entries.size();
+    }
+
+    private double hitRatio() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total > 0 ? (double) hitCount / total : 0.0;
+    }
+
+    private int maxEntries() {
+        return Math.max(1, config.getCacheMaxEntries()) + reservedEntries;
+    }
+
+    private void evictIfNecessary() {
+        int maxEntries = maxEntries();
+        Iterator<Map.Entry<String, CachedMonth>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            Map.Entry<String, CachedMonth> eldest = iterator.next();
+            iterator.remove();
+            evictions.incrementAndGet();
+            log.debug("缓存已满，淘汰月份: {}", eldest.getKey());
+        }
+    }
+
+    /**
+     * 缓存条目：解析后的紧凑月度数据，以及由它建立的物化统计
+     * （考勤文件被本服务改写后，月度数据与物化统计复制后按天更新，作为新版本号的条目替换原条目）
+     */
+    public static class CachedMonth {
+
+        @Getter
+        private final String version;
+
+        @Getter
+        private final PackedMonth month;
+
+        @Getter
+        private final MonthlyAggregate aggregate;
+
+        CachedMonth(String version, PackedMonth month, MonthlyAggregate aggregate) {
+            this.version = version;
+            this.month = month;
+            this.aggregate = aggregate;
+        }
+    }
+}
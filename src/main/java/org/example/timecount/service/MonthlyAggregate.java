@@ -0,0 +1,251 @@
+package org.example.timecount.service;
+
+import org.example.timecount.model.DailyRecord;
+import org.example.timecount.model.WorkHoursStatistics;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+/**
+ * 物化的月度统计
+ * 保存每一天对统计的贡献（工时、请假时长、是否出勤/迟到/晚上九点后打卡）以及各项累计值，
+ * 某一天被修改时只减去旧贡献、加上新贡献，不再逐天重新计算；
+ * 工时与请假时长按分钟累计，增减不会产生浮点误差，输出时才换算为小时。
+ * 非线程安全，调用方需在同一对象上同步
+ */
+final class MonthlyAggregate {
+
+    /**
+     * 某一天对月度统计的贡献
+     */
+    static final class Day {
+
+        final DailyRecord record;
+
+        final int workMinutes;
+
+        final int leaveMinutes;
+
+        /**
+         * 晚上九点后打卡
+         */
+        final boolean lateNightCheckIn;
+
+        /**
+         * 工作日且有上班或下班打卡
+         */
+        final boolean actualAttendance;
+
+        /**
+         * 迟到（晚于标准上班时间且不在请假时段内）
+         */
+        final boolean late;
+
+        Day(DailyRecord record, int workMinutes, int leaveMinutes, boolean lateNightCheckIn,
+            boolean actualAttendance, boolean late) {
+            this.record = record;
+            this.workMinutes = workMinutes;
+            this.leaveMinutes = leaveMinutes;
+            this.lateNightCheckIn = lateNightCheckIn;
+            this.actualAttendance = actualAttendance;
+            this.late = late;
+        }
+    }
+
+    private Day[] days;
+
+    private long workMinutes;
+    private int attendanceDays;
+    private long leaveMinutes;
+    private int leaveDays;
+    private int lateNightCheckInCount;
+    private int actualAttendanceDays;
+    private int lateDays;
+
+    /**
+     * 请假、迟到记录（下标 -> 每日记录，按日期顺序输出）
+     */
+    private final TreeMap<Integer, DailyRecord> leaveRecords = new TreeMap<>();
+    private final TreeMap<Integer, DailyRecord> lateRecords = new TreeMap<>();
+
+    /**
+     * 最近一次输出的统计结果（剩余工作日依赖当天日期，日期变化或有修改后重新生成）
+     */
+    private WorkHoursStatistics statistics;
+
+    private LocalDate statisticsDate;
+
+    boolean isBuilt() {
+        return days != null;
+    }
+
+    /**
+     * 复制累计值与每天的贡献（每天的贡献不可变，共用同一对象）；不复制已输出的统计结果
+     */
+    MonthlyAggregate copy() {
+        MonthlyAggregate copy = new MonthlyAggregate();
+        if (days != null) {
+            copy.days = days.clone();
+        }
+        copy.workMinutes = workMinutes;
+        copy.attendanceDays = attendanceDays;
+        copy.leaveMinutes = leaveMinutes;
+        copy.leaveDays = leaveDays;
+        copy.lateNightCheckInCount = lateNightCheckInCount;
+        copy.actualAttendanceDays = actualAttendanceDays;
+        copy.lateDays = lateDays;
+        copy.leaveRecords.putAll(leaveRecords);
+        copy.lateRecords.putAll(lateRecords);
+        return copy;
+    }
+
+    /**
+     * 逐天累计，建立初始统计
+     *
+     * @param size 记录数
+     * @param day  下标 -> 当天的贡献
+     */
+    void build(int size, IntFunction<Day> day) {
+        days = new Day[size];
+        for (int i = 0; i < size; i++) {
+            days[i] = day.apply(i);
+            add(i, days[i]);
+        }
+        statistics = null;
+    }
+
+    /**
+     * 替换某一天：减去旧贡献，加上新贡献
+     */
+    void replace(int index, Day day) {
+        remove(index, days[index]);
+        days[index] = day;
+        add(index, day);
+        statistics = null;
+    }
+
+    /**
+     * 获取指定日期生成的统计结果（副本）
+     *
+     * @return 日期不一致或之后有修改时返回 null
+     */
+    WorkHoursStatistics getStatistics(LocalDate today) {
+        return statistics != null && today.equals(statisticsDate) ? copyOf(statistics) : null;
+    }
+
+    /**
+     * 由累计值生成统计结果（不重新计算）
+     * 内部保留一份，返回副本：调用方修改返回的对象不会影响缓存中的统计与每日记录
+     */
+    WorkHoursStatistics toStatistics(String yearMonth, LocalDate today, double expectedTotalHours,
+                                     int remainingWorkdays) {
+        double totalWorkHours = workMinutes / 60.0;
+
+        // 计算平均工时
+        double averageWorkHoursPerDay = attendanceDays > 0 ? totalWorkHours / attendanceDays : 0.0;
+
+        // 计算距离期望总工时的差距
+        double remainingHoursToTarget = expectedTotalHours - totalWorkHours;
+
+        // 计算剩余工作日需要的日平均工时
+        double requiredAverageHoursForRemainingDays = remainingWorkdays > 0
+                ? remainingHoursToTarget / remainingWorkdays
+                : 0.0;
+
+        List<DailyRecord> dailyRecords = new ArrayList<>(days.length);
+        for (Day day : days) {
+            dailyRecords.add(day.record);
+        }
+
+        statistics = WorkHoursStatistics.builder()
+                .yearMonth(yearMonth)
+                .totalWorkHours(round(totalWorkHours))
+                .attendanceDays(attendanceDays)
+                .averageWorkHoursPerDay(round(averageWorkHoursPerDay))
+                .expectedTotalHours(expectedTotalHours)
+                .remainingHoursToTarget(round(remainingHoursToTarget))
+                .remainingWorkdays(remainingWorkdays)
+                .requiredAverageHoursForRemainingDays(round(requiredAverageHoursForRemainingDays))
+                .totalLeaveHours(round(leaveMinutes / 60.0))
+                .leaveDays(leaveDays)
+                .dailyRecords(dailyRecords)
+                .leaveRecords(new ArrayList<>(leaveRecords.values()))
+                .lateNightCheckInCount(lateNightCheckInCount)
+                .actualAttendanceDays(actualAttendanceDays)
+                .lateDays(lateDays)
+                .lateRecords(new ArrayList<>(lateRecords.values()))
+                .build();
+        statisticsDate = today;
+        return copyOf(statistics);
+    }
+
+    /**
+     * 复制统计结果及其中的每日记录（请假、迟到记录与每日记录引用同一副本）
+     */
+    private static WorkHoursStatistics copyOf(WorkHoursStatistics statistics) {
+        Map<DailyRecord, DailyRecord> copies = new IdentityHashMap<>(statistics.getDailyRecords().size());
+        return statistics.toBuilder()
+                .dailyRecords(copyOf(statistics.getDailyRecords(), copies))
+                .leaveRecords(copyOf(statistics.getLeaveRecords(), copies))
+                .lateRecords(copyOf(statistics.getLateRecords(), copies))
+                .build();
+    }
+
+    private static List<DailyRecord> copyOf(List<DailyRecord> records, Map<DailyRecord, DailyRecord> copies) {
+        List<DailyRecord> result = new ArrayList<>(records.size());
+        for (DailyRecord record : records) {
+            result.add(copies.computeIfAbsent(record, r -> r.toBuilder().build()));
+        }
+        return result;
+    }
+
+    private void add(int index, Day day) {
+        apply(index, day, 1);
+    }
+
+    private void remove(int index, Day day) {
+        apply(index, day, -1);
+    }
+
+    /**
+     * 把某一天的贡献计入（sign = 1）或移出（sign = -1）累计值
+     */
+    private void apply(int index, Day day, int sign) {
+        if (day.workMinutes > 0) {
+            workMinutes += sign * day.workMinutes;
+            attendanceDays += sign;
+        }
+        if (day.record.isLeave()) {
+            leaveMinutes += sign * day.leaveMinutes;
+            leaveDays += sign;
+            update(leaveRecords, index, day.record, sign);
+        }
+        if (day.lateNightCheckIn) {
+            lateNightCheckInCount += sign;
+        }
+        if (day.actualAttendance) {
+            actualAttendanceDays += sign;
+        }
+        if (day.late) {
+            lateDays += sign;
+            update(lateRecords, index, day.record, sign);
+        }
+    }
+
+    private static void update(TreeMap<Integer, DailyRecord> records, int index, DailyRecord record, int sign) {
+        if (sign > 0) {
+            records.put(index, record);
+        } else {
+            records.remove(index);
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
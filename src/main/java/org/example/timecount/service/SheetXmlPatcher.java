@@ -0,0 +1,563 @@
+package org.example.timecount.service;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.poi.util.XMLHelper;
+import org.example.timecount.model.AttendanceRequest;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+
+/**
+ * 考勤表工作表 XML 补丁
+ * 提交考勤时不再完整加载、重新序列化工作簿：只用 StAX 流式改写 xl/worksheets/sheet1.xml，
+ * 把目标行的第 3~8 列替换为内联字符串（或保留样式的空单元格），其余条目原样复制压缩后的数据（不再解压、压缩）。
+ * 目标行按 {@link AttendanceRowIndex} 的“日期 -> 行号”映射定位，其他行不解析、原样输出；
+ * 没有映射时逐行读取日期列定位，并把扫描得到的完整映射交给调用方缓存。
+ * 工作簿包含多个工作表、有日期找不到（如没有映射且日期列为数值格式）时不做补丁，由调用方改为完整加载工作簿处理
+ */
+final class SheetXmlPatcher implements Closeable {
+
+    private static final String SHEET_ENTRY = "xl/worksheets/sheet1.xml";
+    private static final String SHARED_STRINGS_ENTRY = "xl/sharedStrings.xml";
+    private static final String WORKBOOK_ENTRY = "xl/workbook.xml";
+    private static final String SPREADSHEET_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    /**
+     * 提交写入的列范围：上班时间（第3列）到备注（第8列）
+     */
+    private static final int FIRST_COLUMN = 2;
+    private static final int LAST_COLUMN = 7;
+
+    private static final String DEFAULT_LEAVE_TYPE = "正常";
+
+    private static final XMLInputFactory INPUT_FACTORY = XMLHelper.newXMLInputFactory();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLHelper.newXMLOutputFactory();
+    private static final XMLEventFactory EVENT_FACTORY = XMLHelper.newXMLEventFactory();
+
+    private final ZipFile zip;
+
+    /**
+     * 改写后的工作表 XML，尚未改写时为 null
+     */
+    private byte[] patchedSheet;
+
+    /**
+     * 共享字符串表（只在日期列引用共享字符串时加载）
+     */
+    private List<String> sharedStrings;
+
+    /**
+     * 没有映射时扫描得到的“日期 -> 行号”映射，日期列有无法识别的单元格时为 null
+     */
+    private Map<String, Integer> scannedRows;
+
+    private SheetXmlPatcher(ZipFile zip) {
+        this.zip = zip;
+    }
+
+    static SheetXmlPatcher open(File file) throws IOException {
+        return new SheetXmlPatcher(new ZipFile(file));
+    }
+
+    /**
+     * 按提交改写工作表 XML（同一日期有多条提交时以最后一条为准，与逐条写入的结果一致）
+     *
+     * @param requests 考勤提交
+     * @param rows     当前文件版本的“日期 -> 行号”映射（行号从 0 开始），为 null 时逐行读取日期列定位
+     * @return 全部日期都已找到并改写时返回 true；返回 false 时不应写出文件
+     */
+    boolean patch(List<AttendanceRequest> requests, Map<String, Integer> rows) throws IOException {
+        ZipArchiveEntry sheetEntry = zip.getEntry(SHEET_ENTRY);
+        if (sheetEntry == null || countSheets() != 1) {
+            return false;
+        }
+
+        Map<String, AttendanceRequest> byDate = new LinkedHashMap<>();
+        for (AttendanceRequest request : requests) {
+            byDate.put(request.getDate(), request);
+        }
+
+        // 已有映射时只处理目标行：行号（从 1 开始，与 XML 一致）-> 日期
+        Map<Integer, String> targets = null;
+        if (rows != null) {
+            targets = new HashMap<>();
+            for (String date : byDate.keySet()) {
+                Integer row = rows.get(date);
+                if (row == null) {
+                    return false;
+                }
+                targets.put(row + 1, date);
+            }
+        }
+        Map<String, Integer> scanned = rows == null ? new HashMap<>() : null;
+        boolean scanComplete = true;
+
+        Set<String> patchedDates = new HashSet<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.max(8192, sheetEntry.getSize() + 1024));
+        try (InputStream in = zip.getInputStream(sheetEntry)) {
+            XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(in);
+            XMLEventWriter writer = OUTPUT_FACTORY.createXMLEventWriter(out, "UTF-8");
+            int rowNumber = 0;
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (!isElement(event, "row")) {
+                    writer.add(event);
+                    continue;
+                }
+
+                StartElement rowStart = event.asStartElement();
+                rowNumber = attributeInt(rowStart, "r", rowNumber + 1);
+                String target = null;
+                if (targets != null) {
+                    target = targets.get(rowNumber);
+                    if (target == null) {
+                        // 非目标行：行内事件由外层循环原样输出
+                        writer.add(event);
+                        continue;
+                    }
+                }
+
+                // 缓存整行，根据日期列决定原样输出还是改写
+                List<XMLEvent> rowEvents = readElement(reader, rowStart);
+                List<CellXml> cells = splitCells(rowEvents);
+                String date = dateOf(cells);
+                if (target != null) {
+                    // 日期列为字符串时校验映射；数值格式的日期由映射（完整加载工作簿时建立）保证
+                    if (date != null && !date.equals(target)) {
+                        return false;
+                    }
+                    date = target;
+                } else if (rowNumber > 1) {
+                    // 与 AttendanceRowIndex 一致：跳过表头，重复日期取第一行
+                    if (date != null) {
+                        scanned.putIfAbsent(date, rowNumber - 1);
+                    } else if (hasValue(cells)) {
+                        scanComplete = false;
+                    }
+                }
+                AttendanceRequest request = date != null ? byDate.get(date) : null;
+                if (request != null && patchedDates.add(date)) {
+                    // 重复日期只改写第一行
+                    writeRow(writer, rowStart, rowEvents, cells, rowNumber, request);
+                } else {
+                    for (XMLEvent rowEvent : rowEvents) {
+                        writer.add(rowEvent);
+                    }
+                }
+            }
+            writer.flush();
+            writer.close();
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("解析工作表失败: " + e.getMessage(), e);
+        }
+
+        if (scanned != null && scanComplete) {
+            scannedRows = scanned;
+        }
+        if (patchedDates.size() != byDate.size()) {
+            return false;
+        }
+        patchedSheet = out.toByteArray();
+        return true;
+    }
+
+    /**
+     * 没有映射时扫描得到的完整“日期 -> 行号”映射（行号从 0 开始）
+     *
+     * @return 使用了映射、或日期列有无法识别的单元格（如数值格式的日期）时返回 null
+     */
+    Map<String, Integer> getScannedRows() {
+        return scannedRows;
+    }
+
+    /**
+     * 写出改写后的文件：工作表写入新的 XML，其余条目原样复制压缩后的数据
+     */
+    void write(OutputStream out) throws IOException {
+        if (patchedSheet == null) {
+            throw new IllegalStateException("工作表尚未改写");
+        }
+        ZipArchiveOutputStream zipOut = new ZipArchiveOutputStream(out);
+        Enumeration<ZipArchiveEntry> entries = zip.getEntriesInPhysicalOrder();
+        while (entries.hasMoreElements()) {
+            ZipArchiveEntry entry = entries.nextElement();
+            if (SHEET_ENTRY.equals(entry.getName())) {
+                ZipArchiveEntry sheetEntry = new ZipArchiveEntry(entry.getName());
+                sheetEntry.setMethod(ZipEntry.DEFLATED);
+                sheetEntry.setTime(entry.getTime());
+                zipOut.putArchiveEntry(sheetEntry);
+                zipOut.write(patchedSheet);
+                zipOut.closeArchiveEntry();
+            } else {
+                try (InputStream raw = zip.getRawInputStream(entry)) {
+                    zipOut.addRawArchiveEntry(new ZipArchiveEntry(entry), raw);
+                }
+            }
+        }
+        // 只结束 zip 结构，输出流由调用方关闭
+        zipOut.finish();
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+
+    /**
+     * 输出改写后的行：保留第 1、2 列及第 8 列之后的单元格，第 3~8 列按提交生成（沿用原单元格样式）
+     */
+    private void writeRow(XMLEventWriter writer, StartElement rowStart, List<XMLEvent> rowEvents,
+                          List<CellXml> cells, int rowNumber, AttendanceRequest request) throws XMLStreamException {
+        String prefix = rowStart.getName().getPrefix();
+        String[] values = {
+                request.getStartTime(), request.getEndTime(), request.getLeaveType(),
+                request.getLeaveStartTime(), request.getLeaveEndTime(), request.getRemark()
+        };
+        values[2] = isBlank(values[2]) ? DEFAULT_LEAVE_TYPE : values[2];
+        String[] styles = new String[values.length];
+        for (CellXml cell : cells) {
+            if (cell.column >= FIRST_COLUMN && cell.column <= LAST_COLUMN) {
+                styles[cell.column - FIRST_COLUMN] = attribute(cell.start, "s");
+            }
+        }
+
+        writer.add(rowStart);
+        boolean generated = false;
+        int cellIndex = 0;
+        for (int i = 1; i < rowEvents.size() - 1; i++) {
+            CellXml cell = cellIndex < cells.size() && cells.get(cellIndex).startIndex == i ? cells.get(cellIndex) : null;
+            if (cell == null) {
+                // 行内的非单元格内容（如扩展元素）
+                writer.add(rowEvents.get(i));
+                continue;
+            }
+            cellIndex++;
+            if (!generated && cell.column >= FIRST_COLUMN) {
+                writeCells(writer, prefix, rowNumber, values, styles);
+                generated = true;
+            }
+            if (cell.column < FIRST_COLUMN || cell.column > LAST_COLUMN) {
+                for (int j = cell.startIndex; j <= cell.endIndex; j++) {
+                    writer.add(rowEvents.get(j));
+                }
+            }
+            i = cell.endIndex;
+        }
+        if (!generated) {
+            writeCells(writer, prefix, rowNumber, values, styles);
+        }
+        writer.add(rowEvents.get(rowEvents.size() - 1));
+    }
+
+    private void writeCells(XMLEventWriter writer, String prefix, int rowNumber, String[] values, String[] styles)
+            throws XMLStreamException {
+        for (int i = 0; i < values.length; i++) {
+            List<Attribute> attributes = new ArrayList<>(3);
+            attributes.add(EVENT_FACTORY.createAttribute("r", columnName(FIRST_COLUMN + i) + rowNumber));
+            if (styles[i] != null) {
+                attributes.add(EVENT_FACTORY.createAttribute("s", styles[i]));
+            }
+            if (isBlank(values[i])) {
+                // 清空单元格，保留样式
+                writer.add(EVENT_FACTORY.createStartElement(prefix, SPREADSHEET_NS, "c", attributes.iterator(), null));
+                writer.add(EVENT_FACTORY.createEndElement(prefix, SPREADSHEET_NS, "c"));
+                continue;
+            }
+
+            String value = values[i];
+            attributes.add(EVENT_FACTORY.createAttribute("t", "inlineStr"));
+            writer.add(EVENT_FACTORY.createStartElement(prefix, SPREADSHEET_NS, "c", attributes.iterator(), null));
+            writer.add(EVENT_FACTORY.createStartElement(prefix, SPREADSHEET_NS, "is"));
+            Iterator<Attribute> textAttributes = Collections.emptyIterator();
+            if (value.trim().length() != value.length()) {
+                textAttributes = Collections.singletonList(EVENT_FACTORY.createAttribute(
+                        new QName(XMLConstants.XML_NS_URI, "space", XMLConstants.XML_NS_PREFIX), "preserve")).iterator();
+            }
+            writer.add(EVENT_FACTORY.createStartElement(prefix, SPREADSHEET_NS, "t", textAttributes, null));
+            writer.add(EVENT_FACTORY.createCharacters(value));
+            writer.add(EVENT_FACTORY.createEndElement(prefix, SPREADSHEET_NS, "t"));
+            writer.add(EVENT_FACTORY.createEndElement(prefix, SPREADSHEET_NS, "is"));
+            writer.add(EVENT_FACTORY.createEndElement(prefix, SPREADSHEET_NS, "c"));
+        }
+    }
+
+    /**
+     * 读取元素的全部事件（包含开始与结束事件）
+     */
+    private static List<XMLEvent> readElement(XMLEventReader reader, StartElement start) throws XMLStreamException {
+        List<XMLEvent> events = new ArrayList<>(64);
+        events.add(start);
+        int depth = 1;
+        while (depth > 0) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement()) {
+                depth--;
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * 找出行内各单元格的事件范围与列号（没有 r 属性时按位置顺延）
+     */
+    private static List<CellXml> splitCells(List<XMLEvent> rowEvents) {
+        List<CellXml> cells = new ArrayList<>(8);
+        int column = -1;
+        for (int i = 1; i < rowEvents.size() - 1; i++) {
+            XMLEvent event = rowEvents.get(i);
+            if (!event.isStartElement()) {
+                continue;
+            }
+            StartElement start = event.asStartElement();
+            int end = i;
+            for (int depth = 1; depth > 0; ) {
+                XMLEvent next = rowEvents.get(++end);
+                if (next.isStartElement()) {
+                    depth++;
+                } else if (next.isEndElement()) {
+                    depth--;
+                }
+            }
+            if (isElement(start, "c")) {
+                String reference = attribute(start, "r");
+                column = reference != null ? columnIndex(reference) : column + 1;
+                cells.add(new CellXml(rowEvents, start, column, i, end));
+            }
+            i = end;
+        }
+        return cells;
+    }
+
+    /**
+     * 读取日期列（第1列）的文本，不是字符串单元格时返回 null
+     */
+    private String dateOf(List<CellXml> cells) throws IOException {
+        if (cells.isEmpty() || cells.get(0).column != 0) {
+            return null;
+        }
+        CellXml cell = cells.get(0);
+        String type = attribute(cell.start, "t");
+        if (type == null) {
+            return null;
+        }
+        switch (type) {
+            case "s":
+                try {
+                    int index = Integer.parseInt(cell.text("v").trim());
+                    List<String> strings = getSharedStrings();
+                    return index >= 0 && index < strings.size() ? strings.get(index).trim() : null;
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            case "inlineStr":
+                return cell.text("t").trim();
+            case "str":
+                return cell.text("v").trim();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 日期列（第1列）是否有值（无法识别为字符串日期时，扫描得到的映射不完整）
+     */
+    private static boolean hasValue(List<CellXml> cells) {
+        return !cells.isEmpty() && cells.get(0).column == 0 && !cells.get(0).text("v").trim().isEmpty();
+    }
+
+    private List<String> getSharedStrings() throws IOException {
+        if (sharedStrings != null) {
+            return sharedStrings;
+        }
+        sharedStrings = new ArrayList<>();
+        ZipArchiveEntry entry = zip.getEntry(SHARED_STRINGS_ENTRY);
+        if (entry == null) {
+            return sharedStrings;
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(in);
+            StringBuilder text = null;
+            // 富文本中的注音（rPh）不属于单元格文本
+            int phoneticDepth = 0;
+            boolean inText = false;
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartElement()) {
+                    if (isElement(event, "si")) {
+                        text = new StringBuilder();
+                    } else if (isElement(event, "rPh")) {
+                        phoneticDepth++;
+                    } else if (isElement(event, "t")) {
+                        inText = phoneticDepth == 0;
+                    }
+                } else if (event.isEndElement()) {
+                    String name = event.asEndElement().getName().getLocalPart();
+                    if ("si".equals(name) && text != null) {
+                        sharedStrings.add(text.toString());
+                        text = null;
+                    } else if ("rPh".equals(name)) {
+                        phoneticDepth--;
+                    } else if ("t".equals(name)) {
+                        inText = false;
+                    }
+                } else if (event.isCharacters() && inText && text != null) {
+                    text.append(event.asCharacters().getData());
+                }
+            }
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("解析共享字符串表失败: " + e.getMessage(), e);
+        }
+        return sharedStrings;
+    }
+
+    /**
+     * 工作簿中的工作表数量
+     */
+    private int countSheets() throws IOException {
+        ZipArchiveEntry entry = zip.getEntry(WORKBOOK_ENTRY);
+        if (entry == null) {
+            return 0;
+        }
+        int count = 0;
+        try (InputStream in = zip.getInputStream(entry)) {
+            XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(in);
+            while (reader.hasNext()) {
+                if (isElement(reader.nextEvent(), "sheet")) {
+                    count++;
+                }
+            }
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("解析工作簿失败: " + e.getMessage(), e);
+        }
+        return count;
+    }
+
+    private static boolean isElement(XMLEvent event, String localName) {
+        if (!event.isStartElement()) {
+            return false;
+        }
+        QName name = event.asStartElement().getName();
+        return localName.equals(name.getLocalPart()) && SPREADSHEET_NS.equals(name.getNamespaceURI());
+    }
+
+    private static String attribute(StartElement element, String name) {
+        Attribute attribute = element.getAttributeByName(new QName(name));
+        return attribute != null ? attribute.getValue() : null;
+    }
+
+    private static int attributeInt(StartElement element, String name, int defaultValue) {
+        String value = attribute(element, name);
+        try {
+            return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 单元格引用（如 C12）中的列号，从 0 开始
+     */
+    private static int columnIndex(String reference) {
+        int column = 0;
+        for (int i = 0; i < reference.length(); i++) {
+            char ch = reference.charAt(i);
+            if (ch < 'A' || ch > 'Z') {
+                break;
+            }
+            column = column * 26 + (ch - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    private static String columnName(int column) {
+        StringBuilder sb = new StringBuilder();
+        for (int n = column + 1; n > 0; n = (n - 1) / 26) {
+            sb.insert(0, (char) ('A' + (n - 1) % 26));
+        }
+        return sb.toString();
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    /**
+     * 行内单元格的事件范围
+     */
+    private static final class CellXml {
+        final List<XMLEvent> rowEvents;
+        final StartElement start;
+        final int column;
+        final int startIndex;
+        final int endIndex;
+
+        CellXml(List<XMLEvent> rowEvents, StartElement start, int column, int startIndex, int endIndex) {
+            this.rowEvents = rowEvents;
+            this.start = start;
+            this.column = column;
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+        }
+
+        /**
+         * 单元格内指定元素（v 或 t，不含注音 rPh 中的 t）的文本
+         */
+        String text(String localName) {
+            StringBuilder sb = new StringBuilder();
+            boolean inText = false;
+            int phoneticDepth = 0;
+            for (int i = startIndex + 1; i < endIndex; i++) {
+                XMLEvent event = rowEvents.get(i);
+                if (isElement(event, "rPh")) {
+                    phoneticDepth++;
+                } else if (isElement(event, localName)) {
+                    inText = phoneticDepth == 0;
+                } else if (event.isEndElement()) {
+                    String name = event.asEndElement().getName().getLocalPart();
+                    if ("rPh".equals(name)) {
+                        phoneticDepth--;
+                    } else if (localName.equals(name)) {
+                        inText = false;
+                    }
+                } else if (inText && event.isCharacters()) {
+                    sb.append(event.asCharacters().getData());
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package org.example.timecount.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.example.timecount.model.WorkHoursStatistics;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 工时统计实时推送（Server-Sent Events）
+ * 按“员工 + 月份”分组订阅。考勤提交生效后立即（合并短时间内的多次提交）重新计算一次统计，
+ * 只把与上次推送相比变化的字段和每日记录序列化一次，推送给该月份的全部连接；
+ * 配置、节假日变化及文件被外部修改由定时的版本检查发现。统计只在有订阅时计算，且与连接数无关。
+ * 定时线程只做版本检查（只读取文件属性）、合并提交通知与心跳；重新计算在单独的小线程池上执行，
+ * 每个分组同时最多一次计算，某个分组计算缓慢不会拖住其他分组的推送与心跳
+ */
+@Service
+@Slf4j
+public class StatisticsStreamService {
+
+    /**
+     * 连接超时（毫秒），超时后浏览器 EventSource 会自动重连
+     */
+    private static final long EMITTER_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+
+    /**
+     * 提交后延迟推送的时间（毫秒），期间同一月份的多次提交合并为一次计算
+     */
+    private static final long COALESCE_DELAY_MILLIS = 200;
+
+    /**
+     * 检查数据版本（配置、节假日、文件外部修改、日期变化）的间隔（毫秒）
+     */
+    private static final long CHECK_INTERVAL_MILLIS = 2000;
+
+    /**
+     * 心跳间隔（毫秒），保持连接并及时发现已断开的连接
+     */
+    private static final long HEARTBEAT_INTERVAL_MILLIS = 20000;
+
+    /**
+     * 最多同时保持的连接数
+     */
+    private static final int MAX_SUBSCRIBERS = 1000;
+
+    /**
+     * 重新计算的线程数
+     */
+    private static final int RECALCULATION_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+
+    private static final String DAILY_RECORDS = "dailyRecords";
+
+    private final WorkHoursCalculationService calculationService;
+    private final AttendanceFileStore fileStore;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 订阅分组：考勤文件路径 -> 分组
+     */
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    /**
+     * 版本检查、提交通知合并、心跳与连接的加入/离开在该线程上执行（不做耗时计算）
+     */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "statistics-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 重新计算与推送变化的线程池（每个分组最多占用一个任务，队列长度不超过分组数）
+     */
+    private final ThreadPoolExecutor recalculator;
+
+    public StatisticsStreamService(WorkHoursCalculationService calculationService, AttendanceFileStore fileStore,
+                                   ObjectMapper objectMapper, AttendanceService attendanceService) {
+        this.calculationService = calculationService;
+        this.fileStore = fileStore;
+        this.objectMapper = objectMapper;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.recalculator = new ThreadPoolExecutor(RECALCULATION_THREADS, RECALCULATION_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(MAX_SUBSCRIBERS), r -> {
+                    Thread thread = new Thread(r, "statistics-stream-calc-" + threadIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        attendanceService.addChangeListener(this::publishChange);
+        scheduler.scheduleWithFixedDelay(this::checkAll, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_INTERVAL_MILLIS, HEARTBEAT_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 订阅指定月份的统计更新
+     * 连接建立后先推送一次完整统计（statistics 事件），之后只推送变化部分（delta 事件）；
+     * 考勤文件不存在或无法计算时推送 unavailable 事件
+     *
+     * @param employeeId 员工编号，为空时订阅个人考勤文件
+     * @param yearMonth  年月，格式：YYYY-MM
+     */
+    public SseEmitter subscribe(String employeeId, String yearMonth) {
+        YearMonth.parse(yearMonth, DateTimeFormatter.ofPattern("yyyy-MM"));
+        String key = fileStore.resolveFile(employeeId, yearMonth).getAbsolutePath();
+        if (subscriberCount.incrementAndGet() > MAX_SUBSCRIBERS) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("实时推送连接数已达上限: " + MAX_SUBSCRIBERS);
+        }
+
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MILLIS);
+        AtomicBoolean removed = new AtomicBoolean();
+        Runnable remove = () -> {
+            if (removed.compareAndSet(false, true)) {
+                subscriberCount.decrementAndGet();
+                scheduler.execute(() -> leave(key, emitter));
+            }
+        };
+        emitter.onCompletion(remove);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> remove.run());
+
+        scheduler.execute(() -> join(key, employeeId, yearMonth, emitter));
+        log.debug("订阅统计推送: {} {}（当前连接 {} 个）", employeeId != null ? employeeId : "", yearMonth,
+                subscriberCount.get());
+        return emitter;
+    }
+
+    /**
+     * 考勤提交生效后调用：合并短时间内的多次通知，计算一次并推送变化
+     */
+    public void publishChange(String employeeId, String yearMonth) {
+        Topic topic = topics.get(fileStore.resolveFile(employeeId, yearMonth).getAbsolutePath());
+        if (topic != null) {
+            schedule(topic);
+        }
+    }
+
+    /**
+     * 配置或节假日变化后调用：所有订阅的月份重新计算并推送变化
+     */
+    public void publishAll() {
+        for (Topic topic : topics.values()) {
+            schedule(topic);
+        }
+    }
+
+    /**
+     * 当前连接数
+     */
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    private void schedule(Topic topic) {
+        if (topic.scheduled.compareAndSet(false, true)) {
+            scheduler.schedule(() -> {
+                topic.scheduled.set(false);
+                recalculate(topic);
+            }, COALESCE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 请求重新计算分组：已有计算在执行时只做标记，由该计算结束前再执行一次
+     */
+    private void recalculate(Topic topic) {
+        topic.pending.set(true);
+        if (!topic.running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            recalculator.execute(() -> runRecalculation(topic));
+        } catch (RejectedExecutionException e) {
+            topic.running.set(false);
+            log.warn("统计推送计算被拒绝: {} {} - {}", topic.employeeId != null ? topic.employeeId : "",
+                    topic.yearMonth, e.getMessage());
+        }
+    }
+
+    private void runRecalculation(Topic topic) {
+        try {
+            while (topic.pending.getAndSet(false)) {
+                update(topic);
+                welcome(topic);
+            }
+        } finally {
+            topic.running.set(false);
+            // 释放后才到达的请求
+            if (topic.pending.get()) {
+                recalculate(topic);
+            }
+        }
+    }
+
+    /**
+     * 新连接加入分组：分组更新到最新版本（变化推送给已有连接）后，再向新连接推送完整统计
+     */
+    private void join(String key, String employeeId, String yearMonth, SseEmitter emitter) {
+        Topic topic = topics.computeIfAbsent(key, k -> new Topic(employeeId, yearMonth));
+        topic.joining.add(emitter);
+        recalculate(topic);
+    }
+
+    /**
+     * 向等待加入的连接推送完整统计（或 unavailable），之后加入分组接收变化
+     */
+    private void welcome(Topic topic) {
+        SseEmitter emitter;
+        while ((emitter = topic.joining.poll()) != null) {
+            try {
+                if (topic.tree != null) {
+                    emitter.send(SseEmitter.event().name("statistics").id(topic.version)
+                            .data(objectMapper.writeValueAsString(topic.tree), MediaType.APPLICATION_JSON));
+                } else {
+                    emitter.send(SseEmitter.event().name("unavailable")
+                            .data(unavailable(topic), MediaType.APPLICATION_JSON));
+                }
+                topic.emitters.add(emitter);
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void leave(String key, SseEmitter emitter) {
+        Topic topic = topics.get(key);
+        if (topic != null) {
+            topic.joining.remove(emitter);
+            topic.emitters.remove(emitter);
+            if (topic.emitters.isEmpty() && topic.joining.isEmpty()) {
+                topics.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 定时版本检查：只比较数据版本（文件属性、配置、节假日、日期），有变化的分组交给线程池重新计算
+     */
+    private void checkAll() {
+        for (Topic topic : topics.values()) {
+            if (topic.emitters.isEmpty()) {
+                continue;
+            }
+            try {
+                String version = calculationService.getStatisticsVersion(topic.employeeId, topic.yearMonth);
+                if (version == null ? topic.tree != null : !version.equals(topic.version)) {
+                    recalculate(topic);
+                }
+            } catch (Exception e) {
+                log.warn("检查工时统计版本失败: {} {} - {}", topic.employeeId != null ? topic.employeeId : "",
+                        topic.yearMonth, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 数据版本变化时重新计算统计，推送与上次推送相比的变化（在计算线程池上执行，同一分组不会并发）
+     */
+    private void update(Topic topic) {
+        try {
+            String version = calculationService.getStatisticsVersion(topic.employeeId, topic.yearMonth);
+            if (version == null) {
+                if (topic.tree != null) {
+                    topic.version = null;
+                    topic.tree = null;
+                    broadcast(topic, SseEmitter.event().name("unavailable")
+                            .data(unavailable(topic), MediaType.APPLICATION_JSON));
+                }
+                return;
+            }
+            if (version.equals(topic.version)) {
+                return;
+            }
+
+            WorkHoursStatistics statistics = calculationService.calculateWorkHours(topic.employeeId, topic.yearMonth);
+            JsonNode tree = objectMapper.valueToTree(statistics);
+            ObjectNode delta = topic.tree != null ? diff(topic.tree, tree) : null;
+            JsonNode previous = topic.tree;
+            topic.version = version;
+            topic.tree = tree;
+
+            if (previous == null) {
+                // 考勤文件刚生成：推送完整统计
+                broadcast(topic, SseEmitter.event().name("statistics").id(version)
+                        .data(objectMapper.writeValueAsString(tree), MediaType.APPLICATION_JSON));
+            } else if (delta != null) {
+                delta.put("employeeId", topic.employeeId);
+                delta.put("yearMonth", topic.yearMonth);
+                broadcast(topic, SseEmitter.event().name("delta").id(version)
+                        .data(objectMapper.writeValueAsString(delta), MediaType.APPLICATION_JSON));
+            }
+        } catch (Exception e) {
+            log.warn("推送工时统计失败: {} {} - {}", topic.employeeId != null ? topic.employeeId : "",
+                    topic.yearMonth, e.getMessage());
+        }
+    }
+
+    /**
+     * 比较两次统计：返回变化的字段（changes）、新增或变化的每日记录（dailyRecords）与被删除的日期（removedDates），
+     * 没有变化时返回 null
+     */
+    private ObjectNode diff(JsonNode previous, JsonNode current) {
+        ObjectNode changes = objectMapper.createObjectNode();
+        Iterator<Map.Entry<String, JsonNode>> fields = current.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!DAILY_RECORDS.equals(field.getKey()) && !field.getValue().equals(previous.get(field.getKey()))) {
+                changes.set(field.getKey(), field.getValue());
+            }
+        }
+
+        Map<String, JsonNode> previousRecords = recordsByDate(previous.get(DAILY_RECORDS));
+        ArrayNode changedRecords = objectMapper.createArrayNode();
+        for (Map.Entry<String, JsonNode> record : recordsByDate(current.get(DAILY_RECORDS)).entrySet()) {
+            if (!record.getValue().equals(previousRecords.remove(record.getKey()))) {
+                changedRecords.add(record.getValue());
+            }
+        }
+
+        if (changes.size() == 0 && changedRecords.size() == 0 && previousRecords.isEmpty()) {
+            return null;
+        }
+        ObjectNode delta = objectMapper.createObjectNode();
+        delta.set("changes", changes);
+        delta.set(DAILY_RECORDS, changedRecords);
+        ArrayNode removedDates = delta.putArray("removedDates");
+        for (String date : previousRecords.keySet()) {
+            removedDates.add(date);
+        }
+        return delta;
+    }
+
+    private static Map<String, JsonNode> recordsByDate(JsonNode records) {
+        Map<String, JsonNode> result = new LinkedHashMap<>();
+        if (records != null) {
+            for (JsonNode record : records) {
+                result.put(record.path("date").asText(), record);
+            }
+        }
+        return result;
+    }
+
+    private String unavailable(Topic topic) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("employeeId", topic.employeeId);
+        body.put("yearMonth", topic.yearMonth);
+        body.put("message", "考勤文件不存在: " + topic.yearMonth);
+        return objectMapper.writeValueAsString(body);
+    }
+
+    private void heartbeat() {
+        for (Topic topic : topics.values()) {
+            broadcast(topic, SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    /**
+     * 向分组内的全部连接推送同一事件（事件内容已序列化），发送失败的连接会被关闭
+     */
+    private void broadcast(Topic topic, SseEmitter.SseEventBuilder event) {
+        for (SseEmitter emitter : topic.emitters) {
+            try {
+                emitter.send(event);
+            } catch (Exception e) {
+                topic.emitters.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        recalculator.shutdownNow();
+        for (Topic topic : topics.values()) {
+            for (SseEmitter emitter : topic.emitters) {
+                emitter.complete();
+            }
+        }
+    }
+
+    /**
+     * 订阅分组（员工 + 月份）
+     * 推送状态（version、tree）只由该分组正在执行的计算修改，同一时间最多一个计算（running）
+     */
+    private static final class Topic {
+        final String employeeId;
+        final String yearMonth;
+        final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        /**
+         * 等待推送完整统计后加入的连接
+         */
+        final Queue<SseEmitter> joining = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicBoolean running = new AtomicBoolean();
+        final AtomicBoolean pending = new AtomicBoolean();
+        volatile String version;
+        volatile JsonNode tree;
+
+        Topic(String employeeId, String yearMonth) {
+            this.employeeId = employeeId;
+            this.yearMonth = yearMonth;
+        }
+    }
+}
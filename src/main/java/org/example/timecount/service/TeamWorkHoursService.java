@@ -0,0 +1,206 @@
+package org.example.timecount.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.timecount.config.WorkHoursConfig;
+import org.example.timecount.model.EmployeeWorkHours;
+import org.example.timecount.model.TeamWorkHoursStatistics;
+import org.example.timecount.model.WorkHoursStatistics;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * 团队工时统计
+ * 每位员工的月度统计相互独立，在固定并行度的 ForkJoinPool 上并行计算后汇总，
+ * 并行度由 {@link WorkHoursConfig#getTeamParallelism()} 控制，不占用公共线程池。
+ * 团队人数不超过 {@link WorkHoursConfig#getTeamCacheMaxEntries()} 时解析结果缓存按团队人数扩容，
+ * 重复的团队统计可以命中缓存；超过时只读取缓存、不写入，避免每次统计都淘汰全部月份
+ */
+@Service
+@Slf4j
+public class TeamWorkHoursService {
+
+    private final WorkHoursConfig config;
+    private final WorkHoursCalculationService calculationService;
+    private final AttendanceFileStore fileStore;
+
+    /**
+     * 团队统计专用线程池
+     */
+    private final ForkJoinPool pool;
+
+    public TeamWorkHoursService(WorkHoursConfig config,
+                                WorkHoursCalculationService calculationService,
+                                AttendanceFileStore fileStore) {
+        this.config = config;
+        this.calculationService = calculationService;
+        this.fileStore = fileStore;
+        this.pool = new ForkJoinPool(Math.max(1, config.getTeamParallelism()), p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("team-workhours-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * 计算团队指定月份的工时统计
+     *
+     * @param yearMonth   年月，格式：YYYY-MM
+     * @param employeeIds 员工编号，为空时统计数据目录下的全部员工
+     * @return 团队工时统计结果
+     */
+    public TeamWorkHoursStatistics calculateTeamWorkHours(String yearMonth, List<String> employeeIds) {
+        long startTime = System.nanoTime();
+
+        List<String> employees = resolveEmployees(employeeIds);
+        for (String employeeId : employees) {
+            // 提前校验员工编号，避免非法路径进入并行计算
+            fileStore.employeeDirectory(employeeId);
+        }
+
+        boolean cacheResult = employees.size() <= config.getTeamCacheMaxEntries();
+        if (cacheResult) {
+            calculationService.reserveCache(employees.size());
+        }
+
+        List<ForkJoinTask<EmployeeWorkHours>> tasks = new ArrayList<>(employees.size());
+        for (String employeeId : employees) {
+            tasks.add(pool.submit(() -> calculateEmployee(employeeId, yearMonth, cacheResult)));
+        }
+
+        List<EmployeeWorkHours> results = new ArrayList<>(employees.size());
+        for (ForkJoinTask<EmployeeWorkHours> task : tasks) {
+            results.add(task.join());
+        }
+
+        TeamWorkHoursStatistics statistics = aggregate(yearMonth, results);
+        statistics.setElapsedMillis((System.nanoTime() - startTime) / 1_000_000);
+
+        log.info("团队工时计算完成: {}，员工 {} 人，失败 {} 人，耗时 {} 毫秒",
+                yearMonth, statistics.getEmployeeCount(), statistics.getFailureCount(), statistics.getElapsedMillis());
+        return statistics;
+    }
+
+    /**
+     * 获取团队统计结果的数据版本（各员工考勤文件的版本，不解析考勤文件），用于条件请求
+     *
+     * @return 数据版本，员工编号不合法时返回 null
+     */
+    public String getStatisticsVersion(String yearMonth, List<String> employeeIds) {
+        StringBuilder version = new StringBuilder(yearMonth);
+        try {
+            for (String employeeId : resolveEmployees(employeeIds)) {
+                version.append('|').append(employeeId).append('=')
+                        .append(calculationService.getStatisticsVersion(employeeId, yearMonth));
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return version.toString();
+    }
+
+    /**
+     * 获取全部员工编号
+     */
+    public List<String> listEmployees() {
+        return fileStore.listEmployees();
+    }
+
+    private List<String> resolveEmployees(List<String> employeeIds) {
+        if (employeeIds == null || employeeIds.isEmpty()) {
+            return fileStore.listEmployees();
+        }
+
+        // 去除空白与重复的员工编号，保持请求顺序
+        Set<String> employees = new LinkedHashSet<>();
+        for (String employeeId : employeeIds) {
+            if (employeeId != null && !employeeId.trim().isEmpty()) {
+                employees.add(employeeId.trim());
+            }
+        }
+        return new ArrayList<>(employees);
+    }
+
+    /**
+     * 计算单个员工的工时汇总（失败时记录原因，不影响其他员工）
+     */
+    private EmployeeWorkHours calculateEmployee(String employeeId, String yearMonth, boolean cacheResult) {
+        try {
+            WorkHoursStatistics statistics = calculationService.calculateWorkHours(employeeId, yearMonth, cacheResult);
+            return EmployeeWorkHours.builder()
+                    .employeeId(employeeId)
+                    .success(true)
+                    .totalWorkHours(statistics.getTotalWorkHours())
+                    .attendanceDays(statistics.getAttendanceDays())
+                    .averageWorkHoursPerDay(statistics.getAverageWorkHoursPerDay())
+                    .remainingHoursToTarget(statistics.getRemainingHoursToTarget())
+                    .totalLeaveHours(statistics.getTotalLeaveHours())
+                    .lateDays(statistics.getLateDays())
+                    .lateNightCheckInCount(statistics.getLateNightCheckInCount())
+                    .build();
+        } catch (Exception e) {
+            log.warn("员工工时计算失败: {} - {}", employeeId, e.getMessage());
+            return EmployeeWorkHours.builder()
+                    .employeeId(employeeId)
+                    .success(false)
+                    .message(e.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * 汇总团队统计
+     */
+    private TeamWorkHoursStatistics aggregate(String yearMonth, List<EmployeeWorkHours> results) {
+        double totalWorkHours = 0;
+        double totalLeaveHours = 0;
+        int totalAttendanceDays = 0;
+        int totalLateDays = 0;
+        int totalLateNightCheckInCount = 0;
+        int belowTargetCount = 0;
+        int successCount = 0;
+
+        for (EmployeeWorkHours result : results) {
+            if (!result.isSuccess()) continue;
+
+            successCount++;
+            totalWorkHours += result.getTotalWorkHours();
+            totalLeaveHours += result.getTotalLeaveHours();
+            totalAttendanceDays += result.getAttendanceDays();
+            totalLateDays += result.getLateDays();
+            totalLateNightCheckInCount += result.getLateNightCheckInCount();
+            if (result.getRemainingHoursToTarget() > 0) {
+                belowTargetCount++;
+            }
+        }
+
+        double averageWorkHoursPerEmployee = successCount > 0 ? totalWorkHours / successCount : 0.0;
+
+        return TeamWorkHoursStatistics.builder()
+                .yearMonth(yearMonth)
+                .employeeCount(results.size())
+                .failureCount(results.size() - successCount)
+                .totalWorkHours(Math.round(totalWorkHours * 100.0) / 100.0)
+                .averageWorkHoursPerEmployee(Math.round(averageWorkHoursPerEmployee * 100.0) / 100.0)
+                .totalAttendanceDays(totalAttendanceDays)
+                .totalLeaveHours(Math.round(totalLeaveHours * 100.0) / 100.0)
+                .totalLateDays(totalLateDays)
+                .totalLateNightCheckInCount(totalLateNightCheckInCount)
+                .belowTargetCount(belowTargetCount)
+                .employees(results)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,238 @@
+package org.example.timecount.service;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+
+/**
+ * 预编译的考勤模板骨架
+ * 由 POI 生成一份样板文件，保存其中与月份无关的部分（样式表、工作簿、关系、文档属性等）压缩后的原始字节，
+ * 以及工作表 XML 中 sheetData 之前和之后的片段。生成新模板时原样复制这些压缩数据（不再解压、压缩），
+ * 只按月份生成工作表的行数据与共享字符串表，生成的文件与 POI 方式在单元格内容和样式上一致
+ */
+final class TemplateSkeleton {
+
+    static final String SHEET_ENTRY = "xl/worksheets/sheet1.xml";
+    static final String SHARED_STRINGS_ENTRY = "xl/sharedStrings.xml";
+
+    private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+    private static final String SPREADSHEET_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String[] COLUMN_NAMES = {"A", "B", "C", "D", "E", "F", "G", "H"};
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    /**
+     * 骨架中的各个条目（按样板文件中的顺序），工作表与共享字符串表的条目只保留名称与时间
+     */
+    private final List<SkeletonEntry> entries;
+
+    /**
+     * 工作表 XML 中 dimension 之前、dimension 与 sheetData 之间、sheetData 之后的片段
+     */
+    private final String sheetHead;
+    private final String sheetMiddle;
+    private final String sheetTail;
+
+    private final String[] headers;
+    private final String[] weekdayNames;
+    private final String defaultLeaveType;
+    private final int headerStyle;
+    private final int dateStyle;
+    private final int timeStyle;
+
+    private TemplateSkeleton(List<SkeletonEntry> entries, String sheetHead, String sheetMiddle, String sheetTail,
+                             String[] headers, String[] weekdayNames, String defaultLeaveType,
+                             int headerStyle, int dateStyle, int timeStyle) {
+        this.entries = entries;
+        this.sheetHead = sheetHead;
+        this.sheetMiddle = sheetMiddle;
+        this.sheetTail = sheetTail;
+        this.headers = headers;
+        this.weekdayNames = weekdayNames;
+        this.defaultLeaveType = defaultLeaveType;
+        this.headerStyle = headerStyle;
+        this.dateStyle = dateStyle;
+        this.timeStyle = timeStyle;
+    }
+
+    /**
+     * 从 POI 生成的样板文件构建骨架
+     *
+     * @param prototype        样板文件（xlsx 字节）
+     * @param headers          表头
+     * @param weekdayNames     星期一到星期日的名称
+     * @param defaultLeaveType 请假类型列的默认值
+     * @param headerStyle      表头单元格样式序号
+     * @param dateStyle        日期、星期列样式序号
+     * @param timeStyle        其他列样式序号
+     */
+    static TemplateSkeleton build(byte[] prototype, String[] headers, String[] weekdayNames, String defaultLeaveType,
+                                  int headerStyle, int dateStyle, int timeStyle) throws IOException {
+        List<SkeletonEntry> entries = new ArrayList<>();
+        String sheetXml = null;
+        try (ZipFile zip = new ZipFile(new SeekableInMemoryByteChannel(prototype))) {
+            Enumeration<ZipArchiveEntry> zipEntries = zip.getEntriesInPhysicalOrder();
+            while (zipEntries.hasMoreElements()) {
+                ZipArchiveEntry entry = zipEntries.nextElement();
+                if (SHEET_ENTRY.equals(entry.getName())) {
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        sheetXml = new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8);
+                    }
+                    entries.add(new SkeletonEntry(entry, null));
+                } else if (SHARED_STRINGS_ENTRY.equals(entry.getName())) {
+                    entries.add(new SkeletonEntry(entry, null));
+                } else {
+                    try (InputStream raw = zip.getRawInputStream(entry)) {
+                        entries.add(new SkeletonEntry(entry, IOUtils.toByteArray(raw)));
+                    }
+                }
+            }
+        }
+        if (sheetXml == null) {
+            throw new IOException("样板文件中没有工作表: " + SHEET_ENTRY);
+        }
+
+        int dimensionStart = sheetXml.indexOf("<dimension ");
+        int dimensionEnd = sheetXml.indexOf("/>", dimensionStart) + 2;
+        int dataStart = sheetXml.indexOf("<sheetData");
+        int dataEnd = sheetXml.lastIndexOf("</sheetData>");
+        if (dimensionStart < 0 || dataStart < dimensionEnd || dataEnd < dataStart) {
+            throw new IOException("无法识别样板工作表的结构");
+        }
+        return new TemplateSkeleton(entries, sheetXml.substring(0, dimensionStart),
+                sheetXml.substring(dimensionEnd, dataStart), sheetXml.substring(dataEnd + "</sheetData>".length()),
+                headers.clone(), weekdayNames.clone(), defaultLeaveType, headerStyle, dateStyle, timeStyle);
+    }
+
+    /**
+     * 写出指定月份的新模板
+     */
+    void write(YearMonth yearMonth, OutputStream out) throws IOException {
+        Map<String, Integer> sharedStrings = new LinkedHashMap<>();
+        String sheetData = buildSheetData(yearMonth, sharedStrings);
+        int stringCount = headers.length + yearMonth.lengthOfMonth() * 3;
+
+        ZipArchiveOutputStream zip = new ZipArchiveOutputStream(out);
+        for (SkeletonEntry entry : entries) {
+            if (entry.rawData != null) {
+                // 原样复制压缩后的数据
+                zip.addRawArchiveEntry(new ZipArchiveEntry(entry.entry), new ByteArrayInputStream(entry.rawData));
+            } else if (SHEET_ENTRY.equals(entry.entry.getName())) {
+                writeEntry(zip, entry.entry, sheetHead
+                        + "<dimension ref=\"A1:H" + (yearMonth.lengthOfMonth() + 1) + "\"/>"
+                        + sheetMiddle + sheetData + sheetTail);
+            } else {
+                writeEntry(zip, entry.entry, buildSharedStrings(sharedStrings, stringCount));
+            }
+        }
+        // 只结束 zip 结构，输出流由调用方关闭
+        zip.finish();
+    }
+
+    private String buildSheetData(YearMonth yearMonth, Map<String, Integer> sharedStrings) {
+        StringBuilder sb = new StringBuilder(256 + yearMonth.lengthOfMonth() * 400);
+        sb.append("<sheetData>");
+
+        sb.append("<row r=\"1\">");
+        for (int col = 0; col < headers.length; col++) {
+            appendStringCell(sb, col, 1, headerStyle, headers[col], sharedStrings);
+        }
+        sb.append("</row>");
+
+        LocalDate date = yearMonth.atDay(1);
+        for (int day = 1; day <= yearMonth.lengthOfMonth(); day++, date = date.plusDays(1)) {
+            int rowNumber = day + 1;
+            sb.append("<row r=\"").append(rowNumber).append("\">");
+            appendStringCell(sb, 0, rowNumber, dateStyle, date.format(DATE_FORMATTER), sharedStrings);
+            appendStringCell(sb, 1, rowNumber, dateStyle, weekdayNames[date.getDayOfWeek().getValue() - 1], sharedStrings);
+            appendEmptyCell(sb, 2, rowNumber);
+            appendEmptyCell(sb, 3, rowNumber);
+            appendStringCell(sb, 4, rowNumber, timeStyle, defaultLeaveType, sharedStrings);
+            appendEmptyCell(sb, 5, rowNumber);
+            appendEmptyCell(sb, 6, rowNumber);
+            appendEmptyCell(sb, 7, rowNumber);
+            sb.append("</row>");
+        }
+
+        return sb.append("</sheetData>").toString();
+    }
+
+    private void appendStringCell(StringBuilder sb, int col, int rowNumber, int style, String value,
+                                  Map<String, Integer> sharedStrings) {
+        Integer index = sharedStrings.get(value);
+        if (index == null) {
+            index = sharedStrings.size();
+            sharedStrings.put(value, index);
+        }
+        sb.append("<c r=\"").append(COLUMN_NAMES[col]).append(rowNumber)
+                .append("\" s=\"").append(style).append("\" t=\"s\"><v>").append(index).append("</v></c>");
+    }
+
+    private void appendEmptyCell(StringBuilder sb, int col, int rowNumber) {
+        sb.append("<c r=\"").append(COLUMN_NAMES[col]).append(rowNumber)
+                .append("\" s=\"").append(timeStyle).append("\"/>");
+    }
+
+    private static String buildSharedStrings(Map<String, Integer> sharedStrings, int count) {
+        StringBuilder sb = new StringBuilder(XML_HEADER);
+        sb.append("<sst count=\"").append(count).append("\" uniqueCount=\"").append(sharedStrings.size())
+                .append("\" xmlns=\"").append(SPREADSHEET_NS).append("\">");
+        for (String value : sharedStrings.keySet()) {
+            sb.append("<si><t>");
+            escape(sb, value);
+            sb.append("</t></si>");
+        }
+        return sb.append("</sst>").toString();
+    }
+
+    private static void escape(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '&': sb.append("&amp;"); break;
+                case '<': sb.append("&lt;"); break;
+                case '>': sb.append("&gt;"); break;
+                default: sb.append(ch);
+            }
+        }
+    }
+
+    private static void writeEntry(ZipArchiveOutputStream zip, ZipArchiveEntry template, String content)
+            throws IOException {
+        ZipArchiveEntry entry = new ZipArchiveEntry(template.getName());
+        entry.setMethod(ZipEntry.DEFLATED);
+        entry.setTime(template.getTime());
+        zip.putArchiveEntry(entry);
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeArchiveEntry();
+    }
+
+    /**
+     * 骨架条目：原始压缩数据为 null 时表示该条目按月份生成
+     */
+    private static final class SkeletonEntry {
+        final ZipArchiveEntry entry;
+        final byte[] rawData;
+
+        SkeletonEntry(ZipArchiveEntry entry, byte[] rawData) {
+            this.entry = entry;
+            this.rawData = rawData;
+        }
+    }
+}
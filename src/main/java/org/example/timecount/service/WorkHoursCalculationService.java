@@ -2,23 +2,32 @@ package org.example.timecount.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.example.timecount.config.WorkHoursConfig;
+import org.example.timecount.model.AttendanceChanges;
+import org.example.timecount.model.AttendanceRequest;
 import org.example.timecount.model.DailyRecord;
+import org.example.timecount.model.PackedMonth;
 import org.example.timecount.model.WorkHoursStatistics;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 
 @Service
 @RequiredArgsConstructor
@@ -27,6 +36,27 @@ public class WorkHoursCalculationService {
 
     private final WorkHoursConfig config;
     private final HolidayService holidayService;
+    private final MonthRecordCache monthRecordCache;
+    private final AttendanceSheetReader sheetReader;
+    private final AttendanceFileStore fileStore;
+    private final AttendanceWriteBuffer writeBuffer;
+    private final WorkHoursMetrics metrics;
+    private final WorkHoursEngine engine;
+    private final AttendanceChangeLog changeLog;
+    private final AttendanceService attendanceService;
+
+    /**
+     * 正在读取的月份（考勤文件 + 数据版本 -> 读取结果），同一月份的并发请求共享一次读取
+     */
+    private final Map<String, CompletableFuture<MonthRecordCache.CachedMonth>> inFlightLoads = new ConcurrentHashMap<>();
+
+    /**
+     * 直接写入模式下，考勤文件被改写后增量更新缓存中的物化统计
+     */
+    @PostConstruct
+    public void registerWriteListener() {
+        attendanceService.addWriteListener(this::onAttendanceWritten);
+    }
 
     /**
      * 计算指定月份的工时统计
@@ -35,527 +65,641 @@ public class WorkHoursCalculationService {
      * @return 工时统计结果
      */
     public WorkHoursStatistics calculateWorkHours(String yearMonth) throws IOException {
+        return calculateWorkHours(null, yearMonth);
+    }
+
+    /**
+     * 计算指定员工、指定月份的工时统计
+     *
+     * @param employeeId 员工编号，为空时计算个人考勤文件
+     * @param yearMonth  年月，格式：YYYY-MM
+     * @return 工时统计结果
+     */
+    public WorkHoursStatistics calculateWorkHours(String employeeId, String yearMonth) throws IOException {
+        return calculateWorkHours(employeeId, yearMonth, true);
+    }
+
+    /**
+     * 计算指定员工、指定月份的工时统计
+     *
+     * @param employeeId 员工编号，为空时计算个人考勤文件
+     * @param yearMonth  年月，格式：YYYY-MM
+     * @param cacheResult 缓存未命中时是否把解析结果放入缓存（超大团队统计时不放入，避免淘汰其他月份）
+     * @return 工时统计结果
+     */
+    WorkHoursStatistics calculateWorkHours(String employeeId, String yearMonth, boolean cacheResult) throws IOException {
         // 读取Excel文件
-        String fileName = String.format("attendance_%s.xlsx", yearMonth);
-        File file = new File(config.getDataDirectory(), fileName);
+        File file = fileStore.resolveFile(employeeId, yearMonth);
 
         if (!file.exists()) {
             throw new IOException("考勤文件不存在: " + file.getAbsolutePath());
         }
 
-        List<DailyRecord> dailyRecords = new ArrayList<>();
         YearMonth ym = YearMonth.parse(yearMonth, DateTimeFormatter.ofPattern("yyyy-MM"));
         LocalDate today = LocalDate.now();
+        String monthKey = file.getAbsolutePath();
+        String version = buildVersion(file);
+
+        // 文件、配置和节假日均未变化时直接复用缓存
+        MonthRecordCache.CachedMonth cached = monthRecordCache.get(monthKey, version);
+        if (cached == null) {
+            if (!cacheResult) {
+                long start = System.nanoTime();
+                WorkHoursStatistics statistics = calculateStatistics(yearMonth, readMonth(file, ym), today);
+                metrics.recordStatistics(start);
+                return statistics;
+            }
+            cached = loadMonth(file, ym, monthKey, version);
+        }
 
-        try (FileInputStream fis = new FileInputStream(file);
-             Workbook workbook = new XSSFWorkbook(fis)) {
+        return statisticsOf(yearMonth, cached, today);
+    }
 
-            Sheet sheet = workbook.getSheetAt(0);
-            
-            // 跳过表头，从第二行开始读取
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null) continue;
-
-                DailyRecord record = parseRow(row, today);
-                if (record != null) {
-                    dailyRecords.add(record);
+    /**
+     * 读取缓存条目的物化统计：首次读取时逐天建立，之后只在日期变化或有修改时重新生成输出对象
+     */
+    private WorkHoursStatistics statisticsOf(String yearMonth, MonthRecordCache.CachedMonth cached, LocalDate today) {
+        MonthlyAggregate aggregate = cached.getAggregate();
+        synchronized (aggregate) {
+            WorkHoursStatistics statistics = aggregate.getStatistics(today);
+            if (statistics == null) {
+                long start = System.nanoTime();
+                if (!aggregate.isBuilt()) {
+                    PackedMonth month = cached.getMonth();
+                    aggregate.build(month.size(), i -> toDay(month, i));
+                }
+                statistics = toStatistics(yearMonth, aggregate, today);
+                metrics.recordStatistics(start);
+            }
+            return statistics;
+        }
+    }
+
+    /**
+     * 考勤文件被本服务改写后调用（持有该文件的写锁）：增量更新缓存中的物化统计
+     * 只重新解析被修改的日期，从累计值中减去这些日期的旧贡献、加上新贡献，缓存条目迁移到写入后的版本；
+     * 缓存中没有写入前版本的条目时不做处理，下次读取时重新解析
+     *
+     * @param file                考勤文件
+     * @param previousFileVersion 写入前的文件版本（修改时间 + 文件大小）
+     * @param applied             已写入的提交
+     */
+    void onAttendanceWritten(File file, String previousFileVersion, List<AttendanceRequest> applied) {
+        String monthKey = file.getAbsolutePath();
+        String version = buildVersion(file);
+        boolean updated = monthRecordCache.update(monthKey, buildVersion(previousFileVersion, file),
+                cached -> {
+                    // 写时复制：月度数据与物化统计都在副本上修改，原条目保持写入前的数据，
+                    // 正在读取原条目的线程不受影响，中途失败时原条目也不会被改动一半
+                    PackedMonth month = cached.getMonth().copy();
+                    MonthlyAggregate aggregate;
+                    synchronized (cached.getAggregate()) {
+                        // 尚未建立时得到空的副本，由新条目首次读取时按修改后的数据建立
+                        aggregate = cached.getAggregate().copy();
+                    }
+                    for (AttendanceRequest request : applied) {
+                        String[] cells = AttendanceSheetReader.toCells(request);
+                        parseRow(cells, month, true);
+                        int index = month.indexOf(LocalDate.parse(cells[0]));
+                        if (index < 0) {
+                            throw new IllegalStateException("缓存中未找到日期为 " + request.getDate() + " 的记录");
+                        }
+                        if (aggregate.isBuilt()) {
+                            aggregate.replace(index, toDay(month, index));
+                        }
+                    }
+                    return new MonthRecordCache.CachedMonth(version, month, aggregate);
+                });
+        if (updated) {
+            log.debug("已增量更新月度统计: {}（{} 天）", file.getName(), applied.size());
+        }
+    }
+
+    /**
+     * 校验物化统计：与重新读取考勤文件、逐天完整计算的结果比较
+     *
+     * @param employeeId 员工编号，为空时使用个人考勤文件
+     * @param yearMonth  年月，格式：YYYY-MM
+     * @return 是否一致，以及不一致的字段与日期
+     */
+    public Map<String, Object> verifyStatistics(String employeeId, String yearMonth) throws IOException {
+        File file = fileStore.resolveFile(employeeId, yearMonth);
+        if (!file.exists()) {
+            throw new IOException("考勤文件不存在: " + file.getAbsolutePath());
+        }
+
+        YearMonth ym = YearMonth.parse(yearMonth, DateTimeFormatter.ofPattern("yyyy-MM"));
+        LocalDate today = LocalDate.now();
+        WorkHoursStatistics materialized;
+        WorkHoursStatistics recomputed;
+
+        // 持有读锁，两次计算之间文件不会被改写
+        Lock readLock = fileStore.getLock(file).readLock();
+        readLock.lock();
+        try {
+            materialized = calculateWorkHours(employeeId, yearMonth);
+            recomputed = calculateStatistics(yearMonth, readMonth(file, ym), today);
+        } finally {
+            readLock.unlock();
+        }
+
+        List<String> differences = new ArrayList<>();
+        Map<String, Object> expected = summaryOf(recomputed);
+        Map<String, Object> actual = summaryOf(materialized);
+        for (Map.Entry<String, Object> field : expected.entrySet()) {
+            if (!Objects.equals(field.getValue(), actual.get(field.getKey()))) {
+                differences.add(field.getKey() + ": " + actual.get(field.getKey()) + "，重新计算为 " + field.getValue());
+            }
+        }
+        compareRecords("dailyRecords", materialized.getDailyRecords(), recomputed.getDailyRecords(), differences);
+        compareRecords("leaveRecords", materialized.getLeaveRecords(), recomputed.getLeaveRecords(), differences);
+        compareRecords("lateRecords", materialized.getLateRecords(), recomputed.getLateRecords(), differences);
+
+        if (!differences.isEmpty()) {
+            log.warn("物化统计与重新计算结果不一致: {} {}", file.getName(), differences);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("yearMonth", yearMonth);
+        result.put("employeeId", employeeId);
+        result.put("consistent", differences.isEmpty());
+        result.put("differences", differences);
+        return result;
+    }
+
+    private static void compareRecords(String name, List<DailyRecord> actual, List<DailyRecord> expected,
+                                       List<String> differences) {
+        if (actual.size() != expected.size()) {
+            differences.add(name + ": " + actual.size() + " 条，重新计算为 " + expected.size() + " 条");
+            return;
+        }
+        for (int i = 0; i < actual.size(); i++) {
+            if (!actual.get(i).equals(expected.get(i))) {
+                differences.add(name + ": " + expected.get(i).getDate());
+            }
+        }
+    }
+
+    /**
+     * 读取月份数据并放入缓存（single-flight）
+     * 同一文件、同一数据版本的并发调用只有第一个线程读取和解析考勤文件，其余线程等待并共享结果
+     */
+    private MonthRecordCache.CachedMonth loadMonth(File file, YearMonth yearMonth, String monthKey, String version)
+            throws IOException {
+        String loadKey = monthKey + "@" + version;
+        CompletableFuture<MonthRecordCache.CachedMonth> load = new CompletableFuture<>();
+        CompletableFuture<MonthRecordCache.CachedMonth> existing = inFlightLoads.putIfAbsent(loadKey, load);
+        if (existing != null) {
+            metrics.recordCoalescedLoad();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) throw (IOException) cause;
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                throw e;
+            }
+        }
+
+        try {
+            MonthRecordCache.CachedMonth cached = monthRecordCache.put(monthKey, version, readMonth(file, yearMonth));
+            load.complete(cached);
+            return cached;
+        } catch (Throwable e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(loadKey, load);
+        }
+    }
+
+    /**
+     * 获取指定员工、指定月份统计结果的数据版本（只读取文件属性，不解析考勤文件），用于条件请求
+     * 统计结果中的剩余工作日与请假判定依赖“今天”，月份已经结束时与今天无关
+     *
+     * @param employeeId 员工编号，为空时使用个人考勤文件
+     * @param yearMonth  年月，格式：YYYY-MM
+     * @return 数据版本，考勤文件不存在时返回 null
+     */
+    public String getStatisticsVersion(String employeeId, String yearMonth) {
+        File file = fileStore.resolveFile(employeeId, yearMonth);
+        if (!file.exists()) {
+            return null;
+        }
+        LocalDate today = LocalDate.now();
+        YearMonth ym = YearMonth.parse(yearMonth, DateTimeFormatter.ofPattern("yyyy-MM"));
+        String day = today.isAfter(ym.atEndOfMonth()) ? "past" : today.toString();
+        return buildVersion(file) + "-" + day;
+    }
+
+    /**
+     * 获取指定月份某个版本之后变化的每日记录，以及重新计算的月度汇总
+     * 客户端用返回的记录更新本地数据，并把返回的版本作为下次请求的 since
+     *
+     * @param employeeId 员工编号，为空时使用个人考勤文件
+     * @param yearMonth  年月，格式：YYYY-MM
+     * @param since      客户端已有的版本，为空时返回整月记录
+     */
+    public AttendanceChanges getChanges(String employeeId, String yearMonth, Long since) throws IOException {
+        File file = fileStore.resolveFile(employeeId, yearMonth);
+        if (!file.exists()) {
+            throw new IOException("考勤文件不存在: " + file.getAbsolutePath());
+        }
+
+        // 先取版本再计算：期间发生的修改会包含在本次结果中，下次请求时再返回一次
+        AttendanceChangeLog.Changes changes = changeLog.getChanges(file, since, changeFileVersion(file), ruleVersion());
+        WorkHoursStatistics statistics = calculateWorkHours(employeeId, yearMonth);
+
+        List<DailyRecord> records = statistics.getDailyRecords();
+        if (!changes.isFull()) {
+            Set<String> dates = new HashSet<>(changes.getDates());
+            records = new ArrayList<>();
+            for (DailyRecord record : statistics.getDailyRecords()) {
+                if (dates.contains(record.getDate().toString())) {
+                    records.add(record);
                 }
             }
         }
 
-        // 计算统计信息
-        return calculateStatistics(yearMonth, dailyRecords, today);
+        return AttendanceChanges.builder()
+                .yearMonth(yearMonth)
+                .employeeId(employeeId)
+                .since(since)
+                .version(changes.getVersion())
+                .full(changes.isFull())
+                .records(records)
+                .summary(summaryOf(statistics))
+                .build();
+    }
+
+    /**
+     * 获取指定月份的考勤变更版本（同时记录当前数据版本，之后的外部修改或规则变化能被 /changes 察觉）
+     */
+    public long getChangeVersion(String employeeId, String yearMonth) {
+        File file = fileStore.resolveFile(employeeId, yearMonth);
+        return changeLog.getVersion(file, changeFileVersion(file), ruleVersion());
+    }
+
+    /**
+     * 月度汇总字段（不含每日记录列表）
+     */
+    static Map<String, Object> summaryOf(WorkHoursStatistics statistics) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("totalWorkHours", statistics.getTotalWorkHours());
+        summary.put("attendanceDays", statistics.getAttendanceDays());
+        summary.put("actualAttendanceDays", statistics.getActualAttendanceDays());
+        summary.put("averageWorkHoursPerDay", statistics.getAverageWorkHoursPerDay());
+        summary.put("expectedTotalHours", statistics.getExpectedTotalHours());
+        summary.put("remainingHoursToTarget", statistics.getRemainingHoursToTarget());
+        summary.put("remainingWorkdays", statistics.getRemainingWorkdays());
+        summary.put("requiredAverageHoursForRemainingDays", statistics.getRequiredAverageHoursForRemainingDays());
+        summary.put("totalLeaveHours", statistics.getTotalLeaveHours());
+        summary.put("leaveDays", statistics.getLeaveDays());
+        summary.put("lateNightCheckInCount", statistics.getLateNightCheckInCount());
+        summary.put("lateDays", statistics.getLateDays());
+        return summary;
+    }
+
+    /**
+     * 为团队统计扩容解析结果缓存（见 {@link MonthRecordCache#reserve(int)}）
+     */
+    void reserveCache(int months) {
+        monthRecordCache.reserve(months);
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> getCacheStats() {
+        return monthRecordCache.getStats();
+    }
+
+    /**
+     * 构建数据版本号：文件修改时间 + 文件大小 + 待写入提交版本 + 配置版本 + 节假日版本
+     * （不读取文件内容，限制见 {@link MonthRecordCache}）
+     */
+    private String buildVersion(File file) {
+        return buildVersion(file.lastModified() + "-" + file.length(), file);
+    }
+
+    /**
+     * 构建数据版本号
+     *
+     * @param fileVersion 文件版本（修改时间 + 文件大小）
+     */
+    private String buildVersion(String fileVersion, File file) {
+        return fileVersion + "-" + writeBuffer.getVersion(file) + "-" + ruleVersion();
+    }
+
+    /**
+     * 变更版本使用的文件版本：文件修改时间 + 文件大小 + 待写入提交版本
+     */
+    private String changeFileVersion(File file) {
+        return file.lastModified() + "-" + file.length() + "-" + writeBuffer.getVersion(file);
+    }
+
+    /**
+     * 计算规则版本：配置版本 + 节假日版本
+     */
+    private String ruleVersion() {
+        return config.getVersion() + "-" + holidayService.getVersion();
+    }
+
+    /**
+     * 读取考勤文件中的每日记录
+     */
+    PackedMonth readMonth(File file, YearMonth yearMonth) throws IOException {
+        PackedMonth month = new PackedMonth(yearMonth.atDay(1), yearMonth.lengthOfMonth());
+
+        // 持有读锁，避免与同一文件的写入（重命名替换）交错
+        Lock readLock = fileStore.getLock(file).readLock();
+        readLock.lock();
+        try {
+            sheetReader.readRows(file, (rowIndex, cells) -> {
+                long start = System.nanoTime();
+                parseRow(cells, month, false);
+                metrics.recordRowParse(start);
+            });
+        } finally {
+            readLock.unlock();
+        }
+
+        // 叠加尚未写入文件的提交（延迟写入模式）
+        for (AttendanceRequest pending : writeBuffer.getPending(file)) {
+            parseRow(AttendanceSheetReader.toCells(pending), month, true);
+        }
+
+        return month;
     }
 
     /**
      * 解析Excel行数据
+     *
+     * @param cells   单元格字符串值
+     * @param month   解析结果写入的月度数据
+     * @param replace true 表示覆盖同一日期的已有记录（不存在时忽略），false 表示追加
      */
-    private DailyRecord parseRow(Row row, LocalDate today) {
+    private void parseRow(String[] cells, PackedMonth month, boolean replace) {
         try {
             // 读取日期
-            Cell dateCell = row.getCell(0);
-            if (dateCell == null || dateCell.getCellType() == CellType.BLANK) {
-                return null;
+            String dateStr = cells[0];
+            if (dateStr.isEmpty()) {
+                return;
             }
 
-            String dateStr = getCellValueAsString(dateCell);
             LocalDate date = LocalDate.parse(dateStr, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
 
             // 读取上班时间和下班时间
-            Cell startTimeCell = row.getCell(2);
-            Cell endTimeCell = row.getCell(3);
+            String startTimeStr = cells[2];
+            String endTimeStr = cells[3];
 
-            String startTimeStr = getCellValueAsString(startTimeCell);
-            String endTimeStr = getCellValueAsString(endTimeCell);
-
-            LocalTime startTime = parseTime(startTimeStr);
-            LocalTime endTime = parseTime(endTimeStr);
+            int startMinute = WorkHoursEngine.parseMinute(startTimeStr);
+            int endMinute = WorkHoursEngine.parseMinute(endTimeStr);
             
             // 读取请假类型（第5列）
-            Cell leaveTypeCell = row.getCell(4);
-            String leaveTypeStr = getCellValueAsString(leaveTypeCell);
+            String leaveTypeStr = cells[4];
             DailyRecord.LeaveType leaveType = DailyRecord.LeaveType.fromString(leaveTypeStr);
             
             // 读取请假开始时间（第6列）
-            Cell leaveStartCell = row.getCell(5);
-            String leaveStartStr = getCellValueAsString(leaveStartCell);
-            LocalTime leaveStartTime = parseTime(leaveStartStr);
+            String leaveStartStr = cells[5];
+            int leaveStartMinute = WorkHoursEngine.parseMinute(leaveStartStr);
             
             // 读取请假结束时间（第7列）
-            Cell leaveEndCell = row.getCell(6);
-            String leaveEndStr = getCellValueAsString(leaveEndCell);
-            LocalTime leaveEndTime = parseTime(leaveEndStr);
+            String leaveEndStr = cells[6];
+            int leaveEndMinute = WorkHoursEngine.parseMinute(leaveEndStr);
             
             // 读取备注（第8列）
-            Cell remarkCell = row.getCell(7);
-            String remark = getCellValueAsString(remarkCell);
+            String remark = cells[7];
+
+            // 时间解析不输出日志，有填写但无法解析的时间时每行只记录一次
+            if (isUnparsed(startTimeStr, startMinute) || isUnparsed(endTimeStr, endMinute)
+                    || isUnparsed(leaveStartStr, leaveStartMinute) || isUnparsed(leaveEndStr, leaveEndMinute)) {
+                log.warn("解析时间失败: {} - 上班: {}, 下班: {}, 请假: {} ~ {}",
+                        dateStr, startTimeStr, endTimeStr, leaveStartStr, leaveEndStr);
+            }
             
             // 添加调试日志
             log.debug("解析日期 {} - 上班: {}, 下班: {}, 请假: {} ~ {}", 
-                    dateStr, startTime, endTime, leaveStartTime, leaveEndTime);
+                    dateStr, startTimeStr, endTimeStr, leaveStartStr, leaveEndStr);
 
             // 判断是否为工作日（周一到周五）
             int dayOfWeek = date.getDayOfWeek().getValue();
-            String dayOfWeekStr = getDayOfWeekString(dayOfWeek);
             
             // 判断是否为法定节假日
             boolean isHoliday = holidayService.isHoliday(date);
             if (isHoliday) {
-                log.info("检测到法定节假日: {}", date);
+                log.debug("检测到法定节假日: {}", date);
             }
             
             // 判断是否为调休工作日
             boolean isMakeupWorkday = holidayService.isMakeupWorkday(date);
             if (isMakeupWorkday) {
-                log.info("检测到调休工作日: {}", date);
+                log.debug("检测到调休工作日: {}", date);
             }
             
             // 工作日判断：(周一到周五且不是法定节假日) 或 (调休工作日)
             boolean isWorkday = ((dayOfWeek >= 1 && dayOfWeek <= 5) && !isHoliday) || isMakeupWorkday;
 
-            // 计算请假时长（根据请假类型或时间段）
-            double leaveHours = 0.0;
-            switch (leaveType) {
-                case MORNING:
-                    leaveHours = 4.0; // 上午4小时
-                    log.debug("日期 {} 上午请假: {} 小时", dateStr, leaveHours);
-                    break;
-                case AFTERNOON:
-                    leaveHours = 4.0; // 下厈4小时
-                    log.debug("日期 {} 下午请假: {} 小时", dateStr, leaveHours);
-                    break;
-                case FULL_DAY:
-                    leaveHours = 8.0; // 全天8小时
-                    log.debug("日期 {} 全天请假: {} 小时", dateStr, leaveHours);
-                    break;
-                case CUSTOM:
-                    if (leaveStartTime != null && leaveEndTime != null) {
-                        leaveHours = Duration.between(leaveStartTime, leaveEndTime).toMinutes() / 60.0;
-                        log.debug("日期 {} 自定义请假时间段: {} ~ {}, 请假时长: {} 小时", 
-                                dateStr, leaveStartTime, leaveEndTime, leaveHours);
-                    }
-                    break;
-                case NONE:
-                default:
-                    leaveHours = 0.0;
-                    break;
-            }
-            
-            DailyRecord record = DailyRecord.builder()
-                    .date(date)
-                    .dayOfWeek(dayOfWeekStr)
-                    .startTime(startTime)
-                    .endTime(endTime)
-                    .endTimeRaw(endTimeStr)  // 保存原始字符串（包含+1标记）
-                    .leaveType(leaveType)
-                    .leaveStartTime(leaveStartTime)
-                    .leaveEndTime(leaveEndTime)
-                    .isWorkday(isWorkday)
-                    .isHoliday(isHoliday)
-                    .isLeave(leaveType != DailyRecord.LeaveType.NONE)
-                    .leaveHours(leaveHours)
-                    .remark(remark)
-                    .build();
-
-            // 计算工时
-            if (startTime != null && endTime != null) {
-                // 检查下班时间是否为次日
-                boolean isEndTimeNextDay = isNextDay(endTimeStr);
-                double workHours = calculateDailyWorkHours(startTime, endTime, isEndTimeNextDay, leaveType);
-                record.setWorkHours(workHours);
-                log.debug("日期 {} 计算工时: {} 小时{}", dateStr, workHours, isEndTimeNextDay ? "（跨天）" : "");
+            int flags = 0;
+            if (isWorkday) flags |= PackedMonth.FLAG_WORKDAY;
+            if (isHoliday) flags |= PackedMonth.FLAG_HOLIDAY;
+            // 检查下班时间是否为次日
+            if (WorkHoursEngine.isNextDay(endTimeStr)) flags |= PackedMonth.FLAG_END_NEXT_DAY;
+
+            if (!replace) {
+                month.append(date, startMinute, endMinute, endTimeStr, leaveType, leaveStartMinute, leaveEndMinute, flags, remark);
             } else {
-                log.debug("日期 {} 上下班时间不完整，跳过工时计算", dateStr);
+                int index = month.indexOf(date);
+                if (index >= 0) {
+                    month.set(index, date, startMinute, endMinute, endTimeStr, leaveType, leaveStartMinute, leaveEndMinute, flags, remark);
+                }
             }
 
-            return record;
-
         } catch (Exception e) {
             log.warn("解析行数据失败: {}", e.getMessage());
-            return null;
         }
     }
 
-
     /**
-     * 计算每日工时
-     * 新规则：出勤时长 = 下班卡 - 上班卡 - 用餐时间
-     * 
-     * 用餐时间扣除规则：
-     * 1. 上午请假：不扣除午休时间
-     * 2. 下午请假：不扣除晚餐时间
-     * 3. 全天请假：都不扣除
-     * 4. 正常出勤：
-     *    - 下班时间 < 12:00：不扣除
-     *    - 12:00 ≤ 下班时间 < 19:00：扣除午休1小时
-     *    - 下班时间 ≥ 19:00：扣除午休1小时 + 晚餐0.5小时
-     * 
-     * 跨天支持：
-     * - 如果下班时间标记为次日（+1），则加24小时计算
+     * 有填写但无法解析的时间
      */
-    private double calculateDailyWorkHours(LocalTime startTime, LocalTime endTime, boolean isEndTimeNextDay,
-                                          DailyRecord.LeaveType leaveType) {
-        if (startTime == null || endTime == null) {
-            return 0.0;
-        }
+    private static boolean isUnparsed(String timeStr, int minute) {
+        return minute == WorkHoursEngine.NO_TIME && timeStr != null && !timeStr.trim().isEmpty();
+    }
 
-        // 计算总工作时长（分钟）
-        long totalMinutes;
-        if (isEndTimeNextDay) {
-            // 跨天：加24小时
-            totalMinutes = Duration.between(startTime, endTime).toMinutes() + 24 * 60;
-            log.debug("  跨天计算: {} -> {}(次日)", startTime, endTime);
-        } else {
-            totalMinutes = Duration.between(startTime, endTime).toMinutes();
-        }
-        double totalHours = totalMinutes / 60.0;
-        
-        log.debug("  原始时长: {} 小时", String.format("%.2f", totalHours));
-
-        // 根据请假类型和下班时间判断用餐时间扣减
-        LocalTime lunchThreshold = LocalTime.of(12, 0);   // 12:00 午休临界点
-        LocalTime dinnerThreshold = LocalTime.of(config.getDinnerBreakThresholdHour(), 0); // 19:00 晚餐临界点
-        double mealTimeDeduction = 0.0;
-        
-        // 根据请假类型判断扣减规则
-        switch (leaveType) {
+    /**
+     * 计算请假时长（分钟，根据请假类型或时间段）
+     */
+    private int calculateLeaveMinutes(PackedMonth month, int index) {
+        switch (month.getLeaveType(index)) {
             case MORNING:
-                // 上午请假，不扣除午休时间，但可能扣除晚餐
-                // 跨天班次必定超过19点，扣除晚餐
-                if (isEndTimeNextDay || !endTime.isBefore(dinnerThreshold)) {
-                    mealTimeDeduction = 0.5; // 19点后下班或跨天，只扣晚餐
-                    log.debug("  上午请假，下班时间 {} {}，扣除晚餐 {} 小时", 
-                            endTime, isEndTimeNextDay ? "(次日)" : "晚于或等于 19:00", mealTimeDeduction);
-                } else {
-                    mealTimeDeduction = 0.0; // 19点前下班，不扣除
-                    log.debug("  上午请假，下班时间 {} 早于 19:00，不扣除用餐时间", endTime);
-                }
-                break;
-                
+                return 4 * 60; // 上午4小时
             case AFTERNOON:
-                // 下午请假，不扣除午休时间，也不扣除晚餐时间
-                mealTimeDeduction = 0.0;
-                log.debug("  下午请假，不扣除用餐时间");
-                break;
-                
+                return 4 * 60; // 下午4小时
             case FULL_DAY:
-                // 全天请假，不扣除任何用餐时间
-                mealTimeDeduction = 0.0;
-                log.debug("  全天请假，不扣除用餐时间");
-                break;
-                
+                return 8 * 60; // 全天8小时
             case CUSTOM:
+                int leaveStart = month.getLeaveStartMinute(index);
+                int leaveEnd = month.getLeaveEndMinute(index);
+                if (leaveStart >= 0 && leaveEnd >= 0) {
+                    return leaveEnd - leaveStart;
+                }
+                return 0;
             case NONE:
             default:
-                // 正常出勤或自定义请假，按下班时间判断
-                if (isEndTimeNextDay) {
-                    // 跨天班次：工作时间必定超过19点，扣除午休+晚餐
-                    mealTimeDeduction = 1.5;
-                    log.debug("  跨天班次，下班时间 {}(次日)，扣除午休+晚餐 {} 小时", endTime, mealTimeDeduction);
-                } else if (endTime.isBefore(lunchThreshold)) {
-                    // 12点前下班，不扣午休（通常是夜班早晨下班）
-                    mealTimeDeduction = 0.0;
-                    log.debug("  下班时间 {} 早于 12:00，不扣除用餐时间", endTime);
-                } else if (endTime.isBefore(dinnerThreshold)) {
-                    // 12点后但19点前下班，扣除午休1小时
-                    mealTimeDeduction = 1.0;
-                    log.debug("  下班时间 {} 在 12:00-19:00 之间，扣除午休 {} 小时", 
-                            endTime, mealTimeDeduction);
-                } else {
-                    // 19点及之后下班，扣除午休1小时 + 晚餐0.5小时
-                    mealTimeDeduction = 1.5;
-                    log.debug("  下班时间 {} 晚于或等于 19:00，扣除午休+晚餐 {} 小时", 
-                            endTime, mealTimeDeduction);
-                }
-                break;
-        }
-        
-        totalHours -= mealTimeDeduction;
-        if (isEndTimeNextDay) {
-            log.debug("  跨天班次，扣除用餐时间后: {} 小时", String.format("%.2f", totalHours));
-        } else {
-            log.debug("  扣除用餐时间后: {} 小时", String.format("%.2f", totalHours));
+                return 0;
         }
+    }
 
-        double finalHours = Math.max(0, totalHours);
-        log.debug("  最终工时: {} 小时", String.format("%.2f", finalHours));
-        
-        return finalHours;
+    /**
+     * 计算指定记录的工时，上下班时间不完整时为 0
+     */
+    private double calculateDailyWorkHours(PackedMonth month, int index) {
+        return engine.calculateDailyWorkHours(month.getStartMinute(index), month.getEndMinute(index),
+                month.hasFlag(index, PackedMonth.FLAG_END_NEXT_DAY), month.getLeaveType(index));
     }
 
     /**
-     * 计算统计信息
+     * 计算指定记录的工时（分钟），上下班时间不完整时为 0
      */
-    private WorkHoursStatistics calculateStatistics(String yearMonth, List<DailyRecord> dailyRecords, LocalDate today) {
-        double totalWorkHours = 0.0;
-        int attendanceDays = 0;
-        double totalLeaveHours = 0.0;
-        int leaveDays = 0;
-        List<DailyRecord> leaveRecords = new ArrayList<>();
-        int lateNightCheckInCount = 0;
-        int actualAttendanceDays = 0;
-        int lateDays = 0;
-        List<DailyRecord> lateRecords = new ArrayList<>();
-
-        // 获取标准上班时间
-        LocalTime standardStartTime = LocalTime.of(config.getStandardStartHour(), 0);
-
-        for (DailyRecord record : dailyRecords) {
-            if (record.getWorkHours() > 0) {
-                totalWorkHours += record.getWorkHours();
-                attendanceDays++;
-            }
-            if (record.isLeave()) {
-                totalLeaveHours += record.getLeaveHours();
-                leaveDays++;
-                leaveRecords.add(record);
-            }
-            
-            // 统计晚上九点后打卡次数
-            if (record.getEndTime() != null && record.getEndTime().isAfter(LocalTime.of(21, 0))) {
-                lateNightCheckInCount++;
-            }
-            
-            // 统计实际出勤天数（工作日且有上班或下班打卡记录）
-            if (record.isWorkday() && (record.getStartTime() != null || record.getEndTime() != null)) {
-                actualAttendanceDays++;
-            }
-            
-            // 统计迟到天数（晚于标准上班时间打卡且打卡时间段未请假）
-            if (record.isWorkday() && 
-                record.getStartTime() != null && 
-                record.getStartTime().isAfter(standardStartTime)) {
-                
-                boolean isLate = false;
-                
-                // 根据请假类型判断打卡时间点是否在请假时间段内
-                switch (record.getLeaveType()) {
-                    case NONE:
-                        // 没有请假，算迟到
-                        isLate = true;
-                        break;
-                        
-                    case MORNING:
-                        // 上午请假（09:00-12:00）
-                        // 如果打卡时间在上午时段内（< 12:00），不算迟到（在请假时段内）
-                        // 如果打卡时间在下午（>= 13:00），下午标准上班时间是13:00，需要判断是否晚于13:00
-                        LocalTime morningEnd = LocalTime.of(12, 0);
-                        LocalTime afternoonStart = LocalTime.of(13, 0);
-                        
-                        if (record.getStartTime().isBefore(morningEnd)) {
-                            // 打卡在上午请假时段内，不算迟到
-                            isLate = false;
-                        } else if (record.getStartTime().isBefore(afternoonStart)) {
-                            // 打卡在午休时段（12:00-13:00），不算迟到
-                            isLate = false;
-                        } else {
-                            // 打卡在下午（>= 13:00），下午标准上班时间是13:00
-                            // 只要不晚于13:00就不算迟到
-                            LocalTime afternoonStandardStart = LocalTime.of(13, 0);
-                            isLate = record.getStartTime().isAfter(afternoonStandardStart);
-                        }
-                        break;
-                        
-                    case AFTERNOON:
-                        // 下午请假（13:00-18:00）
-                        // 如果打卡时间在下午时段内（>= 13:00），不算迟到（在请假时段内）
-                        // 如果打卡时间在上午（< 13:00），需要判断是否晚于上午标准上班时间09:00
-                        LocalTime afternoonStartTime = LocalTime.of(13, 0);
-                        
-                        if (record.getStartTime().isBefore(afternoonStartTime)) {
-                            // 打卡在上午，判断是否晚于上午标准上班时间
-                            isLate = record.getStartTime().isAfter(standardStartTime);
-                        } else {
-                            // 打卡在下午请假时段内，不算迟到
-                            isLate = false;
-                        }
-                        break;
-                        
-                    case FULL_DAY:
-                        // 全天请假，不算迟到
-                        isLate = false;
-                        break;
-                        
-                    case CUSTOM:
-                        // 自定义请假时间段，判断打卡时间是否在请假时间段内
-                        if (record.getLeaveStartTime() != null && record.getLeaveEndTime() != null) {
-                            // 如果打卡时间在请假时间段外，算迟到
-                            isLate = record.getStartTime().isBefore(record.getLeaveStartTime()) || 
-                                     record.getStartTime().isAfter(record.getLeaveEndTime());
-                        } else {
-                            // 自定义请假但没有设置时间段，当作没请假处理
-                            isLate = true;
-                        }
-                        break;
-                        
-                    default:
-                        isLate = true;
-                        break;
-                }
-                
-                if (isLate) {
-                    lateDays++;
-                    lateRecords.add(record);
-                    log.debug("检测到迟到: {} {} 打卡时间: {}, 请假类型: {}", 
-                            record.getDate(), record.getDayOfWeek(), record.getStartTime(), record.getLeaveType());
-                } else {
-                    log.debug("打卡时间 {} 在请假时间段内，不算迟到: {} {}", 
-                            record.getStartTime(), record.getDate(), record.getLeaveType());
-                }
-            }
-        }
+    private int calculateDailyWorkMinutes(PackedMonth month, int index) {
+        return engine.calculateDailyWorkMinutes(month.getStartMinute(index), month.getEndMinute(index),
+                month.hasFlag(index, PackedMonth.FLAG_END_NEXT_DAY), month.getLeaveType(index));
+    }
+
+    /**
+     * 将紧凑记录转换为用于输出的每日记录
+     */
+    private DailyRecord toDailyRecord(PackedMonth month, int index, double workHours, double leaveHours) {
+        LocalDate date = month.getDate(index);
+        DailyRecord.LeaveType leaveType = month.getLeaveType(index);
+        return DailyRecord.builder()
+                .date(date)
+                .dayOfWeek(getDayOfWeekString(date.getDayOfWeek().getValue()))
+                .startTime(PackedMonth.toLocalTime(month.getStartMinute(index)))
+                .endTime(PackedMonth.toLocalTime(month.getEndMinute(index)))
+                .endTimeRaw(month.getEndTimeRaw(index))  // 原始字符串（包含+1标记）
+                .leaveType(leaveType)
+                .leaveStartTime(PackedMonth.toLocalTime(month.getLeaveStartMinute(index)))
+                .leaveEndTime(PackedMonth.toLocalTime(month.getLeaveEndMinute(index)))
+                .isWorkday(month.hasFlag(index, PackedMonth.FLAG_WORKDAY))
+                .isHoliday(month.hasFlag(index, PackedMonth.FLAG_HOLIDAY))
+                .isLeave(leaveType != DailyRecord.LeaveType.NONE)
+                .leaveHours(leaveHours)
+                .workHours(workHours)
+                .remark(month.getRemark(index))
+                .build();
+    }
 
-        // 计算平均工时
-        double averageWorkHoursPerDay = attendanceDays > 0 ? totalWorkHours / attendanceDays : 0.0;
 
-        // 计算距离期望总工时的差距
-        double remainingHoursToTarget = config.getExpectedTotalHours() - totalWorkHours;
+    /**
+     * 完整计算统计信息（逐天计算每一天的贡献并累计，不使用缓存中的物化统计）
+     */
+    WorkHoursStatistics calculateStatistics(String yearMonth, PackedMonth month, LocalDate today) {
+        MonthlyAggregate aggregate = new MonthlyAggregate();
+        aggregate.build(month.size(), i -> toDay(month, i));
+        return toStatistics(yearMonth, aggregate, today);
+    }
 
+    /**
+     * 由物化统计生成输出结果
+     */
+    private WorkHoursStatistics toStatistics(String yearMonth, MonthlyAggregate aggregate, LocalDate today) {
         // 计算剩余工作日
         YearMonth ym = YearMonth.parse(yearMonth, DateTimeFormatter.ofPattern("yyyy-MM"));
         int remainingWorkdays = calculateRemainingWorkdays(ym, today);
-
-        // 计算剩余工作日需要的日平均工时
-        double requiredAverageHoursForRemainingDays = remainingWorkdays > 0
-                ? remainingHoursToTarget / remainingWorkdays
-                : 0.0;
-
-        return WorkHoursStatistics.builder()
-                .yearMonth(yearMonth)
-                .totalWorkHours(Math.round(totalWorkHours * 100.0) / 100.0)
-                .attendanceDays(attendanceDays)
-                .averageWorkHoursPerDay(Math.round(averageWorkHoursPerDay * 100.0) / 100.0)
-                .expectedTotalHours(config.getExpectedTotalHours())
-                .remainingHoursToTarget(Math.round(remainingHoursToTarget * 100.0) / 100.0)
-                .remainingWorkdays(remainingWorkdays)
-                .requiredAverageHoursForRemainingDays(Math.round(requiredAverageHoursForRemainingDays * 100.0) / 100.0)
-                .totalLeaveHours(Math.round(totalLeaveHours * 100.0) / 100.0)
-                .leaveDays(leaveDays)
-                .dailyRecords(dailyRecords)
-                .leaveRecords(leaveRecords)
-                .lateNightCheckInCount(lateNightCheckInCount)
-                .actualAttendanceDays(actualAttendanceDays)
-                .lateDays(lateDays)
-                .lateRecords(lateRecords)
-                .build();
+        return aggregate.toStatistics(yearMonth, today, config.getExpectedTotalHours(), remainingWorkdays);
     }
 
     /**
-     * 计算剩余工作日（包含当天）
+     * 计算某一天对月度统计的贡献（直接基于紧凑数据计算，只为输出生成每日记录）
      */
-    private int calculateRemainingWorkdays(YearMonth yearMonth, LocalDate today) {
-        int count = 0;
-        LocalDate date = today; // 从今天开始计算
-        LocalDate endOfMonth = yearMonth.atEndOfMonth();
+    private MonthlyAggregate.Day toDay(PackedMonth month, int index) {
+        int workMinutes = calculateDailyWorkMinutes(month, index);
+        int leaveMinutes = calculateLeaveMinutes(month, index);
+        DailyRecord record = toDailyRecord(month, index, calculateDailyWorkHours(month, index), leaveMinutes / 60.0);
 
-        while (!date.isAfter(endOfMonth)) {
-            int dayOfWeek = date.getDayOfWeek().getValue();
-            boolean isHoliday = holidayService.isHoliday(date);
-            boolean isMakeupWorkday = holidayService.isMakeupWorkday(date);
-            
-            // 工作日判断：(周一到周五且不是法定节假日) 或 (调休工作日)
-            if (((dayOfWeek >= 1 && dayOfWeek <= 5) && !isHoliday) || isMakeupWorkday) {
-                count++;
-            }
-            date = date.plusDays(1);
-        }
+        int startMinute = month.getStartMinute(index);
+        int endMinute = month.getEndMinute(index);
+        boolean isWorkday = month.hasFlag(index, PackedMonth.FLAG_WORKDAY);
+        DailyRecord.LeaveType leaveType = month.getLeaveType(index);
 
-        return count;
-    }
+        // 获取标准上班时间（分钟）
+        int standardStartMinute = config.getStandardStartHour() * 60;
 
-    /**
-     * 解析时间字符串
-     * 支持格式：HH:mm 或 HH:mm+1（+1表示次日）
-     */
-    private LocalTime parseTime(String timeStr) {
-        if (timeStr == null || timeStr.trim().isEmpty()) {
-            return null;
-        }
+        // 统计晚上九点后打卡次数
+        boolean lateNightCheckIn = endMinute > 21 * 60;
 
-        try {
-            // 移除 +1 标记（次日标记），只解析时间部分
-            String cleanTimeStr = timeStr.replace("+1", "").trim();
+        // 统计实际出勤天数（工作日且有上班或下班打卡记录）
+        boolean actualAttendance = isWorkday && (startMinute >= 0 || endMinute >= 0);
+
+        // 统计迟到天数（晚于标准上班时间打卡且打卡时间段未请假）
+        boolean isLate = false;
+        if (isWorkday && startMinute >= 0 && startMinute > standardStartMinute) {
+            // 根据请假类型判断打卡时间点是否在请假时间段内
+            switch (leaveType) {
+                case NONE:
+                    // 没有请假，算迟到
+                    isLate = true;
+                    break;
+                    
+                case MORNING:
+                    // 上午请假（09:00-12:00）
+                    // 打卡在上午请假时段内（< 12:00）或午休时段（12:00-13:00），不算迟到
+                    // 打卡在下午（>= 13:00），下午标准上班时间是13:00，只要不晚于13:00就不算迟到
+                    isLate = startMinute > 13 * 60;
+                    break;
+                    
+                case AFTERNOON:
+                    // 下午请假（13:00-18:00）
+                    // 如果打卡时间在下午时段内（>= 13:00），不算迟到（在请假时段内）
+                    // 如果打卡时间在上午（< 13:00），需要判断是否晚于上午标准上班时间
+                    isLate = startMinute < 13 * 60 && startMinute > standardStartMinute;
+                    break;
+                    
+                case FULL_DAY:
+                    // 全天请假，不算迟到
+                    isLate = false;
+                    break;
+                    
+                case CUSTOM:
+                    // 自定义请假时间段，判断打卡时间是否在请假时间段内
+                    int leaveStart = month.getLeaveStartMinute(index);
+                    int leaveEnd = month.getLeaveEndMinute(index);
+                    if (leaveStart >= 0 && leaveEnd >= 0) {
+                        // 如果打卡时间在请假时间段外，算迟到
+                        isLate = startMinute < leaveStart || startMinute > leaveEnd;
+                    } else {
+                        // 自定义请假但没有设置时间段，当作没请假处理
+                        isLate = true;
+                    }
+                    break;
+                    
+                default:
+                    isLate = true;
+                    break;
+            }
             
-            // 支持格式：HH:mm 或 H:mm
-            if (cleanTimeStr.contains(":")) {
-                String[] parts = cleanTimeStr.split(":");
-                int hour = Integer.parseInt(parts[0].trim());
-                int minute = Integer.parseInt(parts[1].trim());
-                return LocalTime.of(hour, minute);
+            if (isLate) {
+                log.debug("检测到迟到: {} {} 打卡时间: {}, 请假类型: {}", 
+                        record.getDate(), record.getDayOfWeek(), record.getStartTime(), leaveType);
+            } else {
+                log.debug("打卡时间 {} 在请假时间段内，不算迟到: {} {}", 
+                        record.getStartTime(), record.getDate(), leaveType);
             }
-        } catch (Exception e) {
-            log.warn("解析时间失败: {}", timeStr);
         }
 
-        return null;
-    }
-    
-    /**
-     * 检查时间字符串是否包含次日标记
-     */
-    private boolean isNextDay(String timeStr) {
-        return timeStr != null && timeStr.contains("+1");
+        return new MonthlyAggregate.Day(record, workMinutes, leaveMinutes, lateNightCheckIn, actualAttendance, isLate);
     }
 
     /**
-     * 获取单元格值为字符串
+     * 计算剩余工作日（包含当天）
      */
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) {
-            return "";
-        }
-
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue().trim();
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    // 检查是否为时间格式
-                    try {
-                        LocalTime time = cell.getLocalDateTimeCellValue().toLocalTime();
-                        return time.format(DateTimeFormatter.ofPattern("H:mm"));
-                    } catch (Exception e1) {
-                        // 如果不是时间，尝试解析为日期
-                        try {
-                            return cell.getLocalDateTimeCellValue().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-                        } catch (Exception e2) {
-                            log.warn("日期格式解析失败: {}", e2.getMessage());
-                            return "";
-                        }
-                    }
-                } else {
-                    return String.valueOf((int) cell.getNumericCellValue());
-                }
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                return cell.getCellFormula();
-            default:
-                return "";
-        }
+    private int calculateRemainingWorkdays(YearMonth yearMonth, LocalDate today) {
+        // 从今天开始计算到月底
+        return holidayService.countWorkdays(today, yearMonth.atEndOfMonth());
     }
-    
+
     /**
      * 获取星期的中文字符串
      */
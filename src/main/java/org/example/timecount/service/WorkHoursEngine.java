@@ -0,0 +1,197 @@
+package org.example.timecount.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.timecount.config.WorkHoursConfig;
+import org.example.timecount.model.DailyRecord;
+import org.springframework.stereotype.Component;
+
+/**
+ * 工时计算引擎
+ * 时间统一表示为当天的分钟数（-1 表示未填写），解析与每日工时计算都只使用整数运算，
+ * 每天的计算不分配任何对象（也不输出逐日调试日志）；分钟数只在最后一步换算为小时
+ */
+@Component
+@RequiredArgsConstructor
+public class WorkHoursEngine {
+
+    /**
+     * 未填写的时间
+     */
+    public static final int NO_TIME = -1;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    /**
+     * 午休临界点 12:00
+     */
+    private static final int LUNCH_THRESHOLD_MINUTE = 12 * 60;
+
+    /**
+     * 午休扣除 1 小时
+     */
+    private static final int LUNCH_BREAK_MINUTES = 60;
+
+    /**
+     * 晚餐扣除 0.5 小时
+     */
+    private static final int DINNER_BREAK_MINUTES = 30;
+
+    private final WorkHoursConfig config;
+
+    /**
+     * 解析时间字符串为当天的分钟数
+     * 支持格式：H:mm、HH:mm，可带次日标记 +1（次日标记由 {@link #isNextDay(String)} 判断）。
+     * 常见格式按字符直接扫描；其他写法按原有规则（去掉 +1、按冒号拆分）解析，结果保持一致。
+     * 解析失败不输出日志（逐天调用），由调用方按行记录
+     *
+     * @return 分钟数，为空或无法解析时返回 {@link #NO_TIME}
+     */
+    public static int parseMinute(String timeStr) {
+        if (timeStr == null) {
+            return NO_TIME;
+        }
+
+        int begin = 0;
+        int end = timeStr.length();
+        while (begin < end && timeStr.charAt(begin) <= ' ') begin++;
+        while (end > begin && timeStr.charAt(end - 1) <= ' ') end--;
+        if (begin == end) {
+            return NO_TIME;
+        }
+
+        // 去掉末尾的次日标记
+        if (end - begin > 2 && timeStr.charAt(end - 2) == '+' && timeStr.charAt(end - 1) == '1') {
+            end -= 2;
+            while (end > begin && timeStr.charAt(end - 1) <= ' ') end--;
+        }
+
+        int colon = end - begin >= 4 && timeStr.charAt(end - 3) == ':' ? end - 3
+                : end - begin >= 3 && timeStr.charAt(end - 2) == ':' ? end - 2 : -1;
+        if (colon - begin == 1 || colon - begin == 2) {
+            int hour = parseDigits(timeStr, begin, colon);
+            int minute = parseDigits(timeStr, colon + 1, end);
+            if (hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59) {
+                return hour * 60 + minute;
+            }
+        }
+        return parseMinuteSlow(timeStr);
+    }
+
+    /**
+     * 检查时间字符串是否包含次日标记
+     */
+    public static boolean isNextDay(String timeStr) {
+        return timeStr != null && timeStr.contains("+1");
+    }
+
+    /**
+     * 计算每日工时
+     * 规则：出勤时长 = 下班卡 - 上班卡 - 用餐时间（用餐扣除规则见 {@link #mealBreakMinutes}），
+     * 下班时间为次日（+1）时加24小时计算
+     *
+     * @param startMinute 上班时间（分钟数）
+     * @param endMinute   下班时间（分钟数）
+     * @param endNextDay  下班时间是否为次日
+     * @param leaveType   请假类型
+     * @return 工时（小时），上下班时间不完整时为 0
+     */
+    public double calculateDailyWorkHours(int startMinute, int endMinute, boolean endNextDay,
+                                          DailyRecord.LeaveType leaveType) {
+        if (startMinute < 0 || endMinute < 0) {
+            return 0.0;
+        }
+
+        int totalMinutes = endMinute - startMinute + (endNextDay ? MINUTES_PER_DAY : 0);
+        int mealMinutes = mealBreakMinutes(endMinute, endNextDay, leaveType);
+
+        // 扣除时长（0 / 0.5 / 1 / 1.5 小时）可被二进制浮点精确表示，结果与按小时逐步扣减完全一致
+        return Math.max(0, totalMinutes / 60.0 - mealMinutes / 60.0);
+    }
+
+    /**
+     * 计算每日工时（分钟），规则同 {@link #calculateDailyWorkHours}，用于按分钟累计月度总工时
+     *
+     * @return 工时（分钟），上下班时间不完整时为 0
+     */
+    public int calculateDailyWorkMinutes(int startMinute, int endMinute, boolean endNextDay,
+                                         DailyRecord.LeaveType leaveType) {
+        if (startMinute < 0 || endMinute < 0) {
+            return 0;
+        }
+
+        int totalMinutes = endMinute - startMinute + (endNextDay ? MINUTES_PER_DAY : 0);
+        return Math.max(0, totalMinutes - mealBreakMinutes(endMinute, endNextDay, leaveType));
+    }
+
+    /**
+     * 用餐时间扣除（分钟）
+     * 1. 上午请假：不扣除午休时间，19:00 及之后下班或跨天扣除晚餐
+     * 2. 下午请假：不扣除用餐时间
+     * 3. 全天请假：不扣除用餐时间
+     * 4. 正常出勤或自定义请假：
+     *    - 下班时间 < 12:00：不扣除
+     *    - 12:00 ≤ 下班时间 < 19:00：扣除午休
+     *    - 下班时间 ≥ 19:00 或跨天：扣除午休 + 晚餐
+     */
+    int mealBreakMinutes(int endMinute, boolean endNextDay, DailyRecord.LeaveType leaveType) {
+        int dinnerThreshold = config.getDinnerBreakThresholdHour() * 60;
+        switch (leaveType) {
+            case MORNING:
+                return endNextDay || endMinute >= dinnerThreshold ? DINNER_BREAK_MINUTES : 0;
+            case AFTERNOON:
+            case FULL_DAY:
+                return 0;
+            case CUSTOM:
+            case NONE:
+            default:
+                if (endNextDay || endMinute >= dinnerThreshold) {
+                    return LUNCH_BREAK_MINUTES + DINNER_BREAK_MINUTES;
+                }
+                return endMinute >= LUNCH_THRESHOLD_MINUTE ? LUNCH_BREAK_MINUTES : 0;
+        }
+    }
+
+    /**
+     * 解析 1~2 位 ASCII 数字，包含其他字符时返回 -1
+     */
+    private static int parseDigits(String text, int begin, int end) {
+        int value = 0;
+        for (int i = begin; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * 非常见写法的解析（去掉 +1 标记后按冒号拆分）
+     */
+    private static int parseMinuteSlow(String timeStr) {
+        if (timeStr.trim().isEmpty()) {
+            return NO_TIME;
+        }
+
+        try {
+            // 移除 +1 标记（次日标记），只解析时间部分
+            String cleanTimeStr = timeStr.replace("+1", "").trim();
+
+            // 支持格式：HH:mm 或 H:mm
+            if (cleanTimeStr.contains(":")) {
+                String[] parts = cleanTimeStr.split(":");
+                int hour = Integer.parseInt(parts[0].trim());
+                int minute = Integer.parseInt(parts[1].trim());
+                if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+                    throw new IllegalArgumentException("时间超出范围");
+                }
+                return hour * 60 + minute;
+            }
+        } catch (Exception e) {
+            // 无法解析，返回 NO_TIME
+        }
+
+        return NO_TIME;
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.timecount.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 工时服务监控指标
+ * 对考勤文件处理的各个阶段计时，并统计读写字节数，通过 /actuator/prometheus 暴露。
+ * 百分位直方图在 application.properties 中按指标名前缀（workhours）统一开启
+ */
+@Component
+public class WorkHoursMetrics {
+
+    /**
+     * 打开考勤文件（文件流 / OOXML 包）
+     */
+    private final Timer fileOpenTimer;
+
+    /**
+     * 构建 POI 工作簿（DOM 方式）或读取共享字符串表（SAX 方式）
+     */
+    private final Timer workbookLoadTimer;
+
+    /**
+     * 解析单行考勤数据
+     */
+    private final Timer rowParseTimer;
+
+    /**
+     * 计算月度统计
+     */
+    private final Timer statisticsTimer;
+
+    /**
+     * 写入考勤文件（含刷盘与原子重命名）
+     */
+    private final Timer workbookWriteTimer;
+
+    private final Counter bytesRead;
+
+    private final Counter bytesWritten;
+
+    /**
+     * 并发请求同一月份时等待并共享其他线程读取结果的次数
+     */
+    private final Counter coalescedLoads;
+
+    /**
+     * 考勤提交无法直接改写工作表 XML、改为完整加载工作簿的次数
+     */
+    private final Counter patchFallbacks;
+
+    public WorkHoursMetrics(MeterRegistry registry) {
+        this.fileOpenTimer = Timer.builder("workhours.file.open")
+                .description("打开考勤文件耗时")
+                .register(registry);
+        this.workbookLoadTimer = Timer.builder("workhours.workbook.load")
+                .description("构建工作簿耗时")
+                .register(registry);
+        this.rowParseTimer = Timer.builder("workhours.row.parse")
+                .description("解析单行考勤数据耗时")
+                .register(registry);
+        this.statisticsTimer = Timer.builder("workhours.statistics.calculate")
+                .description("计算月度统计耗时")
+                .register(registry);
+        this.workbookWriteTimer = Timer.builder("workhours.workbook.write")
+                .description("写入考勤文件耗时")
+                .register(registry);
+        this.bytesRead = Counter.builder("workhours.file.read.bytes")
+                .description("读取的考勤文件字节数")
+                .baseUnit("bytes")
+                .register(registry);
+        this.bytesWritten = Counter.builder("workhours.file.written.bytes")
+                .description("写入的考勤文件字节数")
+                .baseUnit("bytes")
+                .register(registry);
+        this.coalescedLoads = Counter.builder("workhours.month.load.coalesced")
+                .description("合并到同一次读取的并发月份读取次数")
+                .register(registry);
+        this.patchFallbacks = Counter.builder("workhours.attendance.patch.fallback")
+                .description("无法直接改写工作表 XML、改为完整加载工作簿的提交次数")
+                .register(registry);
+    }
+
+    public void recordFileOpen(long startNanos) {
+        fileOpenTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordWorkbookLoad(long startNanos) {
+        workbookLoadTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRowParse(long startNanos) {
+        rowParseTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordStatistics(long startNanos) {
+        statisticsTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordWorkbookWrite(long startNanos) {
+        workbookWriteTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBytesRead(long bytes) {
+        bytesRead.increment(bytes);
+    }
+
+    public void recordBytesWritten(long bytes) {
+        bytesWritten.increment(bytes);
+    }
+
+    public void recordCoalescedLoad() {
+        coalescedLoads.increment();
+    }
+
+    public void recordPatchFallback() {
+        patchFallbacks.increment();
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.timecount.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.example.timecount.config.WorkHoursConfig;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 耗时接口的请求线程池
+ * 读取考勤文件、计算统计、生成报告等接口在固定大小的线程池上执行，不占用 Tomcat 请求线程，
+ * 突发请求时 /health、/config 等轻量接口仍可及时响应；等待队列有上限，线程与队列都已满时立即拒绝，
+ * 由调用方返回 503 和 Retry-After，而不是让请求无限堆积
+ */
+@Component
+@Slf4j
+public class WorkHoursRequestExecutor implements MeterBinder {
+
+    private final ThreadPoolExecutor executor;
+
+    private final int retryAfterSeconds;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    public WorkHoursRequestExecutor(WorkHoursConfig config) {
+        int threads = Math.max(1, config.getRequestParallelism());
+        this.retryAfterSeconds = Math.max(1, config.getRequestRetryAfterSeconds());
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.getRequestQueueCapacity())),
+                r -> {
+                    Thread thread = new Thread(r, "workhours-request-" + threadIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (r, pool) -> {
+                    rejected.incrementAndGet();
+                    throw new RejectedExecutionException("请求线程池已满（" + pool.getActiveCount() + " 个执行中，"
+                            + pool.getQueue().size() + " 个排队）");
+                });
+    }
+
+    /**
+     * 提交耗时请求
+     *
+     * @param task 请求处理（异常由 task 自行转换为错误响应）
+     * @return 处理结果
+     * @throws RejectedExecutionException 线程与等待队列都已满
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    /**
+     * 被拒绝时建议客户端的重试间隔（秒）
+     */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * 注册线程池指标：执行中、排队中的请求数与拒绝次数
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("workhours.request.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("耗时接口执行中的请求数")
+                .register(registry);
+        Gauge.builder("workhours.request.queued", executor, pool -> pool.getQueue().size())
+                .description("耗时接口排队中的请求数")
+                .register(registry);
+        FunctionCounter.builder("workhours.request.rejected", rejected, AtomicLong::get)
+                .description("线程池已满被拒绝的请求数")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,199 @@
+package org.example.timecount.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.timecount.config.WorkHoursConfig;
+import org.example.timecount.model.MonthWorkHours;
+import org.example.timecount.model.WorkHoursStatistics;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.beans.PropertyDescriptor;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * 多月份工时查询
+ * 一次请求返回多个月份的统计与每日记录（如仪表盘、日历的前后月份），各月份在固定并行度的 ForkJoinPool 上并行计算，
+ * 每个月份通过 {@link WorkHoursCalculationService} 的缓存只解析一次考勤文件；可只返回需要的统计字段
+ */
+@Service
+@Slf4j
+public class WorkHoursViewService {
+
+    /**
+     * 单次请求最多查询的月份数
+     */
+    public static final int MAX_MONTHS = 24;
+
+    /**
+     * 可选的统计字段（与 {@link WorkHoursStatistics} 的属性名一致，保持声明顺序）
+     */
+    private static final Set<String> STATISTICS_FIELDS;
+
+    static {
+        Set<String> fields = new LinkedHashSet<>();
+        for (PropertyDescriptor descriptor : BeanUtils.getPropertyDescriptors(WorkHoursStatistics.class)) {
+            if (descriptor.getReadMethod() != null && !"class".equals(descriptor.getName())) {
+                fields.add(descriptor.getName());
+            }
+        }
+        STATISTICS_FIELDS = Collections.unmodifiableSet(fields);
+    }
+
+    private final WorkHoursCalculationService calculationService;
+
+    /**
+     * 多月份查询专用线程池
+     */
+    private final ForkJoinPool pool;
+
+    public WorkHoursViewService(WorkHoursConfig config, WorkHoursCalculationService calculationService) {
+        this.calculationService = calculationService;
+        this.pool = new ForkJoinPool(Math.max(1, config.getViewParallelism()), p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("workhours-view-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * 查询多个月份的工时统计
+     *
+     * @param employeeId 员工编号，为空时使用个人考勤文件
+     * @param yearMonths 年月列表，格式：YYYY-MM（去除重复，保持请求顺序）
+     * @param fields     需要返回的统计字段，为空时返回全部字段
+     * @return 各月份的统计结果，单个月份失败不影响其他月份
+     */
+    public List<MonthWorkHours> getMonths(String employeeId, List<String> yearMonths, List<String> fields) {
+        long startTime = System.nanoTime();
+
+        List<String> months = resolveMonths(yearMonths);
+        Set<String> projection = resolveFields(fields);
+
+        List<ForkJoinTask<MonthWorkHours>> tasks = new ArrayList<>(months.size());
+        for (String yearMonth : months) {
+            tasks.add(pool.submit(() -> calculateMonth(employeeId, yearMonth, projection)));
+        }
+
+        List<MonthWorkHours> results = new ArrayList<>(months.size());
+        for (ForkJoinTask<MonthWorkHours> task : tasks) {
+            results.add(task.join());
+        }
+
+        log.info("多月份工时查询完成: {}，{} 个月，耗时 {} 毫秒",
+                employeeId == null ? "个人" : employeeId, months.size(), (System.nanoTime() - startTime) / 1_000_000);
+        return results;
+    }
+
+    /**
+     * 获取多月份查询结果的数据版本（各月份考勤文件的版本，不解析考勤文件），用于条件请求
+     *
+     * @return 数据版本，年月不合法时返回 null
+     */
+    public String getStatisticsVersion(String employeeId, List<String> yearMonths) {
+        StringBuilder version = new StringBuilder();
+        try {
+            for (String yearMonth : resolveMonths(yearMonths)) {
+                version.append(yearMonth).append('=')
+                        .append(calculationService.getStatisticsVersion(employeeId, yearMonth))
+                        .append(':').append(calculationService.getChangeVersion(employeeId, yearMonth))
+                        .append('|');
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return version.toString();
+    }
+
+    /**
+     * 校验并去重年月
+     */
+    private List<String> resolveMonths(List<String> yearMonths) {
+        Set<String> months = new LinkedHashSet<>();
+        if (yearMonths != null) {
+            for (String yearMonth : yearMonths) {
+                if (yearMonth == null || yearMonth.trim().isEmpty()) continue;
+                try {
+                    months.add(YearMonth.parse(yearMonth.trim(), DateTimeFormatter.ofPattern("yyyy-MM"))
+                            .format(DateTimeFormatter.ofPattern("yyyy-MM")));
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException("年月格式不正确: " + yearMonth);
+                }
+            }
+        }
+        if (months.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个年月");
+        }
+        if (months.size() > MAX_MONTHS) {
+            throw new IllegalArgumentException("单次最多查询 " + MAX_MONTHS + " 个月");
+        }
+        return new ArrayList<>(months);
+    }
+
+    /**
+     * 校验统计字段，为空时返回全部字段
+     */
+    private Set<String> resolveFields(List<String> fields) {
+        Set<String> projection = new LinkedHashSet<>();
+        if (fields != null) {
+            for (String field : fields) {
+                if (field == null || field.trim().isEmpty()) continue;
+                if (!STATISTICS_FIELDS.contains(field.trim())) {
+                    throw new IllegalArgumentException("不支持的统计字段: " + field.trim());
+                }
+                projection.add(field.trim());
+            }
+        }
+        return projection.isEmpty() ? STATISTICS_FIELDS : projection;
+    }
+
+    /**
+     * 计算单个月份的统计并只保留请求的字段（失败时记录原因，不影响其他月份）
+     */
+    private MonthWorkHours calculateMonth(String employeeId, String yearMonth, Set<String> projection) {
+        try {
+            // 先取版本再计算：期间发生的修改会包含在之后的 /changes 结果中
+            long version = calculationService.getChangeVersion(employeeId, yearMonth);
+            WorkHoursStatistics statistics = calculationService.calculateWorkHours(employeeId, yearMonth);
+
+            BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(statistics);
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (String field : projection) {
+                values.put(field, wrapper.getPropertyValue(field));
+            }
+            return MonthWorkHours.builder()
+                    .yearMonth(yearMonth)
+                    .success(true)
+                    .version(version)
+                    .statistics(values)
+                    .build();
+        } catch (Exception e) {
+            log.warn("月份工时计算失败: {} - {}", yearMonth, e.getMessage());
+            return MonthWorkHours.builder()
+                    .yearMonth(yearMonth)
+                    .success(false)
+                    .message(e.getMessage())
+                    .build();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
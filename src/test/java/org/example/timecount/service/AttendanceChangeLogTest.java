@@ -0,0 +1,58 @@
+package org.example.timecount.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 考勤变更版本：按行返回变化，以及无法确定变化的行时要求全部重新获取
+ */
+class AttendanceChangeLogTest {
+
+    private final File file = new File("attendance_2025-03.xlsx");
+
+    @Test
+    void submitsReturnChangedDates() {
+        AttendanceChangeLog changeLog = new AttendanceChangeLog();
+        long since = changeLog.getVersion(file, "f1", "r1");
+        changeLog.recordChanges(file, Collections.singletonList("2025-03-03"));
+
+        AttendanceChangeLog.Changes changes = changeLog.getChanges(file, since, "f2", "r1");
+        assertFalse(changes.isFull());
+        assertEquals(Collections.singletonList("2025-03-03"), changes.getDates());
+    }
+
+    @Test
+    void ruleChangeForcesFullEvenAfterSubmit() {
+        AttendanceChangeLog changeLog = new AttendanceChangeLog();
+        long since = changeLog.getVersion(file, "f1", "r1");
+        // 配置或节假日变化后又有提交：每一行的计算结果都可能变化，不能只返回提交的日期
+        changeLog.recordChanges(file, Collections.singletonList("2025-03-03"));
+
+        assertTrue(changeLog.getChanges(file, since, "f2", "r2").isFull());
+    }
+
+    @Test
+    void externalEditAfterIssuedVersionForcesFull() {
+        AttendanceChangeLog changeLog = new AttendanceChangeLog();
+        // 版本由 /excel/data 等接口返回，之后文件被外部修改，期间本服务没有写入
+        long since = changeLog.getVersion(file, "f1", "r1");
+
+        AttendanceChangeLog.Changes changes = changeLog.getChanges(file, since, "f2", "r1");
+        assertTrue(changes.isFull());
+        assertTrue(changes.getVersion() > since);
+    }
+
+    @Test
+    void futureVersionForcesFull() {
+        AttendanceChangeLog changeLog = new AttendanceChangeLog();
+        long version = changeLog.getVersion(file, "f1", "r1");
+
+        assertTrue(changeLog.getChanges(file, version + 1000, "f1", "r1").isFull());
+    }
+}
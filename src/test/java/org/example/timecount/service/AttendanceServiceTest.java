@@ -0,0 +1,188 @@
+package org.example.timecount.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.example.timecount.config.WorkHoursConfig;
+import org.example.timecount.model.AttendanceRequest;
+import org.example.timecount.model.AttendanceSubmitResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 考勤提交：改写工作表 XML 与完整加载工作簿两种更新方式的一致性测试
+ */
+class AttendanceServiceTest {
+
+    private static final List<AttendanceRequest> REQUESTS = Arrays.asList(
+            request("2025-03-03", "09:00", "18:30", null, null, null, null),
+            request("2025-03-04", "08:45", "02:00+1", "上午请假", "09:00", "12:00", "加班 & 上线 <紧急>"),
+            request("2025-03-05", " 09:10 ", "20:00", "", "", "", "  首尾空格  "),
+            request("2025-03-03", "09:05", "", "正常", null, null, "覆盖同一天的提交"),
+            request("2025-03-31", "10:00", "19:00", "下午请假", "13:00", "18:00", null));
+
+    @Test
+    void patchedFileMatchesRewrittenWorkbook(@TempDir Path patchDir, @TempDir Path poiDir) throws Exception {
+        Fixture patch = new Fixture(patchDir, WorkHoursConfig.UpdateMode.PATCH);
+        Fixture poi = new Fixture(poiDir, WorkHoursConfig.UpdateMode.POI);
+
+        for (Fixture fixture : Arrays.asList(patch, poi)) {
+            for (AttendanceSubmitResult result : fixture.attendanceService.submitAttendanceBatch(REQUESTS)) {
+                assertTrue(result.isSuccess(), result.getDate() + " " + result.getMessage());
+            }
+            // 再次提交：改写之前已被改写过的行
+            fixture.attendanceService.submitAttendance(
+                    request("2025-03-04", "09:30", "18:00", null, null, null, "二次提交"));
+        }
+
+        assertEquals(describe(poi.file), describe(patch.file));
+        for (WorkHoursConfig.ReadMode readMode : WorkHoursConfig.ReadMode.values()) {
+            assertEquals(poi.readRows(readMode), patch.readRows(readMode), readMode.toString());
+        }
+    }
+
+    @Test
+    void missingDateFallsBackToWorkbookRewrite(@TempDir Path dataDir) throws Exception {
+        Fixture patch = new Fixture(dataDir, WorkHoursConfig.UpdateMode.PATCH);
+
+        // 日期列被手工改动后找不到该日期：改为完整加载工作簿处理，逐条返回结果
+        try (Workbook workbook = WorkbookFactory.create(patch.file)) {
+            workbook.getSheetAt(0).getRow(10).getCell(0).setCellValue("已删除");
+            patch.fileStore.writeAtomically(patch.file, workbook::write);
+        }
+        List<AttendanceSubmitResult> results = patch.attendanceService.submitAttendanceBatch(Arrays.asList(
+                request("2025-03-10", "09:00", "18:00", null, null, null, null),
+                request("2025-03-11", "09:00", "18:00", null, null, null, null)));
+
+        assertFalse(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertTrue(describe(patch.file).contains("C12 STRING [09:00]"));
+    }
+
+    @Test
+    void numericDatesFallBackOnceThenUseRowIndex(@TempDir Path patchDir, @TempDir Path poiDir) throws Exception {
+        Fixture patch = new Fixture(patchDir, WorkHoursConfig.UpdateMode.PATCH);
+        Fixture poi = new Fixture(poiDir, WorkHoursConfig.UpdateMode.POI);
+        for (Fixture fixture : Arrays.asList(patch, poi)) {
+            // 日期列改为数值格式的日期：补丁无法从 XML 中识别日期
+            try (Workbook workbook = WorkbookFactory.create(fixture.file)) {
+                CellStyle dateStyle = workbook.createCellStyle();
+                dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+                for (Row row : workbook.getSheetAt(0)) {
+                    Cell cell = row.getCell(0);
+                    if (row.getRowNum() > 0 && cell != null && !cell.getStringCellValue().isEmpty()) {
+                        cell.setCellValue(LocalDate.parse(cell.getStringCellValue()));
+                        cell.setCellStyle(dateStyle);
+                    }
+                }
+                fixture.fileStore.writeAtomically(fixture.file, workbook::write);
+            }
+            for (AttendanceRequest request : REQUESTS) {
+                fixture.attendanceService.submitAttendance(request);
+            }
+        }
+
+        // 第一次提交完整加载工作簿并建立行索引，之后按行号直接改写工作表 XML
+        assertEquals(1.0, patch.registry.counter("workhours.attendance.patch.fallback").count());
+        for (WorkHoursConfig.ReadMode readMode : WorkHoursConfig.ReadMode.values()) {
+            assertEquals(poi.readRows(readMode), patch.readRows(readMode), readMode.toString());
+        }
+    }
+
+    @Test
+    void bufferedSubmitRejectsMissingDateBeforeAccepting(@TempDir Path dataDir) throws Exception {
+        Fixture buffered = new Fixture(dataDir, WorkHoursConfig.UpdateMode.PATCH);
+        buffered.config.setWriteMode(WorkHoursConfig.WriteMode.WRITE_BEHIND);
+        try (Workbook workbook = WorkbookFactory.create(buffered.file)) {
+            workbook.getSheetAt(0).getRow(10).getCell(0).setCellValue("已删除");
+            buffered.fileStore.writeAtomically(buffered.file, workbook::write);
+        }
+
+        // 与直接写入模式一致：接收前就返回找不到日期的错误，而不是先返回成功、写入时丢弃
+        IOException error = assertThrows(IOException.class, () -> buffered.attendanceService.submitAttendance(
+                request("2025-03-10", "09:00", "18:00", null, null, null, null)));
+        assertTrue(error.getMessage().contains("未找到日期为 2025-03-10 的记录"), error.getMessage());
+        List<AttendanceSubmitResult> results = buffered.attendanceService.submitAttendanceBatch(Arrays.asList(
+                request("2025-03-10", "09:00", "18:00", null, null, null, null),
+                request("2025-03-11", "09:00", "18:00", null, null, null, null)));
+        assertFalse(results.get(0).isSuccess());
+        assertEquals("未找到日期为 2025-03-10 的记录", results.get(0).getMessage());
+        assertTrue(results.get(1).isSuccess());
+
+        buffered.attendanceService.flushAll();
+        assertTrue(describe(buffered.file).contains("C12 STRING [09:00]"));
+    }
+
+    private static AttendanceRequest request(String date, String startTime, String endTime, String leaveType,
+                                             String leaveStartTime, String leaveEndTime, String remark) {
+        return AttendanceRequest.builder()
+                .date(date)
+                .startTime(startTime)
+                .endTime(endTime)
+                .leaveType(leaveType)
+                .leaveStartTime(leaveStartTime)
+                .leaveEndTime(leaveEndTime)
+                .remark(remark)
+                .build();
+    }
+
+    /**
+     * 描述工作表内容：每个单元格的类型、值和样式序号
+     */
+    private static String describe(File file) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        try (Workbook workbook = WorkbookFactory.create(file, null, true)) {
+            for (Row row : workbook.getSheetAt(0)) {
+                for (Cell cell : row) {
+                    sb.append('\n').append(cell.getAddress()).append(' ').append(cell.getCellType())
+                            .append(" [").append(cell).append("] ").append(cell.getCellStyle().getIndex());
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static class Fixture {
+        final WorkHoursConfig config = new WorkHoursConfig();
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final WorkHoursMetrics metrics = new WorkHoursMetrics(registry);
+        final AttendanceFileStore fileStore;
+        final AttendanceService attendanceService;
+        final File file;
+
+        Fixture(Path dataDir, WorkHoursConfig.UpdateMode updateMode) throws Exception {
+            config.setDataDirectory(dataDir.toString());
+            config.setUpdateMode(updateMode);
+            fileStore = new AttendanceFileStore(config, metrics);
+            attendanceService = new AttendanceService(config, fileStore, new AttendanceWriteBuffer(),
+                    new AttendanceRowIndex(), new AttendanceJournal(new ObjectMapper()),
+                    new AttendanceChangeLog(), metrics);
+            file = new File(new ExcelTemplateService(config, fileStore).generateTemplate("2025-03"));
+        }
+
+        List<String> readRows(WorkHoursConfig.ReadMode readMode) throws Exception {
+            config.setReadMode(readMode);
+            List<String> rows = new ArrayList<>();
+            new AttendanceSheetReader(config, fileStore, metrics)
+                    .readRows(file, (rowIndex, cells) -> rows.add(rowIndex + " " + Arrays.toString(cells)));
+            return rows;
+        }
+    }
+}
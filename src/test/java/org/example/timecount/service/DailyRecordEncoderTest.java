@@ -0,0 +1,82 @@
+package org.example.timecount.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.timecount.model.DailyRecord;
+import org.example.timecount.model.WorkHoursStatistics;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 每日记录编码：行格式与直接序列化一致，列格式的日期、时间与下标换算
+ */
+class DailyRecordEncoderTest {
+
+    private static final List<DailyRecord> RECORDS = Arrays.asList(
+            record(1, "09:05", "18:30", "18:30", DailyRecord.LeaveType.NONE),
+            record(2, null, null, "", DailyRecord.LeaveType.FULL_DAY),
+            record(3, "08:50", "01:15", "01:15+1", DailyRecord.LeaveType.MORNING));
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void rowsWithAllFieldsMatchSerializedRecords() {
+        // 按 JSON 树比较：布尔属性（isWorkday、isLeave）的序列化顺序取决于反射返回方法的顺序
+        assertEquals(objectMapper.valueToTree(RECORDS),
+                objectMapper.valueToTree(DailyRecordEncoder.toRows(RECORDS, null)));
+    }
+
+    @Test
+    void columnsEncodeDaysMinutesAndIndexes() {
+        WorkHoursStatistics statistics = WorkHoursStatistics.builder()
+                .yearMonth("2025-03")
+                .dailyRecords(RECORDS)
+                .leaveRecords(Arrays.asList(RECORDS.get(1), RECORDS.get(2)))
+                .lateRecords(Collections.singletonList(RECORDS.get(0)))
+                .build();
+
+        Map<String, Object> encoded = DailyRecordEncoder.encodeStatistics(statistics,
+                DailyRecordEncoder.resolveFields(Arrays.asList("date", "startTime", "endTime", "leaveType")), true);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> columns = (Map<String, Object>) encoded.get("dailyRecords");
+        assertEquals(new LinkedHashSet<>(Arrays.asList("count", "date", "startTime", "endTime", "leaveType")),
+                columns.keySet());
+        assertEquals(3, columns.get("count"));
+        assertEquals(Arrays.asList(1, 2, 3), columns.get("date"));
+        assertEquals(Arrays.asList(545, null, 530), columns.get("startTime"));
+        // 跨天下班（+1）加 1440 分钟
+        assertEquals(Arrays.asList(1110, null, 1515), columns.get("endTime"));
+        assertEquals(Arrays.asList(1, 2), encoded.get("leaveIndexes"));
+        assertEquals(Collections.singletonList(0), encoded.get("lateIndexes"));
+    }
+
+    private static DailyRecord record(int day, String startTime, String endTime, String endTimeRaw,
+                                      DailyRecord.LeaveType leaveType) {
+        return DailyRecord.builder()
+                .date(LocalDate.of(2025, 3, day))
+                .dayOfWeek("星期" + day)
+                .startTime(startTime == null ? null : LocalTime.parse(startTime))
+                .endTime(endTime == null ? null : LocalTime.parse(endTime))
+                .endTimeRaw(endTimeRaw)
+                .workHours(day * 1.5)
+                .isWorkday(true)
+                .isLeave(leaveType != DailyRecord.LeaveType.NONE)
+                .leaveType(leaveType)
+                .leaveHours(leaveType == DailyRecord.LeaveType.NONE ? 0.0 : 4.0)
+                .remark("备注" + day)
+                .build();
+    }
+}
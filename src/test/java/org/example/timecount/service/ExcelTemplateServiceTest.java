@@ -0,0 +1,102 @@
+package org.example.timecount.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.example.timecount.config.WorkHoursConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 模板骨架生成的文件与 POI 生成的文件一致性测试
+ */
+class ExcelTemplateServiceTest {
+
+    private static final String[] YEAR_MONTHS = {"2024-02", "2025-01", "2025-02", "2025-04", "2025-10"};
+
+    @Test
+    void skeletonTemplateMatchesPoiTemplate(@TempDir Path skeletonDir, @TempDir Path poiDir) throws Exception {
+        Fixture skeleton = new Fixture(skeletonDir, WorkHoursConfig.TemplateMode.SKELETON);
+        Fixture poi = new Fixture(poiDir, WorkHoursConfig.TemplateMode.POI);
+
+        for (String yearMonth : YEAR_MONTHS) {
+            File skeletonFile = new File(skeleton.templateService.generateTemplate(yearMonth));
+            File poiFile = new File(poi.templateService.generateTemplate(yearMonth));
+
+            assertEquals(describe(poiFile), describe(skeletonFile), yearMonth);
+            for (WorkHoursConfig.ReadMode readMode : WorkHoursConfig.ReadMode.values()) {
+                assertEquals(poi.readRows(poiFile, readMode), skeleton.readRows(skeletonFile, readMode),
+                        yearMonth + " " + readMode);
+            }
+        }
+    }
+
+    @Test
+    void existingSkeletonTemplateCanBeUpdated(@TempDir Path dataDir) throws Exception {
+        Fixture skeleton = new Fixture(dataDir, WorkHoursConfig.TemplateMode.SKELETON);
+        File file = new File(skeleton.templateService.generateTemplate("2025-03"));
+        String generated = describe(file);
+
+        // 文件已存在时走完整加载、补全后重新写出的路径
+        skeleton.templateService.generateTemplate("2025-03");
+        assertEquals(generated, describe(file));
+    }
+
+    /**
+     * 描述工作簿内容：列宽，以及每个单元格的类型、值和主要样式
+     */
+    private static String describe(File file) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        try (Workbook workbook = WorkbookFactory.create(file, null, true)) {
+            Sheet sheet = workbook.getSheetAt(0);
+            sb.append(sheet.getSheetName()).append(' ').append(sheet.getLastRowNum());
+            for (int col = 0; col < 8; col++) {
+                sb.append(' ').append(sheet.getColumnWidth(col));
+            }
+            for (Row row : sheet) {
+                for (Cell cell : row) {
+                    CellStyle style = cell.getCellStyle();
+                    sb.append('\n').append(cell.getAddress()).append(' ').append(cell.getCellType())
+                            .append(' ').append(cell).append(' ').append(style.getAlignment())
+                            .append(' ').append(style.getBorderBottom()).append(' ').append(style.getFillPattern())
+                            .append(' ').append(workbook.getFontAt(style.getFontIndex()).getBold());
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static class Fixture {
+        final WorkHoursConfig config = new WorkHoursConfig();
+        final AttendanceFileStore fileStore;
+        final ExcelTemplateService templateService;
+        final WorkHoursMetrics metrics = new WorkHoursMetrics(new SimpleMeterRegistry());
+
+        Fixture(Path dataDir, WorkHoursConfig.TemplateMode templateMode) {
+            config.setDataDirectory(dataDir.toString());
+            config.setTemplateMode(templateMode);
+            fileStore = new AttendanceFileStore(config, metrics);
+            templateService = new ExcelTemplateService(config, fileStore);
+        }
+
+        List<String> readRows(File file, WorkHoursConfig.ReadMode readMode) throws Exception {
+            config.setReadMode(readMode);
+            List<String> rows = new ArrayList<>();
+            new AttendanceSheetReader(config, fileStore, metrics)
+                    .readRows(file, (rowIndex, cells) -> rows.add(rowIndex + " " + Arrays.toString(cells)));
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.timecount.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.timecount.config.WorkHoursConfig;
+import org.example.timecount.model.AttendanceRequest;
+import org.example.timecount.model.AttendanceSubmitResult;
+import org.example.timecount.model.WorkHoursStatistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 物化统计：提交后按天增量更新的结果与重新读取文件、完整计算的结果一致
+ */
+class WorkHoursCalculationServiceTest {
+
+    private static final List<AttendanceRequest> REQUESTS = Arrays.asList(
+            request("2025-03-03", "09:40", "22:15", null, null, null),
+            request("2025-03-04", "08:45", "02:00+1", "上午请假", "09:00", "12:00"),
+            request("2025-03-05", "10:30", "19:00", "自定义", "09:00", "10:00"),
+            request("2025-03-06", null, null, "全天请假", null, null),
+            // 覆盖已提交的日期：旧的迟到、请假、晚上九点后打卡贡献需要被减去
+            request("2025-03-03", "09:00", "18:00", null, null, null),
+            request("2025-03-05", "", "", "", "", ""));
+
+    @Test
+    void incrementalUpdatesMatchFullRecompute(@TempDir Path dataDir) throws Exception {
+        WorkHoursConfig config = new WorkHoursConfig();
+        config.setDataDirectory(dataDir.toString());
+        WorkHoursMetrics metrics = new WorkHoursMetrics(new SimpleMeterRegistry());
+        AttendanceFileStore fileStore = new AttendanceFileStore(config, metrics);
+        AttendanceWriteBuffer writeBuffer = new AttendanceWriteBuffer();
+        AttendanceChangeLog changeLog = new AttendanceChangeLog();
+        AttendanceService attendanceService = new AttendanceService(config, fileStore, writeBuffer,
+                new AttendanceRowIndex(), new AttendanceJournal(new ObjectMapper()), changeLog, metrics);
+        WorkHoursCalculationService calculationService = new WorkHoursCalculationService(config,
+                new HolidayService(config, fileStore, new ObjectMapper()), new MonthRecordCache(config),
+                new AttendanceSheetReader(config, fileStore, metrics), fileStore, writeBuffer, metrics,
+                new WorkHoursEngine(config), changeLog, attendanceService);
+        calculationService.registerWriteListener();
+        new ExcelTemplateService(config, fileStore).generateTemplate("2025-03");
+
+        calculationService.calculateWorkHours("2025-03");
+        for (AttendanceRequest request : REQUESTS) {
+            attendanceService.submitAttendance(request);
+            assertConsistent(calculationService.verifyStatistics(null, "2025-03"));
+        }
+        List<AttendanceSubmitResult> results = attendanceService.submitAttendanceBatch(Arrays.asList(
+                request("2025-03-07", "09:20", "21:30", "下午请假", "13:00", "18:00"),
+                request("2025-02-30", "09:00", "18:00", null, null, null),
+                request("2025-03-10", "09:05", "18:00", null, null, null)));
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(results.get(2).isSuccess());
+        assertConsistent(calculationService.verifyStatistics(null, "2025-03"));
+
+        // 每次提交后都在缓存条目上增量更新，只在第一次读取时解析考勤文件
+        assertEquals(1L, calculationService.getCacheStats().get("misses"));
+        WorkHoursStatistics statistics = calculationService.calculateWorkHours("2025-03");
+        assertEquals(2, statistics.getLateDays());
+        assertEquals(3, statistics.getLeaveDays());
+        assertEquals(1, statistics.getLateNightCheckInCount());
+
+        // 返回的是副本：调用方修改不影响缓存中的统计
+        statistics.setTotalWorkHours(-1);
+        statistics.getDailyRecords().get(0).setRemark("已修改");
+        WorkHoursStatistics again = calculationService.calculateWorkHours("2025-03");
+        assertTrue(again.getTotalWorkHours() >= 0);
+        assertTrue(!"已修改".equals(again.getDailyRecords().get(0).getRemark()));
+        assertConsistent(calculationService.verifyStatistics(null, "2025-03"));
+    }
+
+    private static void assertConsistent(Map<String, Object> verification) {
+        assertTrue((Boolean) verification.get("consistent"), String.valueOf(verification.get("differences")));
+    }
+
+    private static AttendanceRequest request(String date, String startTime, String endTime, String leaveType,
+                                             String leaveStartTime, String leaveEndTime) {
+        return AttendanceRequest.builder()
+                .date(date)
+                .startTime(startTime)
+                .endTime(endTime)
+                .leaveType(leaveType)
+                .leaveStartTime(leaveStartTime)
+                .leaveEndTime(leaveEndTime)
+                .build();
+    }
+}
@@ -0,0 +1,179 @@
+package org.example.timecount.service;
+
+import org.example.timecount.config.WorkHoursConfig;
+import org.example.timecount.model.DailyRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 工时计算引擎与原有实现（LocalTime / Duration）的一致性测试
+ */
+class WorkHoursEngineTest {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    @Test
+    void dailyWorkHoursMatchLegacyForAllMinuteCombinations() {
+        for (int dinnerThresholdHour : new int[]{19, 18}) {
+            WorkHoursConfig config = new WorkHoursConfig();
+            config.setDinnerBreakThresholdHour(dinnerThresholdHour);
+            WorkHoursEngine engine = new WorkHoursEngine(config);
+
+            List<String> mismatches = new ArrayList<>();
+            for (DailyRecord.LeaveType leaveType : DailyRecord.LeaveType.values()) {
+                for (boolean nextDay : new boolean[]{false, true}) {
+                    for (int start = 0; start < MINUTES_PER_DAY; start++) {
+                        LocalTime startTime = toLocalTime(start);
+                        for (int end = 0; end < MINUTES_PER_DAY; end++) {
+                            double expected = legacyDailyWorkHours(startTime, toLocalTime(end), nextDay, leaveType,
+                                    dinnerThresholdHour);
+                            double actual = engine.calculateDailyWorkHours(start, end, nextDay, leaveType);
+                            if (Double.doubleToLongBits(expected) != Double.doubleToLongBits(actual)
+                                    && mismatches.size() < 10) {
+                                mismatches.add(String.format("%d -> %d%s %s: expected %s, actual %s",
+                                        start, end, nextDay ? "(+1)" : "", leaveType, expected, actual));
+                            }
+                        }
+                    }
+                }
+            }
+            assertTrue(mismatches.isEmpty(), () -> "与原有实现不一致: " + mismatches);
+        }
+    }
+
+    @Test
+    void dailyWorkHoursIsZeroWhenTimeMissing() {
+        WorkHoursEngine engine = new WorkHoursEngine(new WorkHoursConfig());
+        assertEquals(0.0, engine.calculateDailyWorkHours(WorkHoursEngine.NO_TIME, 600, false, DailyRecord.LeaveType.NONE));
+        assertEquals(0.0, engine.calculateDailyWorkHours(540, WorkHoursEngine.NO_TIME, true, DailyRecord.LeaveType.NONE));
+    }
+
+    @Test
+    void parseMinuteMatchesLegacyForGeneratedTimes() {
+        String[] suffixes = {"", "+1", " +1", "+1 ", " "};
+        String[] prefixes = {"", " ", "\t"};
+        // 覆盖全部合法时间，以及越界的小时（24、25）和分钟（60、61）
+        for (int hour = 0; hour < 26; hour++) {
+            for (int minute = 0; minute < 62; minute++) {
+                for (String format : new String[]{"%d:%02d", "%02d:%02d", "%d:%d", "%03d:%02d"}) {
+                    String time = String.format(format, hour, minute);
+                    for (String prefix : prefixes) {
+                        for (String suffix : suffixes) {
+                            assertParseMatchesLegacy(prefix + time + suffix);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void parseMinuteMatchesLegacyForIrregularInput() {
+        List<String> inputs = Arrays.asList(null, "", " ", "+1", " +1 ", "9", "09", "9:", ":30", "09:5", "9:05:00",
+                "09:05+1+1", "09:05+12", "1+1:00", "09 : 05", "09: 05", "-1:00", "+9:05", "9:-5", "24:00", "23:60",
+                "０９:０５", "9：05", "abc", "09:0a", "0900", "12:00am", "  7:45  +1  ");
+        for (String input : inputs) {
+            assertParseMatchesLegacy(input);
+        }
+    }
+
+    @Test
+    void isNextDayDetectsMarker() {
+        assertTrue(WorkHoursEngine.isNextDay("01:30+1"));
+        assertEquals(false, WorkHoursEngine.isNextDay("21:30"));
+        assertEquals(false, WorkHoursEngine.isNextDay(null));
+    }
+
+    private void assertParseMatchesLegacy(String input) {
+        LocalTime legacy = legacyParseTime(input);
+        int expected = legacy == null ? WorkHoursEngine.NO_TIME : legacy.getHour() * 60 + legacy.getMinute();
+        assertEquals(expected, WorkHoursEngine.parseMinute(input), () -> "解析结果不一致: [" + input + "]");
+    }
+
+    private static LocalTime toLocalTime(int minute) {
+        return LocalTime.of(minute / 60, minute % 60);
+    }
+
+    /**
+     * 原有的时间解析实现
+     */
+    private static LocalTime legacyParseTime(String timeStr) {
+        if (timeStr == null || timeStr.trim().isEmpty()) {
+            return null;
+        }
+
+        try {
+            String cleanTimeStr = timeStr.replace("+1", "").trim();
+            if (cleanTimeStr.contains(":")) {
+                String[] parts = cleanTimeStr.split(":");
+                int hour = Integer.parseInt(parts[0].trim());
+                int minute = Integer.parseInt(parts[1].trim());
+                return LocalTime.of(hour, minute);
+            }
+        } catch (Exception e) {
+            // 与原实现一致：解析失败返回 null
+        }
+
+        return null;
+    }
+
+    /**
+     * 原有的每日工时计算实现（去掉日志）
+     */
+    private static double legacyDailyWorkHours(LocalTime startTime, LocalTime endTime, boolean isEndTimeNextDay,
+                                               DailyRecord.LeaveType leaveType, int dinnerBreakThresholdHour) {
+        if (startTime == null || endTime == null) {
+            return 0.0;
+        }
+
+        long totalMinutes;
+        if (isEndTimeNextDay) {
+            totalMinutes = Duration.between(startTime, endTime).toMinutes() + 24 * 60;
+        } else {
+            totalMinutes = Duration.between(startTime, endTime).toMinutes();
+        }
+        double totalHours = totalMinutes / 60.0;
+
+        LocalTime lunchThreshold = LocalTime.of(12, 0);
+        LocalTime dinnerThreshold = LocalTime.of(dinnerBreakThresholdHour, 0);
+        double mealTimeDeduction;
+
+        switch (leaveType) {
+            case MORNING:
+                if (isEndTimeNextDay || !endTime.isBefore(dinnerThreshold)) {
+                    mealTimeDeduction = 0.5;
+                } else {
+                    mealTimeDeduction = 0.0;
+                }
+                break;
+            case AFTERNOON:
+            case FULL_DAY:
+                mealTimeDeduction = 0.0;
+                break;
+            case CUSTOM:
+            case NONE:
+            default:
+                if (isEndTimeNextDay) {
+                    mealTimeDeduction = 1.5;
+                } else if (endTime.isBefore(lunchThreshold)) {
+                    mealTimeDeduction = 0.0;
+                } else if (endTime.isBefore(dinnerThreshold)) {
+                    mealTimeDeduction = 1.0;
+                } else {
+                    mealTimeDeduction = 1.5;
+                }
+                break;
+        }
+
+        totalHours -= mealTimeDeduction;
+        return Math.max(0, totalHours);
+    }
+}